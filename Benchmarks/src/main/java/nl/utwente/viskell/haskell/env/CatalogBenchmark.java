@@ -0,0 +1,61 @@
+package nl.utwente.viskell.haskell.env;
+
+import nl.utwente.viskell.haskell.type.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries on the bundled catalog, which are dominated by instantiating and unifying function signatures.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+    /** The type to search functions for. */
+    @Param({"Int -> Int", "[a] -> Int", "Num a => a -> a -> a", "a"})
+    private String query;
+
+    /** The catalog to search. */
+    private HaskellCatalog catalog;
+
+    /** The parsed query. */
+    private Type type;
+
+    @Setup
+    public void setUp() {
+        this.catalog = new HaskellCatalog();
+        this.type = this.catalog.asEnvironment().buildType(this.query);
+        // parse all signatures up front, so that only the first iteration does not pay for it
+        for (CatalogFunction fn : this.catalog.getByPredicate(fn -> true)) {
+            fn.getFreshSignature();
+        }
+    }
+
+    @Benchmark
+    public Collection<CatalogFunction> getByType() {
+        return this.catalog.getByType(this.type);
+    }
+
+    @Benchmark
+    public void freshSignatures(Blackhole blackhole) {
+        for (CatalogFunction fn : this.catalog.getByPredicate(fn -> true)) {
+            blackhole.consume(fn.getFreshSignature());
+        }
+    }
+}
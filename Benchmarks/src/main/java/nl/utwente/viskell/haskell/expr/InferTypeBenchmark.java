@@ -0,0 +1,95 @@
+package nl.utwente.viskell.haskell.expr;
+
+import com.google.common.collect.ImmutableList;
+import nl.utwente.viskell.ghcj.HaskellException;
+import nl.utwente.viskell.haskell.env.Environment;
+import nl.utwente.viskell.haskell.env.HaskellCatalog;
+import nl.utwente.viskell.haskell.type.HaskellTypeError;
+import nl.utwente.viskell.haskell.type.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type inference of synthetic expression trees, shaped like the ones generated from large sheets.
+ * Inference refreshes all types it uses, so the same trees can be inferred repeatedly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class InferTypeBenchmark {
+    /** The number of nodes of each kind in the trees. */
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    /** Nested applications of (+) to a constant: (+) 1 ((+) 1 (... 1)). */
+    private Expression applies;
+
+    /** Nested lambdas applying negate to their argument: \x -> negate ((\x -> negate (...)) x). */
+    private Expression lambdas;
+
+    /** A let expression of which the body adds up all the let bound variables. */
+    private Expression let;
+
+    @Setup
+    public void setUp() throws HaskellException {
+        Environment env = new HaskellCatalog().asEnvironment();
+
+        Expression applies = new Value(Type.con("Int"), "1");
+        for (int i = 0; i < this.size; i++) {
+            applies = new Apply(new Apply(env.useFun("(+)"), new Value(Type.con("Int"), "1")), applies);
+        }
+        this.applies = applies;
+
+        Expression lambdas = env.useFun("id");
+        for (int i = 0; i < this.size; i++) {
+            Binder x = new Binder("x");
+            lambdas = new Lambda(ImmutableList.of(x), new Apply(env.useFun("negate"), new Apply(lambdas, new LocalVar(x))));
+        }
+        this.lambdas = lambdas;
+
+        Binder first = new Binder("v");
+        first.setAnnotationAsType(Type.con("Int"));
+        Expression sum = new LocalVar(first);
+        Binder[] binders = new Binder[this.size];
+        for (int i = 0; i < this.size; i++) {
+            binders[i] = new Binder("v" + i);
+            binders[i].setAnnotationAsType(Type.con("Int"));
+            sum = new Apply(new Apply(env.useFun("(+)"), new LocalVar(binders[i])), sum);
+        }
+        LetExpression let = new LetExpression(sum, false);
+        let.addLetBinding(first, new Value(Type.con("Int"), "0"));
+        for (int i = 0; i < this.size; i++) {
+            let.addLetBinding(binders[i], new Value(Type.con("Int"), String.valueOf(i)));
+        }
+        this.let = let;
+    }
+
+    @Benchmark
+    public Type apply() throws HaskellTypeError {
+        return this.applies.inferType();
+    }
+
+    @Benchmark
+    public Type lambda() throws HaskellTypeError {
+        return this.lambdas.inferType();
+    }
+
+    @Benchmark
+    public Type letExpression() throws HaskellTypeError {
+        return this.let.inferType();
+    }
+}
@@ -0,0 +1,107 @@
+package nl.utwente.viskell.haskell.type;
+
+import nl.utwente.viskell.haskell.env.Environment;
+import nl.utwente.viskell.haskell.env.HaskellCatalog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unification of deep and constrained types.
+ * Every benchmark unifies fresh copies of prebuilt types, as unification modifies the type variables involved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class TypeCheckerBenchmark {
+    /** The depth of the unified types. */
+    @Param({"10", "100", "1000"})
+    private int depth;
+
+    /** A function type with a type variable for every argument, alternating between two variables. */
+    private Type funVars;
+
+    /** A function type with a concrete type for every argument. */
+    private Type funInts;
+
+    /** Nested applications of Maybe, ending in a type variable. */
+    private Type appVar;
+
+    /** Nested applications of Maybe, ending in a concrete type. */
+    private Type appInt;
+
+    /** A function type of distinct type variables with a mix of type class constraints. */
+    private Type constrainedVars;
+
+    /** A function type with as many arguments, all the same type variable. */
+    private Type sameVars;
+
+    @Setup
+    public void setUp() {
+        Environment env = new HaskellCatalog().asEnvironment();
+        TypeClass[] classes = {env.testLookupClass("Num"), env.testLookupClass("Ord"), env.testLookupClass("Show")};
+
+        Type[] vars = new Type[this.depth];
+        Type[] ints = new Type[this.depth];
+        Type[] constrained = new Type[this.depth];
+        Type[] same = new Type[this.depth];
+        TypeScope scope = new TypeScope();
+        TypeVar shared = scope.getVar("s");
+        for (int i = 0; i < this.depth; i++) {
+            vars[i] = scope.getVar("a" + (i % 2));
+            ints[i] = Type.con("Int");
+            constrained[i] = scope.getVarTC("c" + i, classes[i % classes.length]);
+            same[i] = shared;
+        }
+
+        this.funVars = Type.fun(vars);
+        this.funInts = Type.fun(ints);
+        this.constrainedVars = Type.fun(constrained);
+        this.sameVars = Type.fun(same);
+
+        Type app = scope.getVar("m");
+        Type appInt = Type.con("Int");
+        for (int i = 0; i < this.depth; i++) {
+            app = Type.con("Maybe", app);
+            appInt = Type.con("Maybe", appInt);
+        }
+        this.appVar = app;
+        this.appInt = appInt;
+    }
+
+    @Benchmark
+    public Type deepFunction() throws HaskellTypeError {
+        Type type = this.funVars.getFresh();
+        TypeChecker.unify("benchmark", type, this.funInts.getFresh());
+        return type;
+    }
+
+    @Benchmark
+    public Type deepApplication() throws HaskellTypeError {
+        Type type = this.appVar.getFresh();
+        TypeChecker.unify("benchmark", type, this.appInt.getFresh());
+        return type;
+    }
+
+    @Benchmark
+    public Type constrained() throws HaskellTypeError {
+        // first merges all the constraint sets into a single type variable, then checks them against Int
+        Type type = this.constrainedVars.getFresh();
+        TypeChecker.unify("benchmark", type, this.sameVars.getFresh());
+        TypeChecker.unify("benchmark", type, this.funInts.getFresh());
+        return type;
+    }
+}
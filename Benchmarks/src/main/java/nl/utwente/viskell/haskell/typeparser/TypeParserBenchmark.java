@@ -0,0 +1,80 @@
+package nl.utwente.viskell.haskell.typeparser;
+
+import nl.utwente.viskell.haskell.env.Environment;
+import nl.utwente.viskell.haskell.env.HaskellCatalog;
+import nl.utwente.viskell.haskell.type.TypeClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hand-written type signature parser with the one generated from the ANTLR grammar.
+ * Lives in the typeparser package to reach the ANTLR based reference implementation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class TypeParserBenchmark {
+    /** A mix of signatures as they occur in the catalogs and in answers from ghci. */
+    private static final String[] SIGNATURES = {
+        "Int",
+        "a -> a",
+        "[a] -> Int",
+        "(a -> b) -> [a] -> [b]",
+        "Maybe a -> a -> a",
+        "(a, b) -> a",
+        "Num a => a -> a -> a",
+        "(Eq a, Show b) => [(a, b)] -> a -> Maybe b",
+        "Foldable t => (a -> b -> b) -> b -> t a -> b",
+        "(Monad m) => (a -> m b) -> [a] -> m [b]",
+        "Either String (Int, [Char]) -> (,) Int Bool",
+        "(a -> b -> c) -> (a, b) -> c",
+    };
+
+    /** The builder for all signatures. */
+    private TypeBuilder builder;
+
+    @Setup
+    public void setUp() {
+        // the classes from the bundled catalog, so that constraints are resolved as in practice
+        Environment env = new HaskellCatalog().asEnvironment();
+        Map<String, TypeClass> classes = new HashMap<>();
+        for (String name : new String[] {"Num", "Eq", "Show", "Foldable", "Monad"}) {
+            TypeClass typeClass = env.testLookupClass(name);
+            if (typeClass != null) {
+                classes.put(name, typeClass);
+            }
+        }
+
+        this.builder = new TypeBuilder(classes);
+    }
+
+    @Benchmark
+    public void handWritten(Blackhole blackhole) {
+        for (String signature : SIGNATURES) {
+            blackhole.consume(this.builder.build(signature));
+        }
+    }
+
+    @Benchmark
+    public void antlr(Blackhole blackhole) {
+        for (String signature : SIGNATURES) {
+            blackhole.consume(this.builder.buildWithAntlr(signature));
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package nl.utwente.viskell.ghcj;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import nl.utwente.viskell.haskell.env.HaskellCatalog;
+import nl.utwente.viskell.haskell.expr.Expression;
+import nl.utwente.viskell.haskell.expr.SharedBindings;
+import nl.utwente.viskell.haskell.type.HaskellTypeError;
+import nl.utwente.viskell.model.BlockModel;
+import nl.utwente.viskell.model.GraphModel;
+import nl.utwente.viskell.model.InputModel;
+import nl.utwente.viskell.model.OutputModel;
+import nl.utwente.viskell.ui.serialize.Importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command line tool that loads .viskell files without a user interface, typechecks them and evaluates all their
+ * displays, graphs and simulations, writing the results as JSON. The files are run in parallel on a pool of
+ * evaluators, each file on a single evaluator, which is reset afterwards. An evaluator that takes longer than the timeout
+ * for a file is stopped, and an evaluator that stopped working is replaced by a new one.
+ * <p>
+ * Usage: {@code BatchRunner [-j <evaluators>] [-s <steps>] [-t <timeout in seconds>] [-o <output file>] <file or directory>...},
+ * where directories are searched for .viskell files, and the number of steps is the number of results of a simulation.
+ * </p>
+ */
+public final class BatchRunner {
+    /** The default number of results of a simulation. */
+    public static final int DEFAULT_STEPS = 10;
+
+    /** The default time in seconds the evaluation of a single file may take. */
+    public static final int DEFAULT_TIMEOUT = 60;
+
+    private static final Logger logger = Logger.getLogger(BatchRunner.class.getName());
+
+    /** The catalog of the functions that can be used in the files. */
+    private final HaskellCatalog catalog;
+
+    /** The evaluators that are not running a file at the moment. */
+    private final BlockingQueue<Evaluator> pool;
+
+    /** The number of evaluators, including the ones that are running a file. */
+    private final int poolSize;
+
+    /** Starts a new evaluator, to replace one that stopped working. */
+    private final Callable<Evaluator> factory;
+
+    /** The number of results of a simulation. */
+    private final int steps;
+
+    /** The time in milliseconds the evaluation of a single program may take. */
+    private final long timeoutMillis;
+
+    /** The thread stopping the evaluators that take too long. */
+    private final ScheduledExecutorService watchdog;
+
+    /**
+     * @param catalog The catalog of the functions that can be used in the files.
+     * @param evaluators The evaluators to run the files on.
+     * @param factory Starts a new evaluator, to replace one that stopped working.
+     * @param steps The number of results of a simulation.
+     * @param timeoutMillis The time in milliseconds the evaluation of a single program may take.
+     */
+    public BatchRunner(HaskellCatalog catalog, List<Evaluator> evaluators, Callable<Evaluator> factory, int steps, long timeoutMillis) {
+        this.catalog = catalog;
+        this.pool = new ArrayBlockingQueue<>(evaluators.size(), false, evaluators);
+        this.poolSize = evaluators.size();
+        this.factory = factory;
+        this.steps = steps;
+        this.timeoutMillis = timeoutMillis;
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "evaluation-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads, typechecks and evaluates a file, waiting for an evaluator to become available.
+     * @param file The .viskell file to run.
+     * @return The results of the file, ready to be written as JSON.
+     * @throws InterruptedException if interrupted while waiting for an evaluator.
+     */
+    public Map<String, Object> run(Path file) throws InterruptedException {
+        long start = System.nanoTime();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("file", file.toString());
+
+        Map<String, Object> layers;
+        try (InputStream in = Files.newInputStream(file)) {
+            layers = Importer.readLayers(in);
+        } catch (IOException | RuntimeException e) {
+            result.put("errors", ImmutableMap.of("load", ImmutableList.of(String.valueOf(e.getMessage()))));
+            result.put("millis", (System.nanoTime() - start) / 1000000.0);
+            return result;
+        }
+
+        result.putAll(this.run(layers));
+        result.put("millis", (System.nanoTime() - start) / 1000000.0);
+        return result;
+    }
+
+    /**
+     * Typechecks and evaluates a program, waiting for an evaluator to become available.
+     * @param layers The bundle of the program, in the format of a .viskell file.
+     * @return The inferred types and the results of the program, ready to be written as JSON.
+     * @throws InterruptedException if interrupted while waiting for an evaluator.
+     */
+    public Map<String, Object> run(Map<String, Object> layers) throws InterruptedException {
+        long start = System.nanoTime();
+        GraphModel graph = GraphModel.fromBundle(layers, this.catalog.asEnvironment());
+
+        Map<String, Object> typeErrors = new LinkedHashMap<>();
+        for (Map.Entry<BlockModel, HaskellTypeError> error : graph.typecheck().entrySet()) {
+            typeErrors.put(String.valueOf(error.getKey().getId()), error.getValue().getMessage());
+        }
+
+        Map<String, Object> types = new LinkedHashMap<>();
+        for (BlockModel block : graph.getBlocks()) {
+            block.getOutput().flatMap(OutputModel::getType).ifPresent(type -> types.put(String.valueOf(block.getId()), type.prettyPrint()));
+        }
+        long loaded = System.nanoTime();
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        List<Expression> exprs = new ArrayList<>();
+        for (BlockModel block : graph.getBlocks()) {
+            Optional<Expression> expr = block.getResultExpr(this.steps);
+            if (expr.isPresent()) {
+                Map<String, Object> sinkResult = new LinkedHashMap<>();
+                sinkResult.put("block", block.getId());
+                sinkResult.put("kind", block.getKind());
+                block.getInput(0).flatMap(InputModel::getType).ifPresent(type -> sinkResult.put("type", type.prettyPrint()));
+                results.add(sinkResult);
+                exprs.add(expr.get());
+            }
+        }
+
+        boolean timedOut = false;
+        if (!exprs.isEmpty()) {
+            Evaluator evaluator = this.takeEvaluator();
+            AtomicBoolean expired = new AtomicBoolean();
+            ScheduledFuture<?> deadline = this.watchdog.schedule(() -> {
+                expired.set(true);
+                evaluator.kill();
+            }, this.timeoutMillis, TimeUnit.MILLISECONDS);
+
+            try {
+                BatchRunner.evaluate(evaluator, exprs, results);
+            } finally {
+                deadline.cancel(false);
+                this.release(evaluator);
+            }
+
+            if (expired.get()) {
+                timedOut = true;
+                String message = String.format(Locale.US, "Evaluation did not finish within %.1f s", this.timeoutMillis / 1000.0);
+                for (Map<String, Object> sinkResult : results) {
+                    if (!sinkResult.containsKey("value")) {
+                        sinkResult.put("error", message);
+                    }
+                }
+            }
+        }
+        long finished = System.nanoTime();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("errors", ImmutableMap.of("load", graph.getErrors(), "types", typeErrors));
+        result.put("types", types);
+        result.put("sinks", results);
+        result.put("timedOut", timedOut);
+        result.put("loadMillis", (loaded - start) / 1000000.0);
+        result.put("evalMillis", (finished - loaded) / 1000000.0);
+        return result;
+    }
+
+    /**
+     * Evaluates the results of the sinks of a file, binding the parts they share once as the user interface does.
+     * @param evaluator The evaluator to use.
+     * @param exprs The expressions of the sinks.
+     * @param results The results of the sinks, to which the value or error of each expression is added.
+     */
+    private static void evaluate(Evaluator evaluator, List<Expression> exprs, List<Map<String, Object>> results) {
+        SharedBindings plan = SharedBindings.plan(exprs);
+        List<Expression> todo = exprs;
+        if (!plan.isEmpty()) {
+            try {
+                evaluator.eval(plan::bindingsToHaskell);
+                todo = plan.getExpressions();
+            } catch (HaskellException e) {
+                // evaluate each expression on its own instead
+            }
+        }
+
+        for (int i = 0; i < todo.size(); i++) {
+            try {
+                results.get(i).put("value", evaluator.eval("", GhciSession.prepare(todo.get(i))).trim());
+            } catch (HaskellException e) {
+                results.get(i).put("error", e.getMessage());
+                if (evaluator.isBroken()) {
+                    // the rest would fail the same way
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return An evaluator from the pool, waiting for one to become available, which is replaced if it is broken.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private Evaluator takeEvaluator() throws InterruptedException {
+        Evaluator evaluator = this.pool.take();
+        return evaluator.isBroken() ? this.replace(evaluator) : evaluator;
+    }
+
+    /**
+     * Returns an evaluator to the pool, resetting it so that the bindings of one program do not pile up in it.
+     * @param evaluator The evaluator, which is replaced if it is broken or can not be reset.
+     * @throws InterruptedException if interrupted while returning it.
+     */
+    private void release(Evaluator evaluator) throws InterruptedException {
+        boolean usable = !evaluator.isBroken();
+        if (usable) {
+            try {
+                evaluator.reset();
+            } catch (HaskellException e) {
+                usable = false;
+            }
+        }
+
+        this.pool.put(usable ? evaluator : this.replace(evaluator));
+    }
+
+    /**
+     * @param broken An evaluator that stopped working, which is closed.
+     * @return A new evaluator, or the broken one if starting a new one failed, to try again when it is next used.
+     */
+    private Evaluator replace(Evaluator broken) {
+        try {
+            broken.close();
+        } catch (HaskellException e) {
+            // it is not working anyway
+        }
+
+        try {
+            return this.factory.call();
+        } catch (Exception e) {
+            BatchRunner.logger.warning("Could not start a new evaluator: " + e.getMessage());
+            return broken;
+        }
+    }
+
+    /** @return The number of evaluators, which is the number of programs that can run at the same time. */
+    public int getPoolSize() {
+        return this.poolSize;
+    }
+
+    /** Closes all evaluators, waiting for the files that are running to finish or time out. */
+    public void close() throws HaskellException, InterruptedException {
+        for (int i = 0; i < this.poolSize; i++) {
+            this.pool.take().close();
+        }
+        this.watchdog.shutdownNow();
+    }
+
+    /** @return The catalog of the backend in the preferences, together with the user catalogs. */
+    static HaskellCatalog loadCatalog() {
+        return new HaskellCatalog(GhciSession.catalogPathFor(GhciSession.pickBackend()), GhciSession.pickUserCatalogs());
+    }
+
+    /** @return Starts a new evaluator of the backend in the preferences. */
+    static Callable<Evaluator> evaluatorStarter() {
+        GhciSession.Backend backend = GhciSession.pickBackend();
+        return () -> GhciSession.evaluatorFactory(backend);
+    }
+
+    /**
+     * Starts evaluators in parallel, as starting one takes a while.
+     * @param count The number of evaluators to start.
+     * @param executor The executor to start them on.
+     * @return The evaluators of the backend in the preferences.
+     * @throws ExecutionException if an evaluator could not be started.
+     */
+    static List<Evaluator> startEvaluators(int count, ExecutorService executor) throws InterruptedException, ExecutionException {
+        List<Callable<Evaluator>> starts = Collections.nCopies(count, BatchRunner.evaluatorStarter());
+
+        List<Evaluator> evaluators = new ArrayList<>();
+        for (Future<Evaluator> started : executor.invokeAll(starts)) {
+            evaluators.add(started.get());
+        }
+
+        return evaluators;
+    }
+
+    /**
+     * @param paths Files and directories.
+     * @return The files, and the .viskell files found in the directories, in a fixed order.
+     * @throws IOException if a directory can not be read.
+     */
+    static List<Path> findFiles(List<Path> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> found = Files.walk(path)) {
+                    files.addAll(found.filter(p -> p.toString().endsWith(".viskell")).sorted().collect(Collectors.toList()));
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        return files;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int evaluators = Runtime.getRuntime().availableProcessors();
+        int steps = DEFAULT_STEPS;
+        int timeout = DEFAULT_TIMEOUT;
+        Path output = null;
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-j".equals(args[i]) && i + 1 < args.length) {
+                evaluators = Integer.parseInt(args[++i]);
+            } else if ("-s".equals(args[i]) && i + 1 < args.length) {
+                steps = Integer.parseInt(args[++i]);
+            } else if ("-t".equals(args[i]) && i + 1 < args.length) {
+                timeout = Integer.parseInt(args[++i]);
+            } else if ("-o".equals(args[i]) && i + 1 < args.length) {
+                output = Paths.get(args[++i]);
+            } else {
+                paths.add(Paths.get(args[i]));
+            }
+        }
+
+        if (paths.isEmpty() || evaluators < 1) {
+            System.err.println("Usage: BatchRunner [-j <evaluators>] [-s <steps>] [-t <timeout in seconds>] [-o <output file>] <file or directory>...");
+            System.exit(1);
+        }
+
+        List<Path> files = BatchRunner.findFiles(paths);
+        evaluators = Math.max(1, Math.min(evaluators, files.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(evaluators);
+
+        try {
+            BatchRunner runner = new BatchRunner(BatchRunner.loadCatalog(), BatchRunner.startEvaluators(evaluators, executor),
+                    BatchRunner.evaluatorStarter(), steps, timeout * 1000L);
+            long start = System.nanoTime();
+            List<Future<Map<String, Object>>> pending = new ArrayList<>();
+            for (Path file : files) {
+                pending.add(executor.submit(() -> runner.run(file)));
+            }
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (Future<Map<String, Object>> result : pending) {
+                results.add(result.get());
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            runner.close();
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("files", files.size());
+            report.put("evaluators", evaluators);
+            report.put("seconds", seconds);
+            report.put("filesPerSecond", files.size() / seconds);
+            report.put("results", results);
+
+            Gson gson = new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create();
+            if (output != null) {
+                try (Writer out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                    gson.toJson(report, out);
+                }
+            } else {
+                System.out.println(gson.toJson(report));
+            }
+
+            System.err.println(String.format("Ran %d files in %.2f s, %.1f files per second", files.size(), seconds, files.size() / seconds));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package nl.utwente.viskell.ghcj;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import nl.utwente.viskell.haskell.env.Environment;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates a catalog of all functions exported by a list of modules, by asking the running backend with :browse.
+ * The :browse commands are sent in a single batch, and the resulting catalog file is cached on disk,
+ * keyed by the compiler version and the module list, so that it only needs to be generated once.
+ */
+public class CatalogGenerator {
+    /** Logger for this class. */
+    private static final Logger logger = Logger.getLogger(CatalogGenerator.class.getName());
+
+    /** The version of the generated files, to be increased whenever the generator output changes. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Expression for the compiler name and version, to key the cache on. */
+    private static final String VERSION_QUERY = "System.Info.compilerName ++ \" \" ++ Data.Version.showVersion System.Info.compilerVersion";
+
+    /** A signature line, with an optionally qualified name or operator in parentheses, and the type. */
+    private static final Pattern SIGNATURE = Pattern.compile("^\\s*((?:[A-Z][\\w']*\\.)*[a-z_][\\w']*|\\((?:[A-Z][\\w']*\\.)*[^\\s()\\w]+\\)) :: (.+)$");
+
+    /** The head of a class declaration, with the class name and its type variable. */
+    private static final Pattern CLASS_HEAD = Pattern.compile("^class\\s+(?:.*=>\\s*)?([A-Z][\\w']*)\\s+\\(?([a-z][\\w']*)");
+
+    /** The module qualification of a name in a type. */
+    private static final Pattern QUALIFIER = Pattern.compile("(?<![\\w'.])(?:[A-Z][\\w']*\\.)+(?=[A-Za-z_])");
+
+    /** The session to query. */
+    private final GhciSession ghci;
+
+    /** The modules to generate the catalog for. */
+    private final List<String> modules;
+
+    /** The directory for the cached catalog files. */
+    private final Path cacheDir;
+
+    /**
+     * @param ghci The session to query, which must be running.
+     * @param modules The modules to generate the catalog for.
+     * @param cacheDir The directory for the cached catalog files.
+     */
+    public CatalogGenerator(GhciSession ghci, List<String> modules, Path cacheDir) {
+        this.ghci = ghci;
+        this.modules = ImmutableList.copyOf(modules);
+        this.cacheDir = cacheDir;
+    }
+
+    /** @return the default directory for cached catalog files, in the home directory of the user. */
+    public static Path defaultCacheDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".viskell", "catalogs");
+    }
+
+    /**
+     * Returns the catalog file for the modules, generating it first if it is not in the cache yet.
+     * This blocks until the backend has answered, so should not be called from the UI thread.
+     * @param env The environment used for checking the generated signatures.
+     * @return The catalog file.
+     * @throws HaskellException when the backend can not be queried.
+     * @throws IOException when the catalog file can not be written.
+     */
+    public Path generate(Environment env) throws HaskellException, IOException {
+        try {
+            String version = this.ghci.pullRaw(VERSION_QUERY).get();
+            Path file = this.cacheDir.resolve(CatalogGenerator.cacheKey(version, this.modules) + ".xml");
+            if (Files.isRegularFile(file)) {
+                return file;
+            }
+
+            List<String> commands = new ArrayList<>();
+            for (String module : this.modules) {
+                commands.add(":browse " + module);
+            }
+
+            List<String> outputs = this.ghci.pullBatch(commands).get();
+            Map<String, Map<String, String>> categories = new LinkedHashMap<>();
+            for (int i = 0; i < this.modules.size(); i++) {
+                String module = this.modules.get(i);
+                String output = outputs.get(i).trim();
+                if (output.startsWith("<")) {
+                    // errors are reported with a location, such as <interactive> or <no location info>
+                    CatalogGenerator.logger.warning("Could not browse module " + module + ": " + output);
+                    continue;
+                }
+
+                Map<String, String> functions = new LinkedHashMap<>();
+                CatalogGenerator.parseBrowse(output).forEach((name, signature) -> {
+                    try {
+                        env.buildType(signature);
+                        functions.put(name, signature);
+                    } catch (RuntimeException e) {
+                        // types the type checker does not support, such as rank-n types
+                        CatalogGenerator.logger.fine("Skipping " + name + " :: " + signature);
+                    }
+                });
+                categories.put(module, functions);
+            }
+
+            Files.createDirectories(this.cacheDir);
+            Path temp = Files.createTempFile(this.cacheDir, "catalog", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                CatalogGenerator.writeCatalog(out, categories);
+            }
+            // move it in place at once, so that a concurrently starting instance never sees a partial file
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return file;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new HaskellException(e);
+        }
+    }
+
+    /**
+     * @param version The compiler name and version.
+     * @param modules The modules to generate the catalog for.
+     * @return the name of the cache file for the combination.
+     */
+    static String cacheKey(String version, List<String> modules) {
+        String key = FORMAT_VERSION + "\n" + version + "\n" + Joiner.on(' ').join(modules);
+        return Hashing.sha1().hashString(key, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * Extracts the function signatures from the output of :browse.
+     * Class methods get the class constraint added, and module qualifiers are removed from the names and types.
+     * @param output The output of a :browse command.
+     * @return A mapping of function names to their type signatures, in order of appearance.
+     */
+    static Map<String, String> parseBrowse(String output) {
+        // first join the lines that are continued on the next, more indented, line
+        List<String> lines = new ArrayList<>();
+        int indent = 0;
+        for (String line : output.split("\\r?\\n")) {
+            int lineIndent = line.length() - line.replaceAll("^\\s+", "").length();
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            int last = lines.size() - 1;
+            if (last >= 0 && lineIndent > indent && lines.get(last).contains(" ::") && !lines.get(last).startsWith("class ")) {
+                lines.set(last, lines.get(last) + " " + line.trim());
+            } else {
+                lines.add(line);
+                indent = lineIndent;
+            }
+        }
+
+        Map<String, String> signatures = new LinkedHashMap<>();
+        String classConstraint = null;
+        for (String line : lines) {
+            boolean nested = Character.isWhitespace(line.charAt(0));
+            if (!nested) {
+                Matcher head = CLASS_HEAD.matcher(line);
+                classConstraint = head.find() ? head.group(1) + " " + head.group(2) : null;
+            }
+
+            Matcher sig = SIGNATURE.matcher(line);
+            if (!sig.matches() || (nested && classConstraint == null)) {
+                continue;
+            }
+
+            String name = sig.group(1).replaceFirst("^(\\(?)(?:[A-Z][\\w']*\\.)+", "$1");
+            String type = QUALIFIER.matcher(sig.group(2).trim()).replaceAll("");
+            if (nested) {
+                type = CatalogGenerator.addConstraint(classConstraint, type);
+            }
+
+            signatures.putIfAbsent(name, type);
+        }
+
+        return signatures;
+    }
+
+    /**
+     * @param constraint The constraint to add.
+     * @param type A type signature, possibly with constraints already.
+     * @return The type signature with the extra constraint.
+     */
+    private static String addConstraint(String constraint, String type) {
+        int arrow = type.indexOf("=>");
+        if (arrow < 0) {
+            return constraint + " => " + type;
+        }
+
+        String context = type.substring(0, arrow).trim();
+        if (context.startsWith("(") && context.endsWith(")")) {
+            context = context.substring(1, context.length() - 1);
+        }
+
+        return "(" + constraint + ", " + context + ") =>" + type.substring(arrow + 2);
+    }
+
+    /**
+     * Writes a catalog in the XML catalog format, with a category per module.
+     * @param out The stream to write to.
+     * @param categories The function signatures by name, per category.
+     * @throws IOException when writing fails.
+     */
+    static void writeCatalog(OutputStream out, Map<String, Map<String, String>> categories) throws IOException {
+        try {
+            XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeStartElement("catalog");
+            xml.writeAttribute("version", "0.4");
+            xml.writeStartElement("functions");
+            for (Map.Entry<String, Map<String, String>> category : categories.entrySet()) {
+                xml.writeStartElement("category");
+                xml.writeAttribute("name", category.getKey());
+                for (Map.Entry<String, String> function : category.getValue().entrySet()) {
+                    xml.writeStartElement("function");
+                    xml.writeAttribute("name", function.getKey());
+                    xml.writeAttribute("signature", function.getValue());
+                    xml.writeCharacters("Generated from module " + category.getKey() + ".");
+                    xml.writeEndElement();
+                }
+                xml.writeEndElement();
+            }
+            xml.writeEndElement();
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+}
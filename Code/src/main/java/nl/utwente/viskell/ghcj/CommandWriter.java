@@ -0,0 +1,148 @@
+package nl.utwente.viskell.ghcj;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+
+/**
+ * Encodes commands straight into the stream to the interpreter, so that generated code does not first have to be
+ * collected in a String and then copied into a byte array. The encoder and its buffers are reused for every command.
+ *
+ * Characters are buffered until the buffer is full or the command is finished, so finish must be called after every command,
+ * or abort if generating the command failed.
+ * Not to be used from multiple threads.
+ */
+final class CommandWriter implements Appendable {
+    /** The number of characters buffered before encoding them. */
+    private static final int BUFFER_SIZE = 4096;
+
+    /** The stream to the interpreter. */
+    private final OutputStream out;
+
+    /** The reusable encoder. */
+    private final CharsetEncoder encoder;
+
+    /** The characters not encoded yet. */
+    private final CharBuffer chars;
+
+    /** The encoded bytes not written yet. */
+    private final ByteBuffer bytes;
+
+    /** The number of bytes written for the current command. */
+    private long size;
+
+    /**
+     * @param out The stream to the interpreter.
+     * @param charset The encoding of the stream.
+     */
+    CommandWriter(OutputStream out, Charset charset) {
+        this.out = out;
+        // invalid characters are replaced, like String.getBytes does
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate(BUFFER_SIZE);
+        this.bytes = ByteBuffer.allocate((int) Math.ceil(BUFFER_SIZE * this.encoder.maxBytesPerChar()));
+        this.size = 0;
+    }
+
+    @Override
+    public CommandWriter append(CharSequence csq) throws IOException {
+        return this.append(csq, 0, csq.length());
+    }
+
+    @Override
+    public CommandWriter append(CharSequence csq, int start, int end) throws IOException {
+        int pos = start;
+        while (pos < end) {
+            if (!this.chars.hasRemaining()) {
+                this.encode(false);
+            }
+
+            int n = Math.min(end - pos, this.chars.remaining());
+            if (csq instanceof String) {
+                this.chars.put((String) csq, pos, pos + n);
+            } else {
+                for (int i = pos; i < pos + n; i++) {
+                    this.chars.put(csq.charAt(i));
+                }
+            }
+            pos += n;
+        }
+
+        return this;
+    }
+
+    @Override
+    public CommandWriter append(char c) throws IOException {
+        if (!this.chars.hasRemaining()) {
+            this.encode(false);
+        }
+
+        this.chars.put(c);
+        return this;
+    }
+
+    /**
+     * Writes out the rest of the current command, without flushing the stream, and starts a new one.
+     * @return The size of the finished command in bytes.
+     * @throws IOException when writing to the stream fails.
+     */
+    long finish() throws IOException {
+        this.encode(true);
+        while (this.encoder.flush(this.bytes).isOverflow()) {
+            this.writeBytes();
+        }
+        this.writeBytes();
+        this.encoder.reset();
+
+        long finished = this.size;
+        this.size = 0;
+        return finished;
+    }
+
+    /**
+     * Discards the rest of the current command, after generating it failed, and starts a new one.
+     * @return Whether part of the command has been written to the stream already.
+     */
+    boolean abort() {
+        boolean written = this.size > 0;
+        this.chars.clear();
+        this.bytes.clear();
+        this.encoder.reset();
+        this.size = 0;
+        return written;
+    }
+
+    /**
+     * Encodes the buffered characters, writing the bytes to the stream whenever the byte buffer is full.
+     * @param endOfInput Whether the command ends with the buffered characters.
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        this.chars.flip();
+        while (true) {
+            CoderResult result = this.encoder.encode(this.chars, this.bytes, endOfInput);
+            if (result.isOverflow()) {
+                this.writeBytes();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        // a high surrogate at the end stays behind until its other half arrives
+        this.chars.compact();
+    }
+
+    /** Writes the encoded bytes to the stream. */
+    private void writeBytes() throws IOException {
+        this.out.write(this.bytes.array(), 0, this.bytes.position());
+        this.size += this.bytes.position();
+        this.bytes.clear();
+    }
+}
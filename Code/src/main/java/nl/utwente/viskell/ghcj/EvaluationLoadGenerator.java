@@ -0,0 +1,130 @@
+package nl.utwente.viskell.ghcj;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command line tool that measures the throughput of an EvaluationServer, by posting the same program from a number
+ * of concurrent clients, each sending its next request as soon as the previous one is answered.
+ * <p>
+ * Usage: {@code EvaluationLoadGenerator [-c <clients>] [-n <requests>] [-u <url>] <file>}
+ * </p>
+ */
+public final class EvaluationLoadGenerator {
+
+    /**
+     * Private constructor - this class only has a main method.
+     */
+    private EvaluationLoadGenerator() {
+    }
+
+    /**
+     * Posts a program and reads the whole reply.
+     * @param url The evaluation address of the server.
+     * @param program The program in the format of a .viskell file.
+     * @return The HTTP status code of the reply.
+     * @throws IOException if the server can not be reached.
+     */
+    private static int post(URL url, byte[] program) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(program);
+        }
+
+        int status = connection.getResponseCode();
+        InputStream reply = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (reply != null) {
+            try (InputStream in = reply) {
+                ByteStreams.copy(in, ByteStreams.nullOutputStream());
+            }
+        }
+
+        return status;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = 4;
+        int requests = 100;
+        String url = "http://localhost:" + EvaluationServer.DEFAULT_PORT + EvaluationServer.EVALUATE_PATH;
+        String file = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("-c".equals(args[i]) && i + 1 < args.length) {
+                clients = Integer.parseInt(args[++i]);
+            } else if ("-n".equals(args[i]) && i + 1 < args.length) {
+                requests = Integer.parseInt(args[++i]);
+            } else if ("-u".equals(args[i]) && i + 1 < args.length) {
+                url = args[++i];
+            } else {
+                file = args[i];
+            }
+        }
+
+        if (file == null || clients < 1) {
+            System.err.println("Usage: EvaluationLoadGenerator [-c <clients>] [-n <requests>] [-u <url>] <file>");
+            System.exit(1);
+        }
+
+        byte[] program = Files.readAllBytes(Paths.get(file));
+        URL target = new URL(url);
+        AtomicInteger remaining = new AtomicInteger(requests);
+        AtomicInteger refused = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long start = System.nanoTime();
+        List<Future<?>> running = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            running.add(executor.submit(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    long sent = System.nanoTime();
+                    try {
+                        int status = EvaluationLoadGenerator.post(target, program);
+                        if (status == 503) {
+                            refused.incrementAndGet();
+                        } else if (status != 200) {
+                            failed.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                    }
+                    latencies.add(System.nanoTime() - sent);
+                }
+            }));
+        }
+
+        for (Future<?> client : running) {
+            client.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.println(String.format(Locale.US, "%d requests from %d clients in %.2f s: %.1f requests per second, %d refused, %d failed",
+                sorted.size(), clients, seconds, sorted.size() / seconds, refused.get(), failed.get()));
+        if (!sorted.isEmpty()) {
+            System.out.println(String.format(Locale.US, "latency in ms: median %.1f, 90%% %.1f, 99%% %.1f, max %.1f",
+                    sorted.get(sorted.size() / 2) / 1e6, sorted.get(sorted.size() * 9 / 10) / 1e6,
+                    sorted.get(sorted.size() * 99 / 100) / 1e6, sorted.get(sorted.size() - 1) / 1e6));
+        }
+    }
+}
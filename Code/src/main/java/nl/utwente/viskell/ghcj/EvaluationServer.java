@@ -0,0 +1,183 @@
+package nl.utwente.viskell.ghcj;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import nl.utwente.viskell.ui.serialize.Importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+/**
+ * Local HTTP service that evaluates Viskell programs for other tools on the same machine, without the editor.
+ * A program is posted to {@code /evaluate} in the format of a .viskell file, and the reply holds the inferred types
+ * and the results of all its sinks, in the same form as the results of the BatchRunner.
+ * <p>
+ * The evaluators are started once and kept warm between requests, and are reset after each request. At most as many
+ * requests as there are evaluators run at the same time, a bounded number more wait for an evaluator, and any further
+ * requests are refused with status 503 right away. A program that does not finish within the timeout is stopped,
+ * together with its evaluator, and answered with status 504.
+ * </p>
+ * <p>
+ * Usage: {@code EvaluationServer [-p <port>] [-j <evaluators>] [-q <queue size>] [-s <steps>] [-t <timeout in seconds>]}
+ * </p>
+ */
+public final class EvaluationServer {
+    /** The default port, on the loopback address. */
+    public static final int DEFAULT_PORT = 8123;
+
+    /** The path at which programs are evaluated. */
+    public static final String EVALUATE_PATH = "/evaluate";
+
+    /** The threads that are not waiting for an evaluator, to answer the requests that are refused. */
+    private static final int SPARE_THREADS = 2;
+
+    private static final Logger logger = Logger.getLogger(EvaluationServer.class.getName());
+
+    /** The runner evaluating the programs. */
+    private final BatchRunner runner;
+
+    /** The permits for the requests that are running or waiting for an evaluator. */
+    private final Semaphore admission;
+
+    /** The underlying HTTP server. */
+    private final HttpServer server;
+
+    /** The threads handling the requests. */
+    private final ExecutorService handlers;
+
+    private final Gson gson;
+
+    /**
+     * @param runner The runner evaluating the programs.
+     * @param port The port to listen on, on the loopback address.
+     * @param queueSize The number of requests that may wait for an evaluator.
+     * @throws IOException if the port can not be used.
+     */
+    public EvaluationServer(BatchRunner runner, int port, int queueSize) throws IOException {
+        this.runner = runner;
+        this.admission = new Semaphore(runner.getPoolSize() + queueSize);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.handlers = Executors.newFixedThreadPool(runner.getPoolSize() + queueSize + SPARE_THREADS);
+        this.gson = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+        this.server.createContext(EVALUATE_PATH, this::handle);
+        this.server.setExecutor(this.handlers);
+    }
+
+    /** Starts accepting requests. */
+    public void start() {
+        this.server.start();
+        logger.info("Evaluating programs at http://" + this.server.getAddress().getHostString() + ":" + this.getPort() + EVALUATE_PATH);
+    }
+
+    /** @return The port this server listens on. */
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /** Stops accepting requests, and closes the evaluators when the running requests have finished or timed out. */
+    public void stop() throws HaskellException, InterruptedException {
+        this.server.stop(0);
+        this.handlers.shutdown();
+        this.runner.close();
+    }
+
+    /**
+     * Evaluates a posted program, or refuses the request if too many are waiting.
+     * @param exchange The request and its response.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                this.reply(exchange, 405, ImmutableMap.of("error", "Post a program to evaluate"));
+            } else if (!this.admission.tryAcquire()) {
+                this.reply(exchange, 503, ImmutableMap.of("error", "Too many requests waiting"));
+            } else {
+                try (InputStream in = exchange.getRequestBody()) {
+                    Map<String, Object> layers = Importer.readLayers(in);
+                    Map<String, Object> result = this.runner.run(layers);
+                    if (Boolean.TRUE.equals(result.get("timedOut"))) {
+                        result.put("error", "Evaluation took too long");
+                        this.reply(exchange, 504, result);
+                    } else {
+                        this.reply(exchange, 200, result);
+                    }
+                } catch (RuntimeException e) {
+                    this.reply(exchange, 400, ImmutableMap.of("error", String.valueOf(e.getMessage())));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    this.reply(exchange, 503, ImmutableMap.of("error", "Shutting down"));
+                } finally {
+                    this.admission.release();
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @param exchange The request to reply to.
+     * @param status The HTTP status code.
+     * @param body The reply, to be written as JSON.
+     */
+    private void reply(HttpExchange exchange, int status, Map<String, Object> body) throws IOException {
+        byte[] bytes = this.gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = DEFAULT_PORT;
+        int evaluators = Runtime.getRuntime().availableProcessors();
+        int queueSize = 4 * evaluators;
+        int steps = BatchRunner.DEFAULT_STEPS;
+        int timeout = BatchRunner.DEFAULT_TIMEOUT;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            int value = Integer.parseInt(args[i + 1]);
+            switch (args[i]) {
+                case "-p": port = value; break;
+                case "-j": evaluators = value; break;
+                case "-q": queueSize = value; break;
+                case "-s": steps = value; break;
+                case "-t": timeout = value; break;
+                default:
+                    System.err.println("Usage: EvaluationServer [-p <port>] [-j <evaluators>] [-q <queue size>] [-s <steps>] [-t <timeout in seconds>]");
+                    System.exit(1);
+            }
+        }
+
+        ExecutorService starter = Executors.newFixedThreadPool(evaluators);
+        BatchRunner runner;
+        try {
+            runner = new BatchRunner(BatchRunner.loadCatalog(), BatchRunner.startEvaluators(evaluators, starter),
+                    BatchRunner.evaluatorStarter(), steps, timeout * 1000L);
+        } finally {
+            starter.shutdown();
+        }
+
+        EvaluationServer server = new EvaluationServer(runner, port, queueSize);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.stop();
+            } catch (HaskellException | InterruptedException e) {
+                e.printStackTrace();
+            }
+        }));
+        server.start();
+    }
+}
@@ -3,12 +3,15 @@ package nl.utwente.viskell.ghcj;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import nl.utwente.viskell.haskell.expr.Expression;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -27,6 +30,9 @@ abstract public class Evaluator {
     /** All communication is done over UTF_8. */
     protected static final Charset UTF_8 = StandardCharsets.UTF_8;
 
+    /** The ghci process. */
+    private Process process;
+
     /** Raw input stream for result data from ghci to the application. */
     protected InputStream in;
 
@@ -36,26 +42,35 @@ abstract public class Evaluator {
     /** A newline character. */
     protected final String NL;
 
+    /** Encoder for everything sent to ghci, reused for every command. */
+    private CommandWriter writer;
+
+    /** The size in bytes of the last command sent to ghci, or of all commands sent together by evalAll. */
+    private long lastCommandSize;
+
+    /** Whether the communication with ghci has failed, after which its state is unknown. */
+    private volatile boolean broken;
+
     public Evaluator() throws HaskellException {
         this.NL = System.getProperty("line.separator");
 
         try {
             /* The ghci process to use. */
-            Process process = new ProcessBuilder(getCommand())
+            this.process = new ProcessBuilder(getCommand())
                     .redirectErrorStream(true)
                     .start();
 
-            this.in = process.getInputStream();
-            this.out = process.getOutputStream();
+            this.in = this.process.getInputStream();
+            this.out = this.process.getOutputStream();
         } catch (IOException io) {
             // Try an alternative ghci command if available.
             List<String> altCommand = this.getAltCommand();
             if (! altCommand.isEmpty()) {
                 try {
-                    Process process = new ProcessBuilder(altCommand).redirectErrorStream(true).start();
+                    this.process = new ProcessBuilder(altCommand).redirectErrorStream(true).start();
 
-                    this.in = process.getInputStream();
-                    this.out = process.getOutputStream();
+                    this.in = this.process.getInputStream();
+                    this.out = this.process.getOutputStream();
                 } catch (IOException io2) {
                     throw new HaskellException(io2);
                 }
@@ -64,6 +79,8 @@ abstract public class Evaluator {
             }
         }
 
+        this.writer = new CommandWriter(this.out, UTF_8);
+
         /* Make it so that GHCi prints a null byte to its standard output when
            it expects input. By setting the prompt to a zero byte, GHCi will
            print a zero byte whenever it expects the user (that's us) to enter
@@ -93,6 +110,24 @@ abstract public class Evaluator {
         }
     }
 
+    /**
+     * Forgets all bindings made so far, which ghci keeps even when they are shadowed, and loads the modules again.
+     * @throws HaskellException when ghci fails to reset, after which this evaluator should not be used anymore.
+     */
+    public final void reset() throws HaskellException {
+        this.eval(":load");
+        this.eval(":module " + Joiner.on(" ").join(getModules()));
+    }
+
+    /**
+     * Stops ghci right away, such as when an evaluation takes too long. May be called from any thread.
+     * An evaluation that is waiting for ghci fails, and the evaluator is broken afterwards.
+     */
+    public final void kill() {
+        this.broken = true;
+        this.process.destroyForcibly();
+    }
+
     /**
      * Evaluates a Haskell expression and wait for it to compute.
      *
@@ -101,25 +136,133 @@ abstract public class Evaluator {
      * @throws HaskellException when ghci is not ready to evaluate, or expression can not be computed.
      */
     public final String eval(final String cmd) throws HaskellException {
-        StringBuilder responseBuilder = new StringBuilder();
+        return this.checkResponse(this.evalAll(ImmutableList.of(cmd)).get(0));
+    }
 
+    /**
+     * Evaluates a Haskell expression and wait for it to compute.
+     * The code is encoded straight into the stream to ghci while it is generated, without building it as a string first.
+     *
+     * @param prefix Text to send in front of the expression, such as the start of a let binding.
+     * @param expr The expression to evaluate.
+     * @return the result, including newline, as a string.
+     * @throws HaskellException when ghci is not ready to evaluate, or expression can not be computed.
+     */
+    public final String eval(final String prefix, final Expression expr) throws HaskellException {
+        return this.eval(out -> {
+            out.append(prefix);
+            expr.toHaskell(out);
+        });
+    }
+
+    /**
+     * Evaluates a command that is generated straight into the stream to ghci, and wait for it to compute.
+     *
+     * @param command The command to send.
+     * @return the result, including newline, as a string.
+     * @throws HaskellException when ghci is not ready to evaluate, or the command fails.
+     */
+    public final String eval(final Command command) throws HaskellException {
         try {
-            // Send the expression to ghci.
-            this.out.write(cmd.getBytes(UTF_8));
+            try {
+                command.writeTo(this.writer);
+                this.writer.append('\n');
+                this.lastCommandSize = this.writer.finish();
+            } catch (RuntimeException e) {
+                this.abortCommand();
+                throw new HaskellException(e);
+            }
+            this.out.flush();
+
+            return this.checkResponse(this.readResponse());
+        } catch (IOException e) {
+            this.writer.abort();
+            this.broken = true;
+            throw new HaskellException(e);
+        }
+    }
+
+    /**
+     * Drops a command of which generating the code failed. If part of it has been sent already, that part is ended
+     * with a newline and the error ghci answers it with is skipped, so that the next command starts on a fresh line.
+     * @throws IOException when communication with ghci fails.
+     */
+    private void abortCommand() throws IOException {
+        if (this.writer.abort()) {
             this.out.write('\n');
             this.out.flush();
+            this.readResponse();
+        }
+    }
+
+    /**
+     * Sends a number of commands in one go, and then collects their responses.
+     * This avoids a round trip per command, but unlike eval the responses are not checked for errors.
+     *
+     * @param cmds The (complete) commands, each on a single line.
+     * @return the raw response for every command, in the same order.
+     * @throws HaskellException when communication with ghci fails.
+     */
+    public final List<String> evalAll(final List<String> cmds) throws HaskellException {
+        List<String> responses = new ArrayList<>(cmds.size());
+
+        try {
+            // Send all commands to ghci, it will answer them one by one.
+            long size = 0;
+            for (String cmd : cmds) {
+                this.writer.append(cmd).append('\n');
+                size += this.writer.finish();
+            }
+            this.lastCommandSize = size;
+            this.out.flush();
 
-            // Wait for the sentinel.
-            int input;
-            while ((input = this.in.read()) != 0) {
-                responseBuilder.append((char) input);
+            // Wait for a sentinel per command.
+            for (int i = 0; i < cmds.size(); i++) {
+                responses.add(this.readResponse());
             }
         } catch (IOException e) {
+            this.writer.abort();
+            this.broken = true;
             throw new HaskellException(e);
         }
 
-        String response = responseBuilder.toString();
+        return responses;
+    }
+
+    /** @return the size in bytes of the last command sent to ghci including the newline, or the total size of the commands sent together by the last evalAll. */
+    public final long getLastCommandSize() {
+        return this.lastCommandSize;
+    }
+
+    /** @return whether communication with ghci has failed, so that this evaluator should be replaced by a new one. */
+    public final boolean isBroken() {
+        return this.broken;
+    }
+
+    /**
+     * Reads the response to a single command, up to the sentinel.
+     * @return the raw response.
+     * @throws IOException when ghci closed the connection.
+     */
+    private String readResponse() throws IOException {
+        ByteArrayOutputStream responseBytes = new ByteArrayOutputStream();
+        int input;
+        while ((input = this.in.read()) != 0) {
+            if (input < 0) {
+                throw new IOException("ghci closed the connection");
+            }
+            responseBytes.write(input);
+        }
+
+        return new String(responseBytes.toByteArray(), UTF_8);
+    }
 
+    /**
+     * @param response The raw response to a command.
+     * @return the same response.
+     * @throws HaskellException when the response looks like an error or exception.
+     */
+    private String checkResponse(final String response) throws HaskellException {
         // Check for hints that something went wrong
         // To do: Make this better
 
@@ -145,6 +288,18 @@ abstract public class Evaluator {
         return response;
     }
 
+    /**
+     * A single line command that writes itself to ghci while it is generated.
+     */
+    @FunctionalInterface
+    public interface Command {
+        /**
+         * @param out The destination of the command, without the final newline.
+         * @throws IOException if writing fails.
+         */
+        void writeTo(Appendable out) throws IOException;
+    }
+
     /** @return the command and arguments for the subprocess. */
     protected abstract List<String> getCommand();
 
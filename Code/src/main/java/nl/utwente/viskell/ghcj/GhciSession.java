@@ -1,24 +1,36 @@
 package nl.utwente.viskell.ghcj;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
 import com.google.common.collect.EvictingQueue;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 import nl.utwente.viskell.haskell.env.Environment;
 import nl.utwente.viskell.haskell.env.HaskellCatalog;
 import nl.utwente.viskell.haskell.expr.Expression;
+import nl.utwente.viskell.haskell.expr.Optimizer;
+import nl.utwente.viskell.haskell.expr.SharedBindings;
 import nl.utwente.viskell.haskell.type.Type;
 import nl.utwente.viskell.ui.Main;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.AbstractMap;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.logging.Logger;
 import java.util.prefs.Preferences;
 
 /**
@@ -27,17 +39,23 @@ import java.util.prefs.Preferences;
  * Public methods are safe to use from multiple threads.
  */
 public class GhciSession extends AbstractExecutionThreadService {
-    /** Work queue. */
-    private ArrayBlockingQueue<AbstractMap.SimpleEntry<String, SettableFuture<String>>> queue;
+    /** Work queue, of tasks to run with the evaluator. */
+    private ArrayBlockingQueue<Consumer<Evaluator>> queue;
 
     /** Stuff this into the work queue to stop running. */
-    private final static String POISON = null;
+    private final static Consumer<Evaluator> POISON = evaluator -> {};
 
     /** The evaluator this GhciSession will communicate with. */
     private Evaluator ghci;
 
-    /** Gets filled with a HaskellCatalog instance when ghci is ready. */
-    private static HaskellCatalog catalog;
+    /** Logger for this class. */
+    private static final Logger logger = Logger.getLogger(GhciSession.class.getName());
+
+    /** Gets filled with a HaskellCatalog instance when ghci is ready, and replaced once a generated catalog is merged in. */
+    private static volatile HaskellCatalog catalog;
+
+    /** The path of the bundled catalog for the backend. */
+    private final String catalogPath;
 
     /** Gets filled with up to LOG_SIZE errors. */
     private EvictingQueue<String> errors;
@@ -60,34 +78,63 @@ public class GhciSession extends AbstractExecutionThreadService {
 
         queue = new ArrayBlockingQueue<>(1024);
         errors = EvictingQueue.create(LOG_SIZE);
-        switch (pickBackend()) {
-            case Clash: 
-                this.catalog = new HaskellCatalog("/catalog/clash.xml");
-                break;
-            default:
-                this.catalog = new HaskellCatalog("/catalog/haskell.xml");
-                break;
+        this.catalogPath = GhciSession.catalogPathFor(pickBackend());
+
+        GhciSession.catalog = new HaskellCatalog(this.catalogPath, pickUserCatalogs());
+        if (pickPreparse()) {
+            GhciSession.catalog.preparseSignatures();
+        }
+
+        if (pickGenerateCatalog()) {
+            this.addListener(new Listener() {
+                @Override
+                public void running() {
+                    Thread generator = new Thread(GhciSession.this::generateCatalog, "catalog-generator");
+                    generator.setDaemon(true);
+                    generator.start();
+                }
+            }, MoreExecutors.directExecutor());
+        }
+    }
+
+    /**
+     * Generates (or takes from the cache) a catalog of the browsed modules, and merges it into the catalog.
+     * The entries of the bundled and user catalogs take precedence over the generated ones.
+     */
+    private void generateCatalog() {
+        List<String> modules = pickBrowseModules(this.ghci);
+        try {
+            CatalogGenerator generator = new CatalogGenerator(this, modules, CatalogGenerator.defaultCacheDirectory());
+            Path file = generator.generate(GhciSession.catalog.asEnvironment());
+            HaskellCatalog merged = new HaskellCatalog(this.catalogPath, pickUserCatalogs(), ImmutableList.of(file.toUri().toURL()));
+            if (pickPreparse()) {
+                merged.preparseSignatures();
+            }
+            GhciSession.catalog = merged;
+        } catch (HaskellException | IOException e) {
+            GhciSession.logger.warning("Could not generate a catalog for " + modules + ": " + e.getMessage());
         }
     }
 
     @Override
     protected void run() throws Exception {
         while (true) {
-            AbstractMap.SimpleEntry<String, SettableFuture<String>> x = queue.take();
+            Consumer<Evaluator> task = queue.take();
 
-            String expr = x.getKey();
-            SettableFuture<String> future = x.getValue();
-
-            if (Objects.equals(expr, POISON)) {
+            if (task == POISON) {
                 // Something wants us to quit - do so.
                 break;
             } else {
-                try {
-                    String result = this.ghci.eval(expr);
-                    future.set(result.trim());
-                } catch (HaskellException e) {
-                    future.setException(e);
-                    errors.add(e.getMessage());
+                task.accept(this.ghci);
+                if (this.ghci.isBroken()) {
+                    // the state of ghci is unknown after communication failed, so continue with a new one
+                    GhciSession.logger.warning("Restarting the evaluator after communication with it failed");
+                    try {
+                        this.startUp();
+                    } catch (HaskellException e) {
+                        // the next task fails on the broken evaluator, and tries again
+                        GhciSession.logger.warning("Could not restart the evaluator: " + e.getMessage());
+                    }
                 }
             }
         }
@@ -99,8 +146,7 @@ public class GhciSession extends AbstractExecutionThreadService {
      * @param func The actual function.
      */
     public ListenableFuture<String> push(final String name, final Expression func) {
-        String let = String.format("let %s = %s", name, func.toHaskell());
-        return pullRaw(let);
+        return pullExpr(String.format("let %s = ", name), func);
     }
 
     /**
@@ -109,7 +155,87 @@ public class GhciSession extends AbstractExecutionThreadService {
      * @return The result of the evaluation.
      */
     public ListenableFuture<String> pull(final Expression expr) {
-        return pullRaw(expr.toHaskell());
+        return pullExpr("", expr);
+    }
+
+    /**
+     * Returns the results of evaluating a number of Haskell expressions together, such as all displays in a refresh.
+     * Let bindings that the expressions share are bound in ghci first, so that the shared part is evaluated only once.
+     * If binding them fails, each expression is evaluated on its own.
+     * @param exprs The expressions to evaluate.
+     * @return The results of the evaluations, in the same order.
+     */
+    public List<ListenableFuture<String>> pullAll(final List<Expression> exprs) {
+        SharedBindings plan = SharedBindings.plan(exprs);
+        if (plan.isEmpty()) {
+            return exprs.stream().map(this::pull).collect(Collectors.toList());
+        }
+
+        // the shared bindings are found before optimizing, as inlining would hide the bindings that the expressions share
+        List<Expression> originals = exprs.stream().map(GhciSession::prepare).collect(Collectors.toList());
+        List<Expression> residuals = plan.getExpressions().stream().map(GhciSession::prepare).collect(Collectors.toList());
+        List<SettableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < exprs.size(); i++) {
+            results.add(SettableFuture.create());
+        }
+
+        this.enqueue(results, evaluator -> {
+            List<Expression> todo = residuals;
+            try {
+                evaluator.eval(plan::bindingsToHaskell);
+                GhciSession.logger.fine("Bound " + plan.size() + " shared bindings in " + evaluator.getLastCommandSize() + " bytes");
+            } catch (HaskellException e) {
+                GhciSession.logger.fine("Could not bind the shared bindings: " + e.getMessage());
+                todo = originals;
+            }
+
+            for (int i = 0; i < todo.size(); i++) {
+                try {
+                    results.get(i).set(evaluator.eval("", todo.get(i)).trim());
+                } catch (HaskellException e) {
+                    results.get(i).setException(e);
+                    errors.add(e.getMessage());
+                }
+            }
+        });
+
+        return ImmutableList.copyOf(results);
+    }
+
+    /**
+     * Evaluates an expression, streaming its code to ghci as it is generated.
+     * @param prefix The text to send in front of the expression.
+     * @param expr The expression to send.
+     * @return The result of the evaluation.
+     */
+    private ListenableFuture<String> pullExpr(final String prefix, final Expression original) {
+        SettableFuture<String> result = SettableFuture.create();
+        Expression expr = GhciSession.prepare(original);
+
+        this.enqueue(result, evaluator -> {
+            try {
+                String response = evaluator.eval(prefix, expr).trim();
+                GhciSession.logger.fine("Sent an expression of " + evaluator.getLastCommandSize() + " bytes");
+                result.set(response);
+            } catch (HaskellException e) {
+                result.setException(e);
+                errors.add(e.getMessage());
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Optimizes an expression if enabled, and fixes the names of its binders, as the caller may bind them again
+     * while the code is being sent.
+     * @param expr The expression to evaluate.
+     * @return The expression to generate the code from.
+     */
+    static Expression prepare(final Expression expr) {
+        Expression result = GhciSession.pickOptimizeExpressions() ? Optimizer.optimize(expr) : expr;
+        result.fingerprint();
+        return result;
     }
 
     /**
@@ -120,15 +246,67 @@ public class GhciSession extends AbstractExecutionThreadService {
      */
     public ListenableFuture<String> pullRaw(final String expr) {
         SettableFuture<String> result = SettableFuture.create();
-        AbstractMap.SimpleEntry<String, SettableFuture<String>> entry = new AbstractMap.SimpleEntry<>(expr, result);
 
+        this.enqueue(result, evaluator -> {
+            try {
+                result.set(evaluator.eval(expr).trim());
+            } catch (HaskellException e) {
+                result.setException(e);
+                errors.add(e.getMessage());
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Returns the raw output of a number of ghci commands, which are sent all at once.
+     * The output is not checked for errors, so this is mainly useful for queries such as :browse.
+     * @param cmds The ghci commands, each on a single line.
+     * @return The output of each command, in the same order.
+     */
+    public ListenableFuture<List<String>> pullBatch(final List<String> cmds) {
+        SettableFuture<List<String>> result = SettableFuture.create();
+
+        this.enqueue(result, evaluator -> {
+            try {
+                result.set(evaluator.evalAll(cmds));
+            } catch (HaskellException e) {
+                result.setException(e);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Adds a task to the work queue.
+     * @param result The future of the task, which fails if it can not be queued.
+     * @param task The task to run with the evaluator.
+     */
+    private void enqueue(SettableFuture<?> result, Consumer<Evaluator> task) {
+        this.enqueue(ImmutableList.of(result), task);
+    }
+
+    /**
+     * Adds a task to the work queue.
+     * @param results The futures of the task, which all fail if it can not be queued or the task fails unexpectedly.
+     * @param task The task to run with the evaluator.
+     */
+    private void enqueue(List<? extends SettableFuture<?>> results, Consumer<Evaluator> task) {
         try {
-            queue.put(entry);
+            queue.put(evaluator -> {
+                try {
+                    task.accept(evaluator);
+                } catch (RuntimeException e) {
+                    // the session thread keeps running, and the futures not set yet get the exception instead
+                    GhciSession.logger.warning("Evaluation task failed: " + e);
+                    results.forEach(result -> result.setException(e));
+                }
+            });
         } catch (InterruptedException e) {
-            result.setException(e);
+            results.forEach(result -> result.setException(e));
         }
-
-        return result;
     }
     
     /**
@@ -154,7 +332,7 @@ public class GhciSession extends AbstractExecutionThreadService {
 
     @Override
     protected void triggerShutdown() {
-        queue.offer(new AbstractMap.SimpleEntry<>(POISON, null));
+        queue.offer(POISON);
     }
 
     /**
@@ -185,7 +363,7 @@ public class GhciSession extends AbstractExecutionThreadService {
     }
 
     /** Build the Evaluator that corresponds to the given Backend identifier. */
-    private Evaluator evaluatorFactory(Backend evaluator) throws HaskellException {
+    static Evaluator evaluatorFactory(Backend evaluator) throws HaskellException {
         switch (evaluator) {
             case GHCi:  return new GhciEvaluator();
             case Clash: return new ClashEvaluator();
@@ -193,6 +371,14 @@ public class GhciSession extends AbstractExecutionThreadService {
         }
     }
 
+    /** @return the resource path of the bundled catalog for the given Backend identifier. */
+    static String catalogPathFor(Backend evaluator) {
+        switch (evaluator) {
+            case Clash: return "/catalog/clash.xml";
+            default:    return "/catalog/haskell.xml";
+        }
+    }
+
     /** @return the Backend in the preferences, or GHCi otherwise. */
     public static Backend pickBackend() {
         Preferences prefs = Preferences.userNodeForPackage(Main.class);
@@ -200,6 +386,51 @@ public class GhciSession extends AbstractExecutionThreadService {
         return Backend.valueOf(name);
     }
 
+    /** @return the extra catalog files listed in the preferences, separated by the platform path separator. */
+    public static List<URL> pickUserCatalogs() {
+        Preferences prefs = Preferences.userNodeForPackage(Main.class);
+        List<URL> catalogs = new ArrayList<>();
+        for (String file : Splitter.on(File.pathSeparator).omitEmptyStrings().trimResults().split(prefs.get("catalogs", ""))) {
+            try {
+                catalogs.add(Paths.get(file).toUri().toURL());
+            } catch (MalformedURLException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return catalogs;
+    }
+
+    /** @return whether the catalog signatures should be parsed in the background right after startup. */
+    public static boolean pickPreparse() {
+        Preferences prefs = Preferences.userNodeForPackage(Main.class);
+        return prefs.getBoolean("preparseSignatures", true);
+    }
+
+    /** @return whether a catalog should be generated for the browsed modules after startup. */
+    public static boolean pickGenerateCatalog() {
+        Preferences prefs = Preferences.userNodeForPackage(Main.class);
+        return prefs.getBoolean("generateCatalog", true);
+    }
+
+    /** @return whether expressions are optimized before they are sent, which can be switched off for debugging. */
+    public static boolean pickOptimizeExpressions() {
+        Preferences prefs = Preferences.userNodeForPackage(Main.class);
+        return prefs.getBoolean("optimizeExpressions", true);
+    }
+
+    /**
+     * @param evaluator The running evaluator, of which the loaded modules are the default.
+     * @return the modules listed in the preferences for generating a catalog, separated by spaces.
+     */
+    private static List<String> pickBrowseModules(Evaluator evaluator) {
+        Preferences prefs = Preferences.userNodeForPackage(Main.class);
+        List<String> defaults = new ArrayList<>();
+        defaults.add("Prelude");
+        defaults.addAll(evaluator.getModules());
+        return Splitter.on(' ').omitEmptyStrings().splitToList(prefs.get("browseModules", Joiner.on(' ').join(defaults)));
+    }
+
     /** @return the available backend identifiers. */
     public static List<Backend> getBackends() {
         return Lists.newArrayList(EnumSet.allOf(Backend.class));
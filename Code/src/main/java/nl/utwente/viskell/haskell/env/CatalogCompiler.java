@@ -0,0 +1,54 @@
+package nl.utwente.viskell.haskell.env;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Build time tool that compiles XML catalogs into binary snapshots, so that the application does not need
+ * to parse and validate the XML and all type signatures on every start. Next to each XML catalog it writes
+ * the checksum of that catalog, with which the application checks that the snapshot is up to date.
+ * <p>
+ * Usage: {@code CatalogCompiler <output directory> <catalog path>...}, where the catalog paths are resource paths
+ * such as {@code /catalog/haskell.xml}.
+ * </p>
+ */
+public final class CatalogCompiler {
+
+    /**
+     * Private constructor - this class only has a main method.
+     */
+    private CatalogCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CatalogCompiler <output directory> <catalog path>...");
+            System.exit(1);
+        }
+
+        Path outputDir = Paths.get(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            String xmlPath = args[i];
+            HaskellCatalog catalog = new HaskellCatalog(xmlPath, false);
+            URL xmlFile = HaskellCatalog.class.getResource(xmlPath);
+            long checksum = CatalogSnapshot.checksum(xmlFile);
+            Path target = outputDir.resolve(CatalogSnapshot.pathFor(xmlPath).substring(1));
+            Files.createDirectories(target.getParent());
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+                catalog.toSnapshot().write(out, CatalogSnapshot.lengthOf(xmlFile), checksum);
+            }
+
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(outputDir.resolve(CatalogSnapshot.checksumPathFor(xmlPath).substring(1))))) {
+                out.writeLong(checksum);
+            }
+
+            System.out.println("Compiled catalog " + xmlPath + " with " + catalog.size() + " functions into " + target);
+        }
+    }
+}
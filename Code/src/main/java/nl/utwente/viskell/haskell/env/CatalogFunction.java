@@ -3,6 +3,8 @@ package nl.utwente.viskell.haskell.env;
 import com.google.common.base.MoreObjects;
 import nl.utwente.viskell.ghcj.GhciSession;
 import nl.utwente.viskell.haskell.type.Type;
+import nl.utwente.viskell.haskell.type.TypeArena;
+import nl.utwente.viskell.haskell.typeparser.TypeBuilder;
 import nl.utwente.viskell.ui.Main;
 import nl.utwente.viskell.ui.serialize.Bundleable;
 
@@ -11,6 +13,8 @@ import java.util.Map;
 
 /**
  * A function entry in the Haskell catalog.
+ * The type signature can be kept as text, to be parsed on first use, as most entries are never used in a session.
+ * Parsed signatures are kept in the TypeArena of the catalog, instead of as a graph of objects per entry.
  */
 public class CatalogFunction extends FunctionInfo implements Comparable<CatalogFunction> {
     /** The category this function belongs to. */
@@ -24,19 +28,78 @@ public class CatalogFunction extends FunctionInfo implements Comparable<CatalogF
 
     /** Whether this function is common **/
     private final boolean isCommon;
+
+    /** The store of the type signature, which is shared with other entries. */
+    private final TypeArena arena;
+
+    /** The handle of the type signature in the arena, or -1 if it has not been parsed yet. */
+    private volatile int signature;
+
+    /** The textual type signature, only used until it is parsed. */
+    private String signatureText;
+
+    /** The builder for parsing the textual type signature, only used until it is parsed. */
+    private TypeBuilder builder;
     
     /**
      * @param name The function name.
      * @param category The category this function belongs to.
+     * @param arena The store for the type signature.
      * @param signature The type signature for this function.
      * @param documentation The documentation for this function.
      */
-    CatalogFunction(String name, String category, Type signature, String documentation, boolean isConstructor, boolean isCommon) {
-        super(name, signature);
+    CatalogFunction(String name, String category, TypeArena arena, Type signature, String documentation, boolean isConstructor, boolean isCommon) {
+        super(name);
         this.category = category;
         this.documentation = documentation;
         this.isConstructor = isConstructor;
         this.isCommon = isCommon;
+        this.arena = arena;
+        this.signature = signature == null ? -1 : arena.intern(signature);
+    }
+
+    /**
+     * @param name The function name.
+     * @param category The category this function belongs to.
+     * @param signatureText The textual type signature for this function, parsed on first use.
+     * @param builder The builder to parse the signature with, which may be shared with other entries.
+     * @param arena The store for the type signature once it is parsed.
+     * @param documentation The documentation for this function.
+     */
+    CatalogFunction(String name, String category, String signatureText, TypeBuilder builder, TypeArena arena, String documentation, boolean isConstructor, boolean isCommon) {
+        this(name, category, arena, null, documentation, isConstructor, isCommon);
+        this.signatureText = signatureText;
+        this.builder = builder;
+    }
+
+    @Override
+    protected final Type getSignature() {
+        int handle = this.signature;
+        if (handle < 0) {
+            synchronized (this) {
+                handle = this.signature;
+                if (handle < 0) {
+                    handle = this.arena.intern(this.builder.build(this.signatureText));
+                    this.signature = handle;
+                    // the text is no longer needed, and the builder may hold on to a lot of type classes
+                    this.signatureText = null;
+                    this.builder = null;
+                }
+            }
+        }
+
+        return this.arena.instantiate(handle);
+    }
+
+    @Override
+    public final Type getFreshSignature() {
+        // every signature taken from the arena is fresh already
+        return this.getSignature();
+    }
+
+    /** @return Whether the type signature of this function has been parsed already. */
+    public final boolean isSignatureParsed() {
+        return this.signature >= 0;
     }
 
     @Override
@@ -93,4 +156,9 @@ public class CatalogFunction extends FunctionInfo implements Comparable<CatalogF
         return isConstructor;
     }
 
+    /** @return Whether this function is marked as commonly used. */
+    public boolean isCommon() {
+        return isCommon;
+    }
+
 }
@@ -0,0 +1,280 @@
+package nl.utwente.viskell.haskell.env;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable name search index over the functions of a catalog.
+ * The index is built once when the catalog loads, and combines a sorted name table for prefix lookups
+ * with n-gram posting lists for substring and fuzzy (subsequence) matching.
+ */
+final class CatalogIndex {
+
+    /** The longest n-gram that gets its own posting list. */
+    private static final int MAX_GRAM = 3;
+
+    /** Score for a name that is identical to the query. */
+    private static final int EXACT_SCORE = 1000;
+
+    /** Score for a name that starts with the query. */
+    private static final int PREFIX_SCORE = 800;
+
+    /** Score for a name containing the query at the start of a word. */
+    private static final int WORD_SCORE = 600;
+
+    /** Score for a name containing the query anywhere. */
+    private static final int SUBSTRING_SCORE = 400;
+
+    /** Score for a name containing all the query characters in order. */
+    private static final int FUZZY_SCORE = 200;
+
+    /** Bonus for functions that are marked as commonly used. */
+    private static final int COMMON_BONUS = 60;
+
+    /** Bonus for functions in a category whose name starts with the query. */
+    private static final int CATEGORY_BONUS = 100;
+
+    /** All functions sorted on their exact name, which is also the order the posting lists refer to. */
+    private final CatalogFunction[] entries;
+
+    /** The names of the functions in entries, in the same order. */
+    private final String[] names;
+
+    /** The lower case names of the functions in entries, in the same order. */
+    private final String[] keys;
+
+    /** Mapping of every n-gram (up to MAX_GRAM) of the lower case names to an ascending array of entry positions. */
+    private final Map<String, int[]> postings;
+
+    /**
+     * @param functions the functions to build the index for.
+     */
+    CatalogIndex(Collection<CatalogFunction> functions) {
+        this.entries = functions.toArray(new CatalogFunction[functions.size()]);
+        Arrays.sort(this.entries, Comparator.comparing(CatalogFunction::getName));
+        this.names = new String[this.entries.length];
+        this.keys = new String[this.entries.length];
+        Map<String, List<Integer>> grams = new HashMap<>();
+        for (int i = 0; i < this.entries.length; i++) {
+            this.names[i] = this.entries[i].getName();
+            String key = this.names[i].toLowerCase(Locale.ROOT);
+            this.keys[i] = key;
+            Set<String> seen = new HashSet<>();
+            for (int n = 1; n <= MAX_GRAM; n++) {
+                for (int j = 0; j + n <= key.length(); j++) {
+                    String gram = key.substring(j, j + n);
+                    if (seen.add(gram)) {
+                        grams.computeIfAbsent(gram, g -> new ArrayList<>()).add(i);
+                    }
+                }
+            }
+        }
+
+        this.postings = new HashMap<>(grams.size() * 2);
+        grams.forEach((gram, positions) -> this.postings.put(gram, positions.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * @param prefix the exact (case sensitive) start of the function names.
+     * @return all functions whose name begins with the prefix, in name order.
+     */
+    List<CatalogFunction> withPrefix(String prefix) {
+        int start = Arrays.binarySearch(this.names, prefix);
+        if (start < 0) {
+            start = -start - 1;
+        }
+
+        List<CatalogFunction> result = new ArrayList<>();
+        for (int i = start; i < this.names.length && this.names[i].startsWith(prefix); i++) {
+            result.add(this.entries[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Searches for functions by name, ranking exact, prefix, substring and fuzzy matches in that order.
+     * Commonly used functions and functions in a category matching the query are ranked higher.
+     * @param query the (case insensitive) text to search for.
+     * @param limit the maximum number of results.
+     * @return the best matching functions, best first.
+     */
+    List<CatalogFunction> search(String query, int limit) {
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<Match> matches = new ArrayList<>();
+        int[] candidates = this.substringCandidates(q);
+        for (int i : candidates) {
+            int pos = this.keys[i].indexOf(q);
+            if (pos >= 0) {
+                matches.add(new Match(i, this.score(i, q, pos)));
+            }
+        }
+
+        if (matches.size() < limit) {
+            Set<Integer> found = new HashSet<>();
+            matches.forEach(m -> found.add(m.position));
+            for (int i : this.charCandidates(q)) {
+                if (!found.contains(i)) {
+                    int gaps = subsequenceGaps(this.keys[i], q);
+                    if (gaps >= 0) {
+                        matches.add(new Match(i, this.bonus(i, q) + FUZZY_SCORE - Math.min(gaps, FUZZY_SCORE / 2)));
+                    }
+                }
+            }
+        }
+
+        matches.sort((a, b) -> a.score != b.score ? Integer.compare(b.score, a.score) : this.keys[a.position].compareTo(this.keys[b.position]));
+
+        List<CatalogFunction> result = new ArrayList<>(Math.min(limit, matches.size()));
+        for (Match m : matches.subList(0, Math.min(limit, matches.size()))) {
+            result.add(this.entries[m.position]);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param q the lower case query.
+     * @return the positions of all entries that might contain q as substring.
+     */
+    private int[] substringCandidates(String q) {
+        if (q.length() <= MAX_GRAM) {
+            return this.postings.getOrDefault(q, new int[0]);
+        }
+
+        int[] result = null;
+        for (int j = 0; j + MAX_GRAM <= q.length(); j++) {
+            int[] list = this.postings.get(q.substring(j, j + MAX_GRAM));
+            if (list == null) {
+                return new int[0];
+            }
+            result = result == null ? list : intersect(result, list);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param q the lower case query.
+     * @return the positions of all entries that contain every character of q.
+     */
+    private int[] charCandidates(String q) {
+        int[] result = null;
+        for (int j = 0; j < q.length(); j++) {
+            int[] list = this.postings.get(q.substring(j, j + 1));
+            if (list == null) {
+                return new int[0];
+            }
+            result = result == null ? list : intersect(result, list);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param i the entry position.
+     * @param q the lower case query.
+     * @param pos the position of the query in the name of the entry.
+     * @return the ranking score of the entry for a substring match.
+     */
+    private int score(int i, String q, int pos) {
+        String key = this.keys[i];
+        int base;
+        if (pos == 0) {
+            base = key.length() == q.length() ? EXACT_SCORE : PREFIX_SCORE;
+        } else if (!Character.isLetterOrDigit(key.charAt(pos - 1)) || Character.isUpperCase(this.entries[i].getName().charAt(pos))) {
+            base = WORD_SCORE;
+        } else {
+            base = SUBSTRING_SCORE;
+        }
+
+        return base + this.bonus(i, q);
+    }
+
+    /**
+     * @param i the entry position.
+     * @param q the lower case query.
+     * @return the part of the score independent of how the name matched.
+     */
+    private int bonus(int i, String q) {
+        CatalogFunction fn = this.entries[i];
+        int bonus = fn.isCommon() ? COMMON_BONUS : 0;
+        if (fn.getCategory().toLowerCase(Locale.ROOT).startsWith(q)) {
+            bonus += CATEGORY_BONUS;
+        }
+
+        // prefer short names, as they leave less unmatched
+        return bonus - Math.min(this.keys[i].length() - q.length(), COMMON_BONUS / 2);
+    }
+
+    /**
+     * @param key the name to match.
+     * @param q the query.
+     * @return the number of skipped characters when matching q as subsequence of key, or -1 if it does not match.
+     */
+    private static int subsequenceGaps(String key, String q) {
+        int gaps = 0;
+        int k = 0;
+        for (int j = 0; j < q.length(); j++) {
+            char c = q.charAt(j);
+            while (k < key.length() && key.charAt(k) != c) {
+                k++;
+                gaps++;
+            }
+            if (k == key.length()) {
+                return -1;
+            }
+            k++;
+        }
+
+        return gaps;
+    }
+
+    /**
+     * @return the intersection of two ascending arrays.
+     */
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(out, n);
+    }
+
+    /** A scored search hit. */
+    private static final class Match {
+        /** The entry position. */
+        private final int position;
+
+        /** The ranking score, higher is better. */
+        private final int score;
+
+        private Match(int position, int score) {
+            this.position = position;
+            this.score = score;
+        }
+    }
+}
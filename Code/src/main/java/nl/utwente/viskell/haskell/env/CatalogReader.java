@@ -0,0 +1,327 @@
+package nl.utwente.viskell.haskell.env;
+
+import nl.utwente.viskell.haskell.type.Type;
+import nl.utwente.viskell.haskell.type.TypeArena;
+import nl.utwente.viskell.haskell.type.TypeClass;
+import nl.utwente.viskell.haskell.type.TypeCon;
+import nl.utwente.viskell.haskell.typeparser.TypeBuilder;
+
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stax.StAXSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streaming reader for XML catalogs, merging one or more catalog files into a single set of entries.
+ * Elements are processed while they are read, so apart from the resulting entries the memory use does not
+ * depend on the size of the files. Function signatures are kept as text and only parsed when first used.
+ * Entries from a later file replace the entries by the same name from earlier files.
+ * <p>
+ * The structure of the files is described by catalog.xsd. The bundled catalogs are validated against it at build time,
+ * other catalogs can be validated when they are loaded.
+ * </p>
+ */
+final class CatalogReader {
+
+    /** The factory for the underlying XML stream readers. */
+    private static final XMLInputFactory factory = XMLInputFactory.newInstance();
+
+    static {
+        // catalogs are plain data, so do not let them refer to anything else
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /** The compiled catalog schema, once it is needed. */
+    private static Schema schema;
+
+    /** The data types read so far, by name. */
+    private final Map<String, DataTypeInfo> datatypes;
+
+    /** The type classes read so far, by name. */
+    private final Map<String, TypeClass> classes;
+
+    /** The functions read so far, by name. */
+    private final Map<String, CatalogFunction> functions;
+
+    /** The builder for type signatures shared by all entries, using the type classes read so far. */
+    private final TypeBuilder builder;
+
+    /** The builder for data constructor signatures, which can not have type class constraints. */
+    private final TypeBuilder plainBuilder;
+
+    /** The store for the function signatures, once parsed. */
+    private final TypeArena arena;
+
+    /** The number of catalog files merged so far. */
+    private int fileCount;
+
+    /**
+     * @param arena The store for the function signatures, which belongs to the catalog being read.
+     */
+    CatalogReader(TypeArena arena) {
+        this.datatypes = new HashMap<>();
+        this.classes = new HashMap<>();
+        this.functions = new LinkedHashMap<>();
+        this.builder = new TypeBuilder(this.classes);
+        this.plainBuilder = new TypeBuilder(new HashMap<>());
+        this.arena = arena;
+        this.fileCount = 0;
+    }
+
+    /**
+     * Merges the contents of a compiled catalog snapshot.
+     * @param snapshot The snapshot to add.
+     */
+    void add(CatalogSnapshot snapshot) {
+        this.datatypes.putAll(snapshot.datatypes);
+        this.classes.putAll(snapshot.classes);
+        for (CatalogFunction fn : snapshot.functions) {
+            this.functions.put(fn.getName(), fn);
+        }
+        this.fileCount++;
+    }
+
+    /**
+     * Reads a catalog file and merges its entries.
+     * If the file turns out to be invalid, the entries read before the error are kept.
+     * @param file The catalog XML file.
+     * @throws IOException if the file can not be read or is not a valid catalog.
+     */
+    void read(URL file) throws IOException {
+        this.read(file, true);
+    }
+
+    /**
+     * Reads a catalog file and merges its entries.
+     * If the file turns out to be invalid, the entries read before the error are kept.
+     * @param file The catalog XML file.
+     * @param replace Whether entries replace those by the same name read before, instead of only adding missing ones.
+     * @throws IOException if the file can not be read or is not a valid catalog.
+     */
+    void read(URL file, boolean replace) throws IOException {
+        if (file == null) {
+            throw new IOException("catalog file not found");
+        }
+
+        try (InputStream in = file.openStream()) {
+            XMLStreamReader xml = factory.createXMLStreamReader(in);
+            try {
+                this.readCatalog(xml, replace);
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            throw new IOException("could not read or parse catalog file " + file, e);
+        }
+
+        this.fileCount++;
+    }
+
+    /**
+     * Checks a catalog file against the catalog schema, without merging its entries.
+     * @param file The catalog XML file.
+     * @throws IOException if the file can not be read or does not match the schema.
+     */
+    void validate(URL file) throws IOException {
+        if (file == null) {
+            throw new IOException("catalog file not found");
+        }
+
+        try (InputStream in = file.openStream()) {
+            XMLStreamReader xml = factory.createXMLStreamReader(in);
+            try {
+                CatalogReader.getSchema().newValidator().validate(new StAXSource(xml));
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException | SAXException e) {
+            throw new IOException("catalog file " + file + " does not match " + HaskellCatalog.XSD_PATH + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** @return The compiled catalog schema. */
+    private static synchronized Schema getSchema() throws SAXException {
+        if (CatalogReader.schema == null) {
+            SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            CatalogReader.schema = schemaFactory.newSchema(HaskellCatalog.class.getResource(HaskellCatalog.XSD_PATH));
+        }
+
+        return CatalogReader.schema;
+    }
+
+    /**
+     * Processes all elements of a catalog, one at a time.
+     * @param xml The reader positioned at the start of the document.
+     * @param replace Whether entries replace those by the same name read before.
+     */
+    private void readCatalog(XMLStreamReader xml, boolean replace) throws XMLStreamException {
+        DataTypeInfo datatype = null;
+        TypeClass typeClass = null;
+        String category = null;
+
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "class".equals(xml.getLocalName()) && typeClass != null) {
+                // a class is only available to others after it is complete, as before it can't be its own superclass
+                if (replace || !this.classes.containsKey(typeClass.getName())) {
+                    this.classes.put(typeClass.getName(), typeClass);
+                }
+                typeClass = null;
+            }
+
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+
+            switch (xml.getLocalName()) {
+                case "datatype":
+                    String name = required(xml, "name");
+                    int typeArity = Integer.parseInt(optional(xml, "typeArity", "0"));
+                    boolean builtin = flag(xml, "builtin");
+                    datatype = new DataTypeInfo(Type.con(name), typeArity, builtin);
+                    if (replace || !this.datatypes.containsKey(name)) {
+                        this.datatypes.put(name, datatype);
+                    }
+                    break;
+
+                case "constructor":
+                    if (datatype == null) {
+                        throw new XMLStreamException("constructor outside of a datatype", xml.getLocation());
+                    }
+                    datatype.addConstructor(required(xml, "name"), this.plainBuilder.build(required(xml, "signature")));
+                    break;
+
+                case "class":
+                    typeClass = new TypeClass(required(xml, "name"));
+                    String def = xml.getAttributeValue(null, "default");
+                    if (def != null) {
+                        Type dt = this.builder.build(def);
+                        if (dt instanceof TypeCon) {
+                            typeClass.setDefaultType((TypeCon) dt);
+                        }
+                    }
+                    break;
+
+                case "superClass":
+                    String superName = required(xml, "name");
+                    TypeClass sc = this.classes.get(superName);
+                    if (sc == null || typeClass == null) {
+                        throw new XMLStreamException("Can't resolve superclass " + superName, xml.getLocation());
+                    }
+                    typeClass.addSuperClass(sc);
+                    break;
+
+                case "instance":
+                    if (typeClass == null) {
+                        throw new XMLStreamException("instance outside of a class", xml.getLocation());
+                    }
+                    Type it = this.builder.build(required(xml, "name"));
+                    if (it instanceof TypeCon) {
+                        typeClass.addInstance((TypeCon) it, Integer.parseInt(optional(xml, "constrainedArgs", "0")));
+                    }
+                    break;
+
+                case "category":
+                    category = required(xml, "name");
+                    break;
+
+                case "function":
+                    if (category == null) {
+                        throw new XMLStreamException("function outside of a category", xml.getLocation());
+                    }
+                    String fname = required(xml, "name");
+                    String signature = required(xml, "signature");
+                    boolean isConstructor = flag(xml, "isConstructor");
+                    boolean isCommon = flag(xml, "isCommon");
+                    // reading the documentation text also consumes the end of the function element
+                    String documentation = collapse(xml.getElementText());
+                    if (replace || !this.functions.containsKey(fname)) {
+                        this.functions.put(fname, new CatalogFunction(fname, category, signature, this.builder, this.arena, documentation, isConstructor, isCommon));
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return The text with its whitespace collapsed as for the xs:token documentation in the schema.
+     */
+    private static String collapse(String text) {
+        return text.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * @return The value of a required attribute of the current element.
+     * @throws XMLStreamException if the attribute is missing.
+     */
+    private static String required(XMLStreamReader xml, String attribute) throws XMLStreamException {
+        String value = xml.getAttributeValue(null, attribute);
+        if (value == null) {
+            throw new XMLStreamException("missing attribute " + attribute + " of " + xml.getLocalName(), xml.getLocation());
+        }
+
+        return value;
+    }
+
+    /**
+     * @return The value of an attribute of the current element, or the given default if it is missing.
+     */
+    private static String optional(XMLStreamReader xml, String attribute, String defaultValue) {
+        String value = xml.getAttributeValue(null, attribute);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * @return The value of an optional xs:boolean attribute of the current element, false if it is missing.
+     * @throws XMLStreamException if the value is not one of the xs:boolean literals.
+     */
+    private static boolean flag(XMLStreamReader xml, String attribute) throws XMLStreamException {
+        String value = optional(xml, attribute, "false").trim();
+        switch (value) {
+            case "true":
+            case "1":
+                return true;
+            case "false":
+            case "0":
+                return false;
+            default:
+                throw new XMLStreamException("invalid boolean " + value + " for attribute " + attribute + " of " + xml.getLocalName(), xml.getLocation());
+        }
+    }
+
+    /** @return The data types by name. */
+    Map<String, DataTypeInfo> getDataTypes() {
+        return this.datatypes;
+    }
+
+    /** @return The type classes by name. */
+    Map<String, TypeClass> getClasses() {
+        return this.classes;
+    }
+
+    /** @return The functions by name. */
+    Map<String, CatalogFunction> getFunctions() {
+        return this.functions;
+    }
+
+    /** @return The number of catalog files merged. */
+    int getFileCount() {
+        return this.fileCount;
+    }
+}
@@ -0,0 +1,244 @@
+package nl.utwente.viskell.haskell.env;
+
+import com.google.common.io.ByteStreams;
+import nl.utwente.viskell.haskell.type.Type;
+import nl.utwente.viskell.haskell.type.TypeArena;
+import nl.utwente.viskell.haskell.type.TypeClass;
+import nl.utwente.viskell.haskell.type.TypeCodec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * The contents of a catalog in a compact binary form, with all types already parsed.
+ * Snapshots are compiled from the XML catalogs at build time by the CatalogCompiler,
+ * and are tied to the exact XML file they were compiled from by its length and checksum.
+ * The checksum is computed at build time and stored in a small file next to the XML file,
+ * so that checking whether a snapshot is up to date does not require reading the whole XML file.
+ */
+final class CatalogSnapshot {
+
+    /** The first bytes of every snapshot file. */
+    private static final int MAGIC = 0x56534b43;
+
+    /** The version of the snapshot format, to be increased on every incompatible change. */
+    private static final int VERSION = 2;
+
+    /** The data types by name. */
+    final Map<String, DataTypeInfo> datatypes;
+
+    /** The type classes by name. */
+    final Map<String, TypeClass> classes;
+
+    /** All functions. */
+    final List<CatalogFunction> functions;
+
+    /**
+     * @param datatypes The data types by name.
+     * @param classes The type classes by name.
+     * @param functions All functions.
+     */
+    CatalogSnapshot(Map<String, DataTypeInfo> datatypes, Map<String, TypeClass> classes, List<CatalogFunction> functions) {
+        this.datatypes = datatypes;
+        this.classes = classes;
+        this.functions = functions;
+    }
+
+    /**
+     * @param xmlPath The path to the catalog XML file.
+     * @return The path of the snapshot compiled from that file.
+     */
+    static String pathFor(String xmlPath) {
+        return xmlPath.replaceFirst("\\.xml$", "") + ".bin";
+    }
+
+    /**
+     * @param xmlPath The path to the catalog XML file.
+     * @return The path of the file holding the checksum of that file.
+     */
+    static String checksumPathFor(String xmlPath) {
+        return xmlPath + ".crc";
+    }
+
+    /**
+     * @param xmlFile The catalog XML file.
+     * @return The checksum of the contents of the file, which reads the whole file so it is only used at build time.
+     * @throws IOException if the file can not be read.
+     */
+    static long checksum(URL xmlFile) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = xmlFile.openStream()) {
+            crc.update(ByteStreams.toByteArray(in));
+        }
+
+        return crc.getValue();
+    }
+
+    /**
+     * @param file A resource.
+     * @return The size of the resource in bytes, taken from the file system or jar without reading it.
+     * @throws IOException if the size is not known.
+     */
+    static long lengthOf(URL file) throws IOException {
+        long length;
+        if ("file".equals(file.getProtocol())) {
+            try {
+                length = Files.size(Paths.get(file.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        } else {
+            length = file.openConnection().getContentLengthLong();
+        }
+
+        if (length < 0) {
+            throw new IOException("Unknown size of " + file);
+        }
+
+        return length;
+    }
+
+    /**
+     * Tries to load the snapshot compiled from a catalog XML file, memory mapping it if it is a plain file.
+     * @param xmlPath The path to the catalog XML file.
+     * @param arena The store for the function signatures, which belongs to the catalog being loaded.
+     * @return The snapshot, or nothing if it is missing, corrupt or does not match the current XML file.
+     */
+    static Optional<CatalogSnapshot> load(String xmlPath, TypeArena arena) {
+        URL xmlFile = HaskellCatalog.class.getResource(xmlPath);
+        URL binFile = HaskellCatalog.class.getResource(CatalogSnapshot.pathFor(xmlPath));
+        URL checksumFile = HaskellCatalog.class.getResource(CatalogSnapshot.checksumPathFor(xmlPath));
+        if (xmlFile == null || binFile == null || checksumFile == null) {
+            return Optional.empty();
+        }
+
+        try (DataInputStream checksumIn = new DataInputStream(checksumFile.openStream())) {
+            long checksum = checksumIn.readLong();
+            return Optional.of(CatalogSnapshot.read(CatalogSnapshot.map(binFile), CatalogSnapshot.lengthOf(xmlFile), checksum, arena));
+        } catch (IOException | RuntimeException e) {
+            // not fatal, the caller can fall back on the XML file, also when the snapshot is damaged
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param file The file to read.
+     * @return A buffer with the contents of the file, which is memory mapped if possible.
+     */
+    private static ByteBuffer map(URL file) throws IOException {
+        if ("file".equals(file.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(Paths.get(file.toURI()), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+
+        // resources inside a jar can not be mapped, so just read them in one go
+        try (InputStream in = file.openStream()) {
+            return ByteBuffer.wrap(ByteStreams.toByteArray(in));
+        }
+    }
+
+    /**
+     * @param in The buffer with the encoded snapshot.
+     * @param xmlLength The length of the XML file the snapshot should be compiled from.
+     * @param checksum The checksum of the XML file the snapshot should be compiled from.
+     * @param arena The store for the function signatures.
+     * @return The decoded snapshot.
+     * @throws IOException if the snapshot has a different format version, length or checksum.
+     * @throws RuntimeException if the snapshot is corrupt, typically an IllegalArgumentException or BufferUnderflowException.
+     */
+    static CatalogSnapshot read(ByteBuffer in, long xmlLength, long checksum, TypeArena arena) throws IOException {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IOException("Not a catalog snapshot of version " + VERSION);
+        }
+
+        if (in.getLong() != xmlLength || in.getLong() != checksum) {
+            throw new IOException("Catalog snapshot is out of date");
+        }
+
+        Map<String, TypeClass> classes = TypeCodec.readClasses(in);
+
+        int datatypeCount = TypeCodec.readCount(in);
+        Map<String, DataTypeInfo> datatypes = new HashMap<>();
+        for (int i = 0; i < datatypeCount; i++) {
+            String name = TypeCodec.readString(in);
+            int typeArity = in.getInt();
+            boolean builtin = in.get() != 0;
+            DataTypeInfo datatype = new DataTypeInfo(Type.con(name), typeArity, builtin);
+            int constructorCount = TypeCodec.readCount(in);
+            for (int j = 0; j < constructorCount; j++) {
+                String cname = TypeCodec.readString(in);
+                datatype.addConstructor(cname, TypeCodec.readType(in, classes));
+            }
+            datatypes.put(name, datatype);
+        }
+
+        int functionCount = TypeCodec.readCount(in);
+        List<CatalogFunction> functions = new ArrayList<>(functionCount);
+        for (int i = 0; i < functionCount; i++) {
+            String name = TypeCodec.readString(in);
+            String category = TypeCodec.readString(in);
+            String documentation = TypeCodec.readString(in);
+            boolean isConstructor = in.get() != 0;
+            boolean isCommon = in.get() != 0;
+            Type signature = TypeCodec.readType(in, classes);
+            functions.add(new CatalogFunction(name, category, arena, signature, documentation, isConstructor, isCommon));
+        }
+
+        return new CatalogSnapshot(datatypes, classes, functions);
+    }
+
+    /**
+     * @param out The output to write the encoded snapshot to.
+     * @param xmlLength The length of the XML file the snapshot is compiled from.
+     * @param checksum The checksum of the XML file the snapshot is compiled from.
+     */
+    void write(DataOutputStream out, long xmlLength, long checksum) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(xmlLength);
+        out.writeLong(checksum);
+
+        TypeCodec.writeClasses(out, this.classes.values());
+
+        out.writeInt(this.datatypes.size());
+        for (Map.Entry<String, DataTypeInfo> entry : this.datatypes.entrySet()) {
+            DataTypeInfo datatype = entry.getValue();
+            TypeCodec.writeString(out, entry.getKey());
+            out.writeInt(datatype.getTypeArity());
+            out.writeBoolean(datatype.isBuiltin());
+            out.writeInt(datatype.getConstructors().size());
+            for (DataTypeInfo.Constructor constructor : datatype.getConstructors()) {
+                TypeCodec.writeString(out, constructor.getName());
+                TypeCodec.writeType(out, constructor.getType());
+            }
+        }
+
+        out.writeInt(this.functions.size());
+        for (CatalogFunction fn : this.functions) {
+            TypeCodec.writeString(out, fn.getName());
+            TypeCodec.writeString(out, fn.getCategory());
+            TypeCodec.writeString(out, fn.getDocumentation());
+            out.writeBoolean(fn.isConstructor());
+            out.writeBoolean(fn.isCommon());
+            TypeCodec.writeType(out, fn.getSignature());
+        }
+    }
+}
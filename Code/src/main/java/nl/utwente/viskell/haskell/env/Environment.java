@@ -3,37 +3,74 @@ package nl.utwente.viskell.haskell.env;
 import nl.utwente.viskell.ghcj.HaskellException;
 import nl.utwente.viskell.haskell.expr.FunVar;
 import nl.utwente.viskell.haskell.type.Type;
+import nl.utwente.viskell.haskell.type.TypeArena;
 import nl.utwente.viskell.haskell.type.TypeClass;
 import nl.utwente.viskell.haskell.typeparser.TypeBuilder;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Haskell Environment.
+ * An environment is a shared base, typically from the catalog, together with its own local additions.
+ * The base is never copied nor modified, so creating an environment takes constant time.
  */
 public class Environment {
     /**
-     * Map containing the types of function available in the environment.
+     * Map containing the types of function available in the environment, shared with other environments.
      */
-    private Map<String, FunctionInfo> functions;
+    private final Map<String, ? extends FunctionInfo> baseFunctions;
 
     /**
-     * Map containing the type classes by name.
+     * Map containing the functions added to this environment, or null as long as there are none.
+     */
+    private Map<String, FunctionInfo> localFunctions;
+
+    /**
+     * The store for the signatures of the functions added to this environment, or null as long as there are none.
+     */
+    private TypeArena localArena;
+
+    /**
+     * Map containing the type classes by name, shared with other environments until a type class is added.
      */
     private Map<String, TypeClass> typeClasses;
 
     /**
-     * @param functions Map of available functions.
-     * @param typeClasses Map of known type classes.
+     * Whether the map of type classes is owned by this environment, and thus can be modified.
+     */
+    private boolean ownsTypeClasses;
+
+    /**
+     * The builder for type signatures using the type classes, with its cache of parsed signatures.
+     */
+    private TypeBuilder builder;
+
+    /**
+     * @param functions Map of available functions, which is shared and must not be modified afterwards.
+     * @param typeClasses Map of known type classes, which is shared and must not be modified afterwards.
+     */
+    public Environment(Map<String, ? extends FunctionInfo> functions, Map<String, TypeClass> typeClasses) {
+        this(functions, typeClasses, new TypeBuilder(typeClasses));
+    }
+
+    /**
+     * @param functions Map of available functions, which is shared and must not be modified afterwards.
+     * @param typeClasses Map of known type classes, which is shared and must not be modified afterwards.
+     * @param builder The builder for type signatures using the type classes, shared with other environments.
      */
-    public Environment(Map<String, FunctionInfo> functions, Map<String, TypeClass> typeClasses) {
-        this.functions = functions;
+    Environment(Map<String, ? extends FunctionInfo> functions, Map<String, TypeClass> typeClasses, TypeBuilder builder) {
+        this.baseFunctions = functions;
+        this.localFunctions = null;
+        this.localArena = null;
         this.typeClasses = typeClasses;
+        this.ownsTypeClasses = false;
+        this.builder = builder;
     }
 
     public Environment() {
-        this(new HashMap<>(), new HashMap<>());
+        this(Collections.emptyMap(), Collections.emptyMap());
     }
 
     /**
@@ -41,7 +78,14 @@ public class Environment {
      * @return The FunInfo for the given function, or null if it doesn't exist.
      */
     public final FunctionInfo lookupFun(String name) {
-        return this.functions.get(name);
+        if (this.localFunctions != null) {
+            FunctionInfo local = this.localFunctions.get(name);
+            if (local != null) {
+                return local;
+            }
+        }
+
+        return this.baseFunctions.get(name);
     }
 
     /**
@@ -50,8 +94,9 @@ public class Environment {
      * @throws HaskellException if the function can not be found.
      */
     public final FunVar useFun(String name) throws HaskellException {
-        if (this.functions.containsKey(name)) {
-            return new FunVar(this.functions.get(name));
+        FunctionInfo function = this.lookupFun(name);
+        if (function != null) {
+            return new FunVar(function);
         }
         
         throw new HaskellException("Function " + name + " is not in scope");
@@ -59,10 +104,10 @@ public class Environment {
     
     /**
      * @param type The String representation of the type signature
-     * @return Type built using the context of this environment
+     * @return Type built using the context of this environment, parsed only once for repeated signatures
      */
     public final Type buildType(String type) {
-        return new TypeBuilder(this.typeClasses).build(type);
+        return this.builder.buildCached(type);
     }
 
     /**
@@ -78,9 +123,12 @@ public class Environment {
      * @param signature The signature of the expression.
      */
     public final void addTestSignature(String name, String signature) {
-        TypeBuilder builder = new TypeBuilder(this.typeClasses);
-        Type type = builder.build(signature);
-        this.functions.put(name, new CatalogFunction(name, "!TEST!", type, "", false, false));
+        Type type = this.builder.build(signature);
+        if (this.localFunctions == null) {
+            this.localFunctions = new HashMap<>();
+            this.localArena = new TypeArena();
+        }
+        this.localFunctions.put(name, new CatalogFunction(name, "!TEST!", this.localArena, type, "", false, false));
     }
 
     /**
@@ -88,7 +136,14 @@ public class Environment {
      * @param typeclass The type class to add.
      */
     public final void addTypeClass(TypeClass typeclass) {
+        if (!this.ownsTypeClasses) {
+            // copy on first write, the base of type classes is small
+            this.typeClasses = new HashMap<>(this.typeClasses);
+            this.ownsTypeClasses = true;
+        }
         this.typeClasses.put(typeclass.getName(), typeclass);
+        // signatures parsed before may refer to the type class this one replaces
+        this.builder = new TypeBuilder(this.typeClasses);
     }
 
 }
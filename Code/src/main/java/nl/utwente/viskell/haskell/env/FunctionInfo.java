@@ -21,18 +21,16 @@ public abstract class FunctionInfo {
     /** The function name. */
     protected final String name;
     
-    /** The type signature the corresponding function. */
-    protected final Type signature;
-    
     /**
      * @param name The function name.
-     * @param signature The type signature the corresponding function.
      */
-    protected FunctionInfo(String name, Type signature) {
+    protected FunctionInfo(String name) {
         this.name = name;
-        this.signature = signature;
     }
 
+    /** @return The type signature the corresponding function, which must not be modified. */
+    protected abstract Type getSignature();
+
     public abstract Map<String, Object> toBundleFragment();
 
     /** return a new instance of this type deserializing class-specific properties used in constructor **/
@@ -57,13 +55,13 @@ public abstract class FunctionInfo {
     }
 
     /** @return The a fresh copy of type signature of this function. */
-    public final Type getFreshSignature() {
-        return this.signature.getFresh();
+    public Type getFreshSignature() {
+        return this.getSignature().getFresh();
     }
     
     /** @return the number of argument this function can take. */
     public int argumentCount() {
-        return this.signature.countArguments();
+        return this.getSignature().countArguments();
     }
 
 }
@@ -1,29 +1,27 @@
 package nl.utwente.viskell.haskell.env;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
 import nl.utwente.viskell.haskell.type.*;
 import nl.utwente.viskell.haskell.typeparser.TypeBuilder;
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.validation.SchemaFactory;
+
 import java.io.IOException;
 import java.net.URL;
 import java.util.*;
 import java.util.function.Predicate;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
  * Haskell catalog containing available type classes and functions.
  */
 public class HaskellCatalog {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = Logger.getLogger(HaskellCatalog.class.getName());
+
     private Map<String, DataTypeInfo> datatypes;
     
     private Map<String, TypeClass> classes;
@@ -32,35 +30,126 @@ public class HaskellCatalog {
 
     private Multimap<String, CatalogFunction> categories;
 
+    /** Read-only view of the functions, shared by all environments based on this catalog. */
+    private Map<String, FunctionInfo> functionsView;
+
+    /** Read-only view of the type classes, shared by all environments based on this catalog. */
+    private Map<String, TypeClass> classesView;
+
+    /** The builder for type signatures using the type classes, with its cache shared by all environments based on this catalog. */
+    private TypeBuilder builder;
+
+    /** The name search index over all functions. */
+    private CatalogIndex index;
+
+    /** Summary of the loaded catalog files, entry counts and load time. */
+    private final String loadReport;
+
     /** Default path to the XML file. */
     public static final String XML_PATH = "/catalog/haskell.xml";
 
-    /** Default path to the XSD file. */
+    /** Default path to the XSD file describing the catalog format. */
     public static final String XSD_PATH = "/catalog/catalog.xsd";
 
     /**
      * Constructs a Haskell catalog using the given file location.
+     * A snapshot compiled from the file at build time is used when available and up to date.
      * @param path The path to the catalog XML file.
      */
     public HaskellCatalog(final String path) {
-        this.functions = new HashMap<>();
-        this.categories = HashMultimap.create();
+        this(path, ImmutableList.of(), ImmutableList.of(), true);
+    }
+
+    /**
+     * Constructs a Haskell catalog using the given file location, merged with extra catalog files.
+     * A snapshot compiled from the file at build time is used when available and up to date.
+     * @param path The path to the catalog XML file.
+     * @param extraCatalogs Additional catalog XML files, of which the entries replace those by the same name.
+     */
+    public HaskellCatalog(final String path, final List<URL> extraCatalogs) {
+        this(path, extraCatalogs, ImmutableList.of(), true);
+    }
+
+    /**
+     * Constructs a Haskell catalog using the given file location, merged with extra and generated catalog files.
+     * A snapshot compiled from the file at build time is used when available and up to date.
+     * @param path The path to the catalog XML file.
+     * @param extraCatalogs Additional catalog XML files, of which the entries replace those by the same name.
+     * @param generatedCatalogs Generated catalog XML files, of which the entries only add what the others lack.
+     */
+    public HaskellCatalog(final String path, final List<URL> extraCatalogs, final List<URL> generatedCatalogs) {
+        this(path, extraCatalogs, generatedCatalogs, true);
+    }
 
-        Document doc = getDocument(path, HaskellCatalog.XSD_PATH);
+    /**
+     * Constructs a Haskell catalog using the given file location.
+     * @param path The path to the catalog XML file.
+     * @param useSnapshot Whether a compiled snapshot may be used instead of parsing the XML file.
+     */
+    HaskellCatalog(final String path, final boolean useSnapshot) {
+        this(path, ImmutableList.of(), ImmutableList.of(), useSnapshot);
+    }
 
-        NodeList dataNodes = doc.getElementsByTagName("datatype");
-        NodeList classNodes = doc.getElementsByTagName("class");
-        NodeList functionNodes = doc.getElementsByTagName("function");
+    /**
+     * Constructs a Haskell catalog using the given file location, merged with extra and generated catalog files.
+     * @param path The path to the catalog XML file.
+     * @param extraCatalogs Additional catalog XML files, of which the entries replace those by the same name.
+     * @param generatedCatalogs Generated catalog XML files, of which the entries only add what the others lack.
+     * @param useSnapshot Whether a compiled snapshot may be used instead of parsing the XML file.
+     */
+    private HaskellCatalog(final String path, final List<URL> extraCatalogs, final List<URL> generatedCatalogs, final boolean useSnapshot) {
+        long startTime = System.nanoTime();
+        // the signatures are stored in an arena of this catalog, so that they are dropped together with it
+        TypeArena arena = new TypeArena();
+        CatalogReader reader = new CatalogReader(arena);
 
-        this.datatypes = this.parseDataType(dataNodes);
-        this.classes = this.parseClasses(classNodes);
+        Optional<CatalogSnapshot> snapshot = useSnapshot ? CatalogSnapshot.load(path, arena) : Optional.empty();
+        try {
+            if (snapshot.isPresent()) {
+                reader.add(snapshot.get());
+            } else {
+                reader.read(HaskellCatalog.class.getResource(path));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("could not read or parse catalog file", e);
+        }
 
-        Set<CatalogFunction> entries = this.parseFunctions(functionNodes, this.classes);
-      
-        for (CatalogFunction entry : entries) {
-            this.functions.put(entry.getName(), entry);
+        for (URL extra : extraCatalogs) {
+            try {
+                reader.validate(extra);
+                reader.read(extra);
+            } catch (IOException e) {
+                // a broken user supplied catalog should not prevent using the rest
+                HaskellCatalog.logger.warning(e.getMessage());
+            }
+        }
+
+        for (URL generated : generatedCatalogs) {
+            try {
+                reader.validate(generated);
+                reader.read(generated, false);
+            } catch (IOException e) {
+                HaskellCatalog.logger.warning(e.getMessage());
+            }
+        }
+
+        this.datatypes = reader.getDataTypes();
+        this.classes = reader.getClasses();
+        this.functions = new HashMap<>(reader.getFunctions());
+        this.categories = HashMultimap.create();
+
+        for (CatalogFunction entry : this.functions.values()) {
             this.categories.put(entry.getCategory(), entry);
         }
+
+        this.index = new CatalogIndex(this.functions.values());
+        this.functionsView = Collections.unmodifiableMap(this.functions);
+        this.classesView = Collections.unmodifiableMap(this.classes);
+        this.builder = new TypeBuilder(this.classesView);
+
+        this.loadReport = String.format("Loaded %d functions, %d type classes and %d data types from %d catalog files in %.1f ms",
+                this.functions.size(), this.classes.size(), this.datatypes.size(), reader.getFileCount(), (System.nanoTime() - startTime) / 1e6);
+        HaskellCatalog.logger.info(this.loadReport);
     }
 
     /**
@@ -96,7 +185,18 @@ public class HaskellCatalog {
      * @return A set of functions with names beginning with the given prefix.
      */
     public final Collection<CatalogFunction> getByPrefix(final String prefix) {
-        return getByPredicate(fn -> fn.getName().startsWith(prefix));
+        return this.index.withPrefix(prefix);
+    }
+
+    /**
+     * Searches the functions by name, for search-as-you-type usage.
+     * Exact and prefix matches rank before substring and fuzzy matches, and common functions rank higher.
+     * @param query The (case insensitive) part of the name to search for.
+     * @param limit The maximum number of results.
+     * @return A list of the best matching functions, best first.
+     */
+    public final List<CatalogFunction> search(final String query, final int limit) {
+        return this.index.search(query, limit);
     }
 
     /**
@@ -130,149 +230,48 @@ public class HaskellCatalog {
     }
 
     /**
-     * @return A new environment based on the entries of this catalog.
+     * @return A new environment based on the entries of this catalog, which are shared rather than copied.
      */
     public final Environment asEnvironment() {
-        return new Environment(new HashMap<>(this.functions), new HashMap<>(this.classes));
+        return new Environment(this.functionsView, this.classesView, this.builder);
     }
 
     /**
-     * Parses a list of class nodes into DataTypeInfo objects.
-     * @param nodes The nodes to parse.
-     * @return A mapping of DataTypeInfo objects for the given nodes.
+     * @return A snapshot of the contents of this catalog, for compiling it into binary form.
      */
-    private Map<String, DataTypeInfo> parseDataType(NodeList nodes) {
-        Map<String, DataTypeInfo> entries = new HashMap<>();
-        TypeBuilder builder = new TypeBuilder(new HashMap<>());
-        
-        for (int i = 0; i < nodes.getLength(); i++) {
-            Node node = nodes.item(i);
-
-            String name = node.getAttributes().getNamedItem("name").getTextContent();
-            TypeCon typecon = TypeCon.con(name);
-            String arity = node.getAttributes().getNamedItem("typeArity").getTextContent();
-            int typeArity = Integer.parseInt(arity);
-            String prim = node.getAttributes().getNamedItem("builtin").getTextContent();
-            boolean builtin = Boolean.parseBoolean(prim);
-            DataTypeInfo datatype = new DataTypeInfo(typecon, typeArity, builtin);
-            
-            NodeList cnodes = node.getChildNodes();
-            for (int j = 0; j < cnodes.getLength(); j++) {
-                Node inode = cnodes.item(j);
-                NamedNodeMap attrs = inode.getAttributes();
-                String cname = attrs.getNamedItem("name").getTextContent();
-                String signature = attrs.getNamedItem("signature").getTextContent();
-                Type ctype = builder.build(signature);
-                datatype.addConstructor(cname, ctype);
-            }
-            
-            entries.put(name, datatype);
-        }
-        
-        return entries;
+    CatalogSnapshot toSnapshot() {
+        return new CatalogSnapshot(this.datatypes, this.classes, new ArrayList<>(this.functions.values()));
     }
-    
+
     /**
-     * Parses a list of class nodes into ClassEntry objects.
-     * @param nodes The nodes to parse.
-     * @return A set of ClassEntry objects for the given nodes.
+     * Parses the type signatures of all functions on a background thread, so that they are ready before first use.
+     * Signatures that are used in the meantime are parsed on demand as usual.
+     * @return The started (daemon) thread.
      */
-    protected final Map<String, TypeClass> parseClasses(NodeList nodes) {
-        Map<String, TypeClass> entries = new HashMap<>();
-
-        for (int i = 0; i < nodes.getLength(); i++) {
-            Node node = nodes.item(i);
-
-            String name = node.getAttributes().getNamedItem("name").getTextContent();
-            TypeClass tc = new TypeClass(name);
-            TypeBuilder builder = new TypeBuilder(entries);
-            
-            NodeList inodes = node.getChildNodes();
-            for (int j = 0; j < inodes.getLength(); j++) {
-                Node inode = inodes.item(j);
-                NamedNodeMap attrs = inode.getAttributes();
-                String inst = attrs.getNamedItem("name").getTextContent();
-                if ("instance".equals(inode.getNodeName())) {
-                    String constrArgs = attrs.getNamedItem("constrainedArgs").getTextContent();
-                    Type t = builder.build(inst);
-                    if (t instanceof TypeCon) {
-                        tc.addInstance((TypeCon) t, Integer.parseInt(constrArgs));
-                    }
-                } else if ("superClass".equals(inode.getNodeName())) {
-                    TypeClass sc = entries.get(inst);
-                    if (sc == null) {
-                       throw new RuntimeException("Can't resolve superclass " + inst + " of " + name);
-                    } else {
-                        tc.addSuperClass(sc);
-                    }
+    public final Thread preparseSignatures() {
+        List<CatalogFunction> pending = new ArrayList<>(this.functions.values());
+        Thread thread = new Thread(() -> {
+            long startTime = System.nanoTime();
+            for (CatalogFunction fn : pending) {
+                try {
+                    fn.getFreshSignature();
+                } catch (RuntimeException e) {
+                    HaskellCatalog.logger.warning("Invalid signature of " + fn.getName() + ": " + e.getMessage());
                 }
             }
+            HaskellCatalog.logger.fine(String.format("Parsed %d signatures in %.1f ms", pending.size(), (System.nanoTime() - startTime) / 1e6));
+        }, "catalog-preparse");
 
-            Node def = node.getAttributes().getNamedItem("default");
-            if (def != null) {
-                Type dt = builder.build(def.getTextContent());
-                if (dt instanceof TypeCon) {
-                    tc.setDefaultType((TypeCon)dt);
-                }
-            }
-            
-            entries.put(name,tc);
-        }
-
-        return entries;
-    }
-    
-    /**
-     * Parses a list of function nodes into FunctionEntry objects.
-     * @param nodes The nodes to parse.
-     * @return A set of FunctionEntry objects for the given nodes.
-     */
-    protected final Set<CatalogFunction> parseFunctions(NodeList nodes, Map<String, TypeClass> typeClasses) {
-        Set<CatalogFunction> entries = new HashSet<>();
-
-        for (int i = 0; i < nodes.getLength(); i++) {
-            Node node = nodes.item(i);
-            NamedNodeMap attributes = node.getAttributes();
-
-            String name = attributes.getNamedItem("name").getTextContent();
-            String signature = attributes.getNamedItem("signature").getTextContent();
-            Boolean isConstructor = attributes.getNamedItem("isConstructor") != null;
-            Boolean isCommon = attributes.getNamedItem("isCommon") != null;
-            String category = node.getParentNode().getAttributes().getNamedItem("name").getTextContent();
-            String documentation = node.getTextContent();
-
-            TypeBuilder builder = new TypeBuilder(typeClasses);
-            Type tsig = builder.build(signature);
-            entries.add(new CatalogFunction(name, category, tsig, documentation, isConstructor, isCommon));
-        }
-
-        return entries;
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return thread;
     }
 
     /**
-     * Loads the given XML catalog into a document.
-     * @param XMLPath The path to the XML file.
-     * @param XSDPath The path to the XSD file.
-     * @return The document for the XML file.
+     * @return A summary of the loaded catalog files, entry counts and load time.
      */
-    protected static Document getDocument(final String XMLPath, final String XSDPath) {
-        URL xmlFile = HaskellCatalog.class.getResource(XMLPath);
-        URL schemaFile = HaskellCatalog.class.getResource(XSDPath);
-
-        try {
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-            SchemaFactory sFactory = SchemaFactory.newInstance("http://www.w3.org/2001/XMLSchema");
-
-            dbFactory.setIgnoringElementContentWhitespace(true);
-            dbFactory.setIgnoringComments(true);
-            dbFactory.setSchema(sFactory.newSchema(schemaFile));
-
-            DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-
-            return dBuilder.parse(xmlFile.openStream());
-        } catch (IOException | ParserConfigurationException | SAXException e) {
-            throw new RuntimeException("could not read or parse catalog file", e);
-        }
+    public String getLoadReport() {
+        return this.loadReport;
     }
-    
 }
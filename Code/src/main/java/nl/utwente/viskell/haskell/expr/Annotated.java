@@ -5,7 +5,9 @@ import nl.utwente.viskell.haskell.type.HaskellTypeError;
 import nl.utwente.viskell.haskell.type.Type;
 import nl.utwente.viskell.haskell.type.TypeChecker;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 /**
  * An Expression be annotated (restricted) by a type, in Haskell notation it is "(expr :: type)".
@@ -35,9 +37,31 @@ public class Annotated extends Expression {
     }
 
     @Override
-    public String toHaskell() {
+    public void toHaskell(Appendable out) throws IOException {
         // FIXME for now we do not add the " :: type" part because of incompatible type representation. 
-        return this.expr.toHaskell();
+        this.expr.toHaskell(out);
+    }
+
+    @Override
+    protected long computeFingerprint() {
+        return new Fingerprint("Annotated").add(this.expr.fingerprint()).add(this.annotation.prettyPrint()).get();
+    }
+
+    @Override
+    void collectTopLets(List<LetExpression> lets) {
+        this.expr.collectTopLets(lets);
+    }
+
+    @Override
+    Expression withoutBindings(Set<String> names) {
+        Expression newExpr = this.expr.withoutBindings(names);
+        return newExpr == this.expr ? this : new Annotated(newExpr, this.annotation);
+    }
+
+    @Override
+    Expression optimize(Optimizer optimizer) {
+        Expression newExpr = optimizer.rewrite(this.expr);
+        return newExpr == this.expr ? this : new Annotated(newExpr, this.annotation);
     }
 
     @Override
@@ -6,7 +6,9 @@ import nl.utwente.viskell.haskell.type.Type;
 import nl.utwente.viskell.haskell.type.TypeChecker;
 import nl.utwente.viskell.haskell.type.TypeScope;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Lazy application of an argument to a function.
@@ -49,8 +51,45 @@ public class Apply extends Expression {
     }
 
     @Override
-    public final String toHaskell() {
-        return String.format("(%s %s)", this.func.toHaskell(), this.arg.toHaskell());
+    public final void toHaskell(Appendable out) throws IOException {
+        out.append('(');
+        this.func.toHaskell(out);
+        out.append(' ');
+        this.arg.toHaskell(out);
+        out.append(')');
+    }
+
+    @Override
+    protected final long computeFingerprint() {
+        return new Fingerprint("Apply").add(this.func.fingerprint()).add(this.arg.fingerprint()).get();
+    }
+
+    @Override
+    final void collectTopLets(List<LetExpression> lets) {
+        this.func.collectTopLets(lets);
+        this.arg.collectTopLets(lets);
+    }
+
+    @Override
+    final Expression withoutBindings(Set<String> names) {
+        Expression newFunc = this.func.withoutBindings(names);
+        Expression newArg = this.arg.withoutBindings(names);
+        if (newFunc == this.func && newArg == this.arg) {
+            return this;
+        }
+
+        return new Apply(newFunc, newArg);
+    }
+
+    @Override
+    final Expression optimize(Optimizer optimizer) {
+        Expression newFunc = optimizer.rewrite(this.func);
+        Expression newArg = optimizer.rewrite(this.arg);
+        if (newFunc == this.func && newArg == this.arg) {
+            return this;
+        }
+
+        return new Apply(newFunc, newArg);
     }
 
     @Override
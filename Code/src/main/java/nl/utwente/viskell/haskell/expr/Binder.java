@@ -3,6 +3,10 @@ package nl.utwente.viskell.haskell.expr;
 import nl.utwente.viskell.haskell.type.Type;
 import nl.utwente.viskell.haskell.type.TypeScope;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
 /**
  * A Binder is the definition side of a local variable, it is used link variable to their binding constructs, such as lambdas 
  */
@@ -16,6 +20,18 @@ public class Binder {
     
     /** An optional type annotation to restrict the type of this binder */
     private Type annotation;
+
+    /** The expression bound to this binder, or the lambda binding it, null if it has not been bound */
+    private Expression definition;
+
+    /** The position of this binder within the pattern or lambda binding it */
+    private int position;
+
+    /** The key of this binder derived from its definition, or 0 if it has not been computed yet */
+    private long key;
+
+    /** Whether the key is being computed, to detect a binder used in its own definition */
+    private boolean computingKey;
     
     /** 
      * @param name of this Binder
@@ -38,7 +54,88 @@ public class Binder {
      * @return The name (made unique) of this binder, for avoiding name conflicts in code generation
      */
     public String getUniqueName() {
-        return name + "__" + Integer.toHexString(this.hashCode());
+        return name + "__" + Long.toHexString(this.getKey());
+    }
+
+    /** @return Whether this binder binds a single variable, rather than being a pattern. */
+    boolean isVariable() {
+        return true;
+    }
+
+    /**
+     * @param names The collection to add the unique names of the variables bound by this binder to.
+     */
+    void collectBoundNames(Collection<String> names) {
+        names.add(this.getUniqueName());
+    }
+
+    /**
+     * @param copies The copies made so far, to which this binder and the binders within it are added.
+     * @return A fresh binder like this one, that is not bound yet.
+     */
+    Binder copy(Map<Binder, Binder> copies) {
+        Binder copy = new Binder(this.name, this.annotation);
+        copy.inferenceType = this.inferenceType;
+        copies.put(this, copy);
+        return copy;
+    }
+
+    /**
+     * Lets this binder share the copy of an equal binder, into which its binding was merged.
+     * @param kept The binder with the same unique name that has been copied already.
+     * @param copies The copies made so far, to which this binder and the binders within it are added.
+     */
+    void shareCopy(Binder kept, Map<Binder, Binder> copies) {
+        copies.put(this, copies.get(kept));
+    }
+
+    /**
+     * Records where this binder is bound, from which its unique name is derived.
+     * @param definition The expression bound to this binder, or the lambda binding it.
+     * @param position The position of this binder within the pattern or lambda binding it.
+     */
+    void bindTo(Expression definition, int position) {
+        this.definition = definition;
+        this.position = position;
+        this.key = 0;
+    }
+
+    /** @return The expression the key of this binder is derived from, if any. */
+    final Optional<Expression> getKeyDependency() {
+        if (this.definition instanceof Lambda) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(this.definition);
+    }
+
+    /**
+     * Returns a key that is the same in every run for the same graph, yet distinguishes this binder from the others in scope.
+     * A binder bound to an expression is keyed by the fingerprint of that expression, so binders can only share a key
+     * if they are bound to equal expressions. A lambda binder is keyed by the nesting height of its lambda, because
+     * an expression can only refer to binders of lambdas enclosing it, which all have a different height.
+     * @return The key of this binder, never 0.
+     */
+    final long getKey() {
+        if (this.key == 0) {
+            Fingerprint fp = new Fingerprint("Binder").add(this.name).add(this.position);
+            if (this.computingKey || this.definition == null) {
+                fp.add(false);
+            } else if (this.definition instanceof Lambda) {
+                fp.add(true).add(this.definition.lambdaHeight());
+            } else {
+                this.computingKey = true;
+                try {
+                    fp.add(true).add(this.definition.fingerprint());
+                } finally {
+                    this.computingKey = false;
+                }
+            }
+
+            this.key = fp.get();
+        }
+
+        return this.key;
     }
 
     /**
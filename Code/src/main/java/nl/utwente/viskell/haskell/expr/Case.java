@@ -1,5 +1,7 @@
 package nl.utwente.viskell.haskell.expr;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import nl.utwente.viskell.haskell.type.HaskellTypeError;
@@ -9,6 +11,9 @@ public class Case extends Expression {
     
     private List<Alternative> alternatives;
     private Expression expression;
+
+    /** The unique names of the patterns, fixed when the fingerprint is computed */
+    private List<String> patternNames;
     
     public static final class Alternative {
         private final Binder pattern;
@@ -23,6 +28,9 @@ public class Case extends Expression {
     public Case(Expression e, List<Alternative> alternatives) {
         expression = e;
         this.alternatives = alternatives;
+        for (Alternative alternative : alternatives) {
+            alternative.pattern.bindTo(e, 0);
+        }
     }
 
     @Override
@@ -31,15 +39,50 @@ public class Case extends Expression {
     }
 
     @Override
-    public String toHaskell() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("case "+expression.toHaskell()+" of {");
-        alternatives.forEach(alternative -> {
-            sb.append(alternative.pattern.getUniqueName()+" | "+alternative.guards.toHaskell()+"; ");
-        });
-        sb.append("}");
-        
-        return sb.toString();
+    public void toHaskell(Appendable out) throws IOException {
+        this.fingerprint();
+        out.append("case ");
+        expression.toHaskell(out);
+        out.append(" of {");
+        for (int i = 0; i < alternatives.size(); i++) {
+            out.append(patternNames.get(i)).append(" | ");
+            alternatives.get(i).guards.toHaskell(out);
+            out.append("; ");
+        }
+        out.append("}");
+    }
+
+    @Override
+    protected long computeFingerprint() {
+        List<String> names = new ArrayList<>(alternatives.size());
+        Fingerprint fp = new Fingerprint("Case").add(expression.fingerprint());
+        for (Alternative alternative : alternatives) {
+            String name = alternative.pattern.getUniqueName();
+            names.add(name);
+            fp.add(name).add(alternative.guards.fingerprint());
+        }
+
+        this.patternNames = names;
+        return fp.get();
+    }
+
+    @Override
+    Expression optimize(Optimizer optimizer) {
+        List<Alternative> newAlternatives = new ArrayList<>(alternatives.size());
+        List<Binder> newPatterns = new ArrayList<>(alternatives.size());
+        for (Alternative alternative : alternatives) {
+            newPatterns.add(optimizer.copy(alternative.pattern));
+        }
+        for (int i = 0; i < alternatives.size(); i++) {
+            Expression guards = optimizer.rewrite(alternatives.get(i).guards);
+            if (!(guards instanceof LetExpression)) {
+                // a let that is not a guard may have been reduced to its body
+                guards = new LetExpression(guards, true);
+            }
+            newAlternatives.add(new Alternative(newPatterns.get(i), (LetExpression) guards));
+        }
+
+        return new Case(optimizer.rewrite(expression), newAlternatives);
     }
 
     @Override
@@ -47,4 +90,14 @@ public class Case extends Expression {
         return toHaskell();
     }
 
+    @Override
+    public List<Expression> getChildren() {
+        List<Expression> exprs = new ArrayList<>();
+        exprs.add(expression);
+        for (Alternative alternative : alternatives) {
+            exprs.add(alternative.guards);
+        }
+        return exprs;
+    }
+
 }
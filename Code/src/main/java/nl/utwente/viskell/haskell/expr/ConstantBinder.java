@@ -1,5 +1,8 @@
 package nl.utwente.viskell.haskell.expr;
 
+import java.util.Collection;
+import java.util.Map;
+
 /** Represents a value within a pattern match. */
 public class ConstantBinder extends Binder {
 
@@ -11,6 +14,23 @@ public class ConstantBinder extends Binder {
         this.value = value;
     }
 
+    @Override
+    boolean isVariable() {
+        return false;
+    }
+
+    @Override
+    void collectBoundNames(Collection<String> names) {
+        // a constant pattern binds no variables
+    }
+
+    @Override
+    Binder copy(Map<Binder, Binder> copies) {
+        ConstantBinder copy = new ConstantBinder(this.value);
+        copies.put(this, copy);
+        return copy;
+    }
+
     @Override
     public String getUniqueName() {
         // FIXME: we should not abuse this method for code generation
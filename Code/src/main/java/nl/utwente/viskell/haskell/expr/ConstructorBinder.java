@@ -1,7 +1,9 @@
 package nl.utwente.viskell.haskell.expr;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /** A binder that decompose a data constructor into a list of subbinders. */
 public class ConstructorBinder extends Binder {
@@ -24,6 +26,48 @@ public class ConstructorBinder extends Binder {
         this.constructor = constr;
     }
     
+    @Override
+    void bindTo(Expression definition, int position) {
+        super.bindTo(definition, position);
+        for (int i = 0; i < this.binders.size(); i++) {
+            this.binders.get(i).bindTo(definition, i);
+        }
+    }
+
+    @Override
+    boolean isVariable() {
+        return false;
+    }
+
+    @Override
+    void collectBoundNames(Collection<String> names) {
+        for (Binder binder : this.binders) {
+            binder.collectBoundNames(names);
+        }
+    }
+
+    @Override
+    Binder copy(Map<Binder, Binder> copies) {
+        List<Binder> parts = new ArrayList<>(this.binders.size());
+        for (Binder binder : this.binders) {
+            parts.add(binder.copy(copies));
+        }
+
+        ConstructorBinder copy = new ConstructorBinder(this.constructor, parts);
+        copies.put(this, copy);
+        return copy;
+    }
+
+    @Override
+    void shareCopy(Binder kept, Map<Binder, Binder> copies) {
+        super.shareCopy(kept, copies);
+        // an equal unique name means the same constructor with equally named parts
+        List<Binder> keptParts = ((ConstructorBinder) kept).binders;
+        for (int i = 0; i < this.binders.size(); i++) {
+            this.binders.get(i).shareCopy(keptParts.get(i), copies);
+        }
+    }
+
     @Override
     public String getUniqueName() {
         return binders.stream().map(Binder::getUniqueName).reduce(constructor, (str, bname) -> str+" "+bname);
@@ -5,12 +5,24 @@ import nl.utwente.viskell.ghcj.HaskellException;
 import nl.utwente.viskell.haskell.type.HaskellTypeError;
 import nl.utwente.viskell.haskell.type.Type;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * An expression in Haskell.
  */
 public abstract class Expression {
+    /** The structural fingerprint of this expression, or 0 if it has not been computed yet. */
+    private volatile long fingerprint;
+
+    /** The maximum number of nested lambdas in this expression, or -1 if it has not been computed yet. */
+    private volatile int lambdaHeight = -1;
+
     /**
      * Analyzes the type tree and infers the type for this usage of this expression
      *
@@ -23,7 +35,114 @@ public abstract class Expression {
      * Returns the Haskell code for this expression.
      * @return The Haskell code for this expression.
      */
-    public abstract String toHaskell();
+    public final String toHaskell() {
+        StringBuilder out = new StringBuilder();
+        try {
+            this.toHaskell(out);
+        } catch (IOException e) {
+            // a StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Writes the Haskell code for this expression in a single pass, without building intermediate strings.
+     * @param out The destination of the code.
+     * @throws IOException if writing to the destination fails.
+     */
+    public abstract void toHaskell(Appendable out) throws IOException;
+
+    /**
+     * Returns a Merkle style hash of this expression, built from the kind of each node, names, literal values and
+     * the fingerprints of the subexpressions. It never depends on object identity, so the same graph gets the same
+     * fingerprint in every refresh and every session, which makes it usable as a key for caching evaluation results.
+     * The fingerprint is computed when first asked for, so the expression should not be changed after that.
+     * @return The structural fingerprint of this expression, never 0.
+     */
+    public final long fingerprint() {
+        if (this.fingerprint == 0) {
+            // computed bottom up with an explicit stack, as chains of let bindings can be longer than the call stack allows
+            Deque<Expression> todo = new ArrayDeque<>();
+            Set<Expression> expanded = new HashSet<>();
+            todo.push(this);
+            while (!todo.isEmpty()) {
+                Expression expr = todo.peek();
+                if (expr.fingerprint == 0 && expanded.add(expr)) {
+                    for (Expression dependency : expr.getFingerprintDependencies()) {
+                        if (dependency.fingerprint == 0) {
+                            todo.push(dependency);
+                        }
+                    }
+                } else {
+                    // a dependency that is still missing here is part of a cycle, which Binder.getKey breaks
+                    if (expr.fingerprint == 0) {
+                        expr.fingerprint = expr.computeFingerprint();
+                    }
+                    todo.pop();
+                }
+            }
+        }
+
+        return this.fingerprint;
+    }
+
+    /** @return The structural fingerprint of this expression, computed from the fingerprints of its dependencies. */
+    protected abstract long computeFingerprint();
+
+    /** @return The expressions whose fingerprints are used for computing the fingerprint of this one. */
+    List<Expression> getFingerprintDependencies() {
+        return this.getChildren();
+    }
+
+    /**
+     * Collects the let expressions at the top of this expression, of which the bindings are in the outermost scope.
+     * @param lets The list to add the let expressions to.
+     */
+    void collectTopLets(List<LetExpression> lets) {
+        // most expressions do not contain top level lets
+    }
+
+    /**
+     * @param names The unique names of the binders whose bindings are to be removed from the top level lets.
+     * @return This expression without those bindings, or this expression itself if it has none of them.
+     */
+    Expression withoutBindings(Set<String> names) {
+        return this;
+    }
+
+    /**
+     * @param optimizer The optimizer, which holds the analysis of the whole expression being optimized.
+     * @return This expression optimized, or this expression itself if it contains nothing to optimize.
+     */
+    Expression optimize(Optimizer optimizer) {
+        return this;
+    }
+
+    /** Forgets the fingerprint after a change, which is only allowed while the expression is being built. */
+    protected final void invalidateFingerprint() {
+        this.fingerprint = 0;
+        this.lambdaHeight = -1;
+    }
+
+    /** @return The maximum number of lambdas nested in this expression, including itself. */
+    final int lambdaHeight() {
+        int result = this.lambdaHeight;
+        if (result < 0) {
+            result = 0;
+            for (Expression child : this.getChildren()) {
+                result = Math.max(result, child.lambdaHeight());
+            }
+
+            if (this instanceof Lambda) {
+                result++;
+            }
+            this.lambdaHeight = result;
+        }
+
+        return result;
+    }
 
     /**
      * @return A string representation of this Haskell expression.
@@ -0,0 +1,65 @@
+package nl.utwente.viskell.haskell.expr;
+
+/**
+ * Incremental 64 bit hash for structural fingerprints, depending only on the values added and never on object identity,
+ * so that equal structures get the same fingerprint in every run of the application.
+ */
+final class Fingerprint {
+    /** Multiplier of the FNV-1a hash. */
+    private static final long PRIME = 0x100000001B3L;
+
+    /** The hash so far. */
+    private long hash;
+
+    /**
+     * @param kind The name of the kind of structure, so that different kinds with the same fields hash differently.
+     */
+    Fingerprint(String kind) {
+        this.hash = 0xCBF29CE484222325L;
+        this.add(kind);
+    }
+
+    /**
+     * @param text A string to add, including its length so that consecutive strings can not be confused.
+     * @return this fingerprint.
+     */
+    Fingerprint add(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            this.hash = (this.hash ^ text.charAt(i)) * PRIME;
+        }
+
+        return this.add(text.length());
+    }
+
+    /**
+     * @param value A number or child fingerprint to add.
+     * @return this fingerprint.
+     */
+    Fingerprint add(long value) {
+        this.hash = (this.hash ^ Fingerprint.mix(value)) * PRIME;
+        return this;
+    }
+
+    /**
+     * @param value A flag to add.
+     * @return this fingerprint.
+     */
+    Fingerprint add(boolean value) {
+        return this.add(value ? 1 : 0);
+    }
+
+    /** @return The fingerprint of everything added, which is never 0. */
+    long get() {
+        long result = Fingerprint.mix(this.hash);
+        // 0 is used to mark fingerprints not computed yet
+        return result == 0 ? 1 : result;
+    }
+
+    /** @return The value with all bits mixed, as in the finalizer of MurmurHash3. */
+    private static long mix(long value) {
+        long h = value;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -4,6 +4,8 @@ import nl.utwente.viskell.haskell.env.FunctionInfo;
 import nl.utwente.viskell.haskell.type.HaskellTypeError;
 import nl.utwente.viskell.haskell.type.Type;
 
+import java.io.IOException;
+
 /*
  * A variable referring to known function
  */
@@ -27,14 +29,19 @@ public class FunVar extends Variable {
         return this.funInfo.getFreshSignature();
     }
 
+    @Override
+    protected long computeFingerprint() {
+        return new Fingerprint("FunVar").add(this.funInfo.getName()).get();
+    }
+
     @Override
     public String toString() {
         return this.name;
     }
     
     @Override
-    public String toHaskell() {
-        return funInfo.getName();
+    public void toHaskell(Appendable out) throws IOException {
+        out.append(funInfo.getName());
     }
 
 }
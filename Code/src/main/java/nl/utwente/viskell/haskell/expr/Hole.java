@@ -4,6 +4,8 @@ import nl.utwente.viskell.haskell.type.Type;
 import nl.utwente.viskell.haskell.type.TypeScope;
 import nl.utwente.viskell.haskell.type.TypeVar;
 
+import java.io.IOException;
+
 /*
  * A Hole represents an yet unknown gap in an Expression or an open input connection
  */
@@ -22,8 +24,13 @@ public class Hole extends Variable {
     }
 
     @Override
-    public String toHaskell() {
-        return "(error \"Open expression\")";
+    public void toHaskell(Appendable out) throws IOException {
+        out.append("(error \"Open expression\")");
+    }
+
+    @Override
+    protected long computeFingerprint() {
+        return new Fingerprint("Hole").get();
     }
 
     @Override
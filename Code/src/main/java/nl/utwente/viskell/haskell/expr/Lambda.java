@@ -7,6 +7,8 @@ import nl.utwente.viskell.haskell.type.HaskellTypeError;
 import nl.utwente.viskell.haskell.type.Type;
 import nl.utwente.viskell.haskell.type.TypeScope;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class Lambda extends Expression {
@@ -16,6 +18,9 @@ public class Lambda extends Expression {
     
     /** The expression in the body of this lambda */ 
     private final Expression body;
+
+    /** The unique names of the binders, fixed when the fingerprint is computed */
+    private List<String> binderNames;
     
     /**
      * @param binders The list of variable binders in this lambda, should be at least one
@@ -24,6 +29,9 @@ public class Lambda extends Expression {
     public Lambda(List<Binder> binders, Expression body) {
         this.binders = binders;
         this.body = body;
+        for (int i = 0; i < binders.size(); i++) {
+            binders.get(i).bindTo(this, i);
+        }
     }
 
     @Override
@@ -45,12 +53,12 @@ public class Lambda extends Expression {
     }
 
     @Override
-    public String toHaskell() {
-        StringBuilder out = new StringBuilder();
+    public void toHaskell(Appendable out) throws IOException {
+        this.fingerprint();
         out.append("(\\");
 
-        for (Binder x : this.binders) {
-            out.append(" ").append(x.getUniqueName());
+        for (String x : this.binderNames) {
+            out.append(" ").append(x);
         }
         
         if (this.binders.isEmpty()) {
@@ -58,14 +66,36 @@ public class Lambda extends Expression {
         }
 
         out.append(" -> ");
-        out.append(this.body.toHaskell());
+        this.body.toHaskell(out);
         out.append(")");
         
         if (this.binders.isEmpty()) {
             out.append(" ()");
         }
+    }
 
-        return out.toString();
+    @Override
+    protected long computeFingerprint() {
+        List<String> names = new ArrayList<>(this.binders.size());
+        Fingerprint fp = new Fingerprint("Lambda").add(this.binders.size());
+        for (Binder x : this.binders) {
+            String name = x.getUniqueName();
+            names.add(name);
+            fp.add(name);
+        }
+
+        this.binderNames = names;
+        return fp.add(this.body.fingerprint()).get();
+    }
+
+    @Override
+    Expression optimize(Optimizer optimizer) {
+        List<Binder> newBinders = new ArrayList<>(this.binders.size());
+        for (Binder x : this.binders) {
+            newBinders.add(optimizer.copy(x));
+        }
+
+        return new Lambda(newBinders, optimizer.rewrite(this.body));
     }
 
     @Override
@@ -1,9 +1,13 @@
 package nl.utwente.viskell.haskell.expr;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import nl.utwente.viskell.haskell.type.HaskellTypeError;
 import nl.utwente.viskell.haskell.type.Type;
@@ -17,6 +21,15 @@ public class LetExpression extends Expression {
     private final Expression body;
 
     protected boolean isGuard;
+
+    /** The unique names of the binders in the order they are written, fixed when the fingerprint is computed */
+    private List<String> boundNames;
+
+    /** The binders in the order they are written, matching the bound names */
+    private List<Binder> boundBinders;
+
+    /** The bound expressions in the order they are written, matching the bound names */
+    private List<Expression> boundExprs;
     
     /**
      * Constructs an empty let expression (with no local bindings).
@@ -43,6 +56,9 @@ public class LetExpression extends Expression {
      * @return whether a extra let binding has added to this let expression.
      */
     public boolean addLetBinding(Binder binder, Expression expr) {
+        binder.bindTo(expr, 0);
+        this.invalidateFingerprint();
+
         if (this.binders.containsKey(binder)) {
             // remove the old entry to preserve least recent insertion ordering
             this.binders.remove(binder);
@@ -61,21 +77,131 @@ public class LetExpression extends Expression {
     }
 
     @Override
-    public String toHaskell() {
-        StringBuilder builder = new StringBuilder();
+    public void toHaskell(Appendable out) throws IOException {
+        this.fingerprint();
         if (isGuard) {
-            binders.forEach((binder, expr) -> builder.insert(0, binder.getUniqueName() + " <- " + expr.toHaskell() + ", "));
-            builder.append("True -> ");
-            builder.append(this.body.toHaskell());
-            return builder.toString();
+            for (int i = 0; i < this.boundNames.size(); i++) {
+                out.append(this.boundNames.get(i)).append(" <- ");
+                this.boundExprs.get(i).toHaskell(out);
+                out.append(", ");
+            }
+            out.append("True -> ");
+            this.body.toHaskell(out);
         }
         else {
-            binders.forEach((binder, expr) -> builder.insert(0, binder.getUniqueName() + " = " + expr.toHaskell() + "; "));
-            builder.insert(0, "let {");
-            builder.append("} in ");
-            builder.append(this.body.toHaskell());
-            return "(" + builder.toString() + ")";
+            out.append("(let {");
+            for (int i = 0; i < this.boundNames.size(); i++) {
+                out.append(this.boundNames.get(i)).append(" = ");
+                this.boundExprs.get(i).toHaskell(out);
+                out.append("; ");
+            }
+            out.append("} in ");
+            this.body.toHaskell(out);
+            out.append(")");
+        }
+    }
+
+    @Override
+    protected long computeFingerprint() {
+        // the bindings are written most recently added first
+        List<Map.Entry<Binder, Expression>> bindings = new ArrayList<>(this.binders.entrySet());
+        List<String> names = new ArrayList<>(bindings.size());
+        List<Binder> binders = new ArrayList<>(bindings.size());
+        List<Expression> exprs = new ArrayList<>(bindings.size());
+        Set<String> written = new HashSet<>();
+        Fingerprint fp = new Fingerprint("LetExpression").add(this.isGuard);
+        for (int i = bindings.size() - 1; i >= 0; i--) {
+            String name = bindings.get(i).getKey().getUniqueName();
+            Expression expr = bindings.get(i).getValue();
+            long exprFingerprint = expr.fingerprint();
+            // binders with the same name bound to equal expressions are written once, as they can not be bound twice
+            if (written.add(name + " = " + Long.toHexString(exprFingerprint))) {
+                names.add(name);
+                binders.add(bindings.get(i).getKey());
+                exprs.add(expr);
+                fp.add(name).add(exprFingerprint);
+            }
+        }
+
+        this.boundNames = names;
+        this.boundBinders = binders;
+        this.boundExprs = exprs;
+        return fp.add(this.body.fingerprint()).get();
+    }
+
+    @Override
+    void collectTopLets(List<LetExpression> lets) {
+        if (!this.isGuard) {
+            lets.add(this);
+            this.body.collectTopLets(lets);
+        }
+    }
+
+    @Override
+    Expression withoutBindings(Set<String> names) {
+        if (this.isGuard) {
+            return this;
         }
+
+        this.fingerprint();
+        Expression newBody = this.body.withoutBindings(names);
+        LetExpression result = new LetExpression(newBody, false);
+        // added in reverse, so that they are written in the same order as here
+        for (int i = this.boundNames.size() - 1; i >= 0; i--) {
+            if (!names.contains(this.boundNames.get(i))) {
+                result.addLetBinding(this.boundBinders.get(i), this.boundExprs.get(i));
+            }
+        }
+
+        if (newBody == this.body && result.binders.size() == this.boundNames.size()) {
+            return this;
+        }
+
+        return result.binders.isEmpty() ? newBody : result;
+    }
+
+    @Override
+    Expression optimize(Optimizer optimizer) {
+        if (!this.isGuard) {
+            return optimizer.optimizeLet(this);
+        }
+
+        // the guards are kept in order, as each is matched only when the previous ones match
+        this.fingerprint();
+        List<Binder> newBinders = new ArrayList<>(this.boundBinders.size());
+        for (Binder binder : this.boundBinders) {
+            newBinders.add(optimizer.copy(binder));
+        }
+
+        LetExpression result = new LetExpression(optimizer.rewrite(this.body), true);
+        for (int i = newBinders.size() - 1; i >= 0; i--) {
+            result.addLetBinding(newBinders.get(i), optimizer.rewrite(this.boundExprs.get(i)));
+        }
+
+        return result;
+    }
+
+    /** @return The bindings of this let expression as they were added, without fixing the names. */
+    Map<Binder, Expression> getBindings() {
+        return Collections.unmodifiableMap(this.binders);
+    }
+
+    /** @return The binders of this let expression, in the order they are written. */
+    List<Binder> getBoundBinders() {
+        this.fingerprint();
+        return this.boundBinders;
+    }
+
+    /** @return The unique names of the binders of this let expression, in the order they are written. */
+    List<String> getBoundNames() {
+        this.fingerprint();
+        return this.boundNames;
+    }
+
+    /** @return The bound expressions of this let expression, in the order they are written. */
+    List<Expression> getBoundExprs() {
+        this.fingerprint();
+        return this.boundExprs;
     }
 
     @Override
@@ -1,8 +1,12 @@
 package nl.utwente.viskell.haskell.expr;
 
+import com.google.common.collect.ImmutableList;
 import nl.utwente.viskell.haskell.type.HaskellTypeError;
 import nl.utwente.viskell.haskell.type.Type;
 
+import java.io.IOException;
+import java.util.List;
+
 /**
  * A variable that is locally bound, by for example a lambda 
  */
@@ -11,11 +15,14 @@ public class LocalVar extends Variable {
     /** The binder this variable is bound to */
     private final Binder binder;
 
+    /** The unique name of the binder, fixed when the fingerprint is computed */
+    private String uniqueName;
+
     /**
      * @param binder where this variable is bound to
      */
     public LocalVar(Binder binder) {
-        super(binder.getUniqueName());
+        super(binder.getBaseName());
         this.binder = binder;
     }
 
@@ -25,8 +32,36 @@ public class LocalVar extends Variable {
     }
 
     @Override
-    public String toHaskell() {
-        return binder.getUniqueName();
+    public void toHaskell(Appendable out) throws IOException {
+        this.fingerprint();
+        out.append(this.uniqueName);
+    }
+
+    /** @return The unique name of the binder, as used in the code. */
+    String getUniqueName() {
+        this.fingerprint();
+        return this.uniqueName;
+    }
+
+    /** @return The binder this variable is bound to. */
+    Binder getBinder() {
+        return this.binder;
+    }
+
+    @Override
+    Expression optimize(Optimizer optimizer) {
+        return optimizer.reference(this);
+    }
+
+    @Override
+    List<Expression> getFingerprintDependencies() {
+        return this.binder.getKeyDependency().map(ImmutableList::of).orElse(ImmutableList.of());
+    }
+
+    @Override
+    protected long computeFingerprint() {
+        this.uniqueName = this.binder.getUniqueName();
+        return new Fingerprint("LocalVar").add(this.uniqueName).get();
     }
 
     @Override
@@ -0,0 +1,387 @@
+package nl.utwente.viskell.haskell.expr;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Simplifies an expression before its code is generated, as the expressions built from a graph contain a let binding
+ * for every block, most of them used only once, and bindings of blocks that do not contribute to the result.
+ * Smaller code is parsed, typechecked and evaluated faster by the interpreter.
+ * <ul>
+ * <li>Bindings that are not referenced are removed.</li>
+ * <li>Bindings that only rename a variable, and bindings used exactly once outside of a lambda, are inlined.
+ * Bindings used inside a lambda are kept, as inlining them could evaluate them once per application.</li>
+ * <li>Let expressions directly nested in the body or a binding of another let expression are merged with it.</li>
+ * </ul>
+ * Pattern guards are left as they are, as their bindings are matched in order.
+ * <p>
+ * The result is a new expression with fresh binders, so the original expression and its binders are never changed.
+ * </p>
+ */
+public final class Optimizer {
+    /** The maximum number of inlined bindings nested in each other, to keep the generated code from nesting too deep. */
+    private static final int MAX_INLINE_DEPTH = 32;
+
+    /** A binding in a let expression that is not a guard. */
+    private static final class Binding {
+        /** The expression bound. */
+        final Expression expr;
+
+        /** The unique names of the variables bound. */
+        final List<String> names;
+
+        /** Whether the binder is a single variable. */
+        final boolean isVariable;
+
+        /** The number of lambdas enclosing the let expression. */
+        int depth;
+
+        /** Whether a variable of this binding is used. */
+        boolean live;
+
+        Binding(Binder binder, Expression expr) {
+            this.expr = expr;
+            this.names = new ArrayList<>();
+            binder.collectBoundNames(this.names);
+            this.isVariable = binder.isVariable();
+        }
+    }
+
+    /** The bindings of all non guard lets, by the unique names of the variables they bind. */
+    private final Map<String, Binding> bindings;
+
+    /** The names bound in more than one let expression, which are left alone. */
+    private final Set<String> ambiguous;
+
+    /** The number of uses of each name in the code that remains. */
+    private final Map<String, Integer> uses;
+
+    /** The names used within a lambda that is not around their binding. */
+    private final Set<String> usedInLambda;
+
+    /** The names of the bindings that are inlined, with the expression replacing them. */
+    private final Map<String, Expression> inlined;
+
+    /** The names of the bindings that may be inlined, but turned out to be needed as a binding anyway. */
+    private final Set<String> kept;
+
+    /** The names of the bindings being inlined right now, innermost last. */
+    private final Set<String> resolving;
+
+    /** The fresh binders replacing the binders of the original expression. */
+    private final Map<Binder, Binder> copies;
+
+    /** The optimized subexpressions of the original expression. */
+    private final Map<Expression, Expression> done;
+
+    private Optimizer() {
+        this.bindings = new HashMap<>();
+        this.ambiguous = new HashSet<>();
+        this.uses = new HashMap<>();
+        this.usedInLambda = new HashSet<>();
+        this.inlined = new HashMap<>();
+        this.kept = new HashSet<>();
+        this.resolving = new HashSet<>();
+        this.copies = new IdentityHashMap<>();
+        this.done = new IdentityHashMap<>();
+    }
+
+    /**
+     * @param expr The expression to optimize.
+     * @return An equivalent expression that is at most as large.
+     */
+    public static Expression optimize(Expression expr) {
+        // fix the names in the original expression, which the analysis goes by
+        expr.fingerprint();
+        Optimizer optimizer = new Optimizer();
+        optimizer.collectBindings(expr);
+        optimizer.countUses(expr);
+        return optimizer.rewrite(expr);
+    }
+
+    /**
+     * Finds the bindings of all let expressions that are not guards.
+     * @param expr The expression to optimize.
+     */
+    private void collectBindings(Expression expr) {
+        Map<String, LetExpression> boundIn = new HashMap<>();
+        Set<Expression> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Expression> todo = new ArrayDeque<>();
+        todo.push(expr);
+        while (!todo.isEmpty()) {
+            Expression next = todo.pop();
+            if (!visited.add(next)) {
+                continue;
+            }
+
+            if (next instanceof LetExpression && !((LetExpression) next).isGuard) {
+                LetExpression let = (LetExpression) next;
+                for (int i = 0; i < let.getBoundBinders().size(); i++) {
+                    Binding binding = new Binding(let.getBoundBinders().get(i), let.getBoundExprs().get(i));
+                    for (String name : binding.names) {
+                        LetExpression previous = boundIn.putIfAbsent(name, let);
+                        if (previous != null && previous != let) {
+                            this.ambiguous.add(name);
+                        }
+                        this.bindings.putIfAbsent(name, binding);
+                    }
+                }
+            }
+
+            next.getChildren().forEach(todo::push);
+        }
+    }
+
+    /**
+     * Counts the uses of every name, starting from the top and only following the bindings that are used,
+     * so that uses within unused bindings are not counted.
+     * @param expr The expression to optimize.
+     */
+    private void countUses(Expression expr) {
+        Deque<Expression> todo = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        Set<LetExpression> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        todo.push(expr);
+        depths.push(0);
+        while (!todo.isEmpty()) {
+            Expression next = todo.pop();
+            int depth = depths.pop();
+
+            if (next instanceof LocalVar) {
+                String name = ((LocalVar) next).getUniqueName();
+                this.uses.merge(name, 1, Integer::sum);
+                Binding binding = this.bindings.get(name);
+                if (binding != null) {
+                    if (depth > binding.depth) {
+                        this.usedInLambda.add(name);
+                    }
+                    if (!binding.live) {
+                        binding.live = true;
+                        todo.push(binding.expr);
+                        depths.push(binding.depth);
+                    }
+                }
+            } else if (next instanceof LetExpression && !((LetExpression) next).isGuard) {
+                LetExpression let = (LetExpression) next;
+                boolean first = seen.add(let);
+                for (int i = 0; i < let.getBoundBinders().size(); i++) {
+                    List<String> names = new ArrayList<>();
+                    let.getBoundBinders().get(i).collectBoundNames(names);
+                    boolean isAmbiguous = false;
+                    for (String name : names) {
+                        Binding binding = this.bindings.get(name);
+                        binding.depth = depth;
+                        if (this.ambiguous.contains(name)) {
+                            binding.live = true;
+                            isAmbiguous = true;
+                        }
+                    }
+
+                    // bindings of names bound more than once are all kept, each with its own bound expression
+                    if (isAmbiguous && first) {
+                        todo.push(let.getBoundExprs().get(i));
+                        depths.push(depth);
+                    }
+                }
+                todo.push(let.getBody());
+                depths.push(depth);
+            } else {
+                int childDepth = next instanceof Lambda ? depth + 1 : depth;
+                for (Expression child : next.getChildren()) {
+                    todo.push(child);
+                    depths.push(childDepth);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param expr A subexpression of the original expression.
+     * @return The optimized subexpression, the same for every occurrence.
+     */
+    Expression rewrite(Expression expr) {
+        Expression result = this.done.get(expr);
+        if (result == null) {
+            result = expr.optimize(this);
+            this.done.put(expr, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param binder A binder of the original expression.
+     * @return The fresh binder replacing it, which should be bound in the optimized expression.
+     */
+    Binder copy(Binder binder) {
+        Binder result = this.copies.get(binder);
+        return result != null ? result : binder.copy(this.copies);
+    }
+
+    /**
+     * @param var A use of a variable in the original expression.
+     * @return The expression replacing the use.
+     */
+    Expression reference(LocalVar var) {
+        String name = var.getUniqueName();
+        if (this.isInlinable(name) && !this.kept.contains(name)) {
+            Expression value = this.inlined.get(name);
+            if (value != null) {
+                return value;
+            }
+
+            if (this.resolving.contains(name) || this.resolving.size() >= MAX_INLINE_DEPTH) {
+                // a binding that refers to itself, or one nested too deep, stays a binding after all
+                this.kept.add(name);
+            } else {
+                this.resolving.add(name);
+                value = this.rewrite(this.bindings.get(name).expr);
+                this.resolving.remove(name);
+                if (!this.kept.contains(name)) {
+                    this.inlined.put(name, value);
+                    return value;
+                }
+            }
+        }
+
+        Binder binder = this.copies.get(var.getBinder());
+        // variables bound outside of the expression are kept as they are
+        return binder == null ? var : new LocalVar(binder);
+    }
+
+    /**
+     * @param let A let expression of the original expression that is not a guard.
+     * @return The optimized let expression, or only its body if none of its bindings remain.
+     */
+    Expression optimizeLet(LetExpression let) {
+        List<Binder> binders = let.getBoundBinders();
+        List<Expression> exprs = let.getBoundExprs();
+        for (Binder binder : binders) {
+            this.copy(binder);
+        }
+
+        // a binding merged into an equal one is not written, so uses of its binder refer to the one kept instead
+        for (Binder binder : let.getBindings().keySet()) {
+            if (!this.copies.containsKey(binder)) {
+                binder.shareCopy(binders.get(let.getBoundNames().indexOf(binder.getUniqueName())), this.copies);
+            }
+        }
+
+        Expression body = this.rewrite(let.getBody());
+
+        // the bindings still needed are rewritten until no new ones turn up, which can only be found by rewriting
+        Expression[] rewritten = new Expression[binders.size()];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < binders.size(); i++) {
+                if (rewritten[i] == null && this.isNeeded(binders.get(i))) {
+                    rewritten[i] = this.rewrite(exprs.get(i));
+                    changed = true;
+                }
+            }
+
+            if (!changed) {
+                // a used binding that was not reached while rewriting, which can only happen in a shared subexpression
+                for (int i = 0; i < binders.size(); i++) {
+                    String name = binders.get(i).getUniqueName();
+                    if (rewritten[i] == null && binders.get(i).isVariable() && this.isLive(name)
+                            && !this.inlined.containsKey(name) && this.kept.add(name)) {
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        // the binders are added in reverse, so that they are written in the same order as in the original
+        List<Binder> newBinders = new ArrayList<>();
+        List<Expression> newExprs = new ArrayList<>();
+        for (int i = binders.size() - 1; i >= 0; i--) {
+            if (rewritten[i] != null) {
+                this.addFlattened(newBinders, newExprs, this.copy(binders.get(i)), rewritten[i]);
+            }
+        }
+
+        while (body instanceof LetExpression && !((LetExpression) body).isGuard) {
+            LetExpression inner = (LetExpression) body;
+            inner.getBindings().forEach((binder, expr) -> this.addFlattened(newBinders, newExprs, binder, expr));
+            body = inner.getBody();
+        }
+
+        if (newBinders.isEmpty()) {
+            return body;
+        }
+
+        LetExpression result = new LetExpression(body, false);
+        for (int i = 0; i < newBinders.size(); i++) {
+            result.addLetBinding(newBinders.get(i), newExprs.get(i));
+        }
+
+        return result;
+    }
+
+    /**
+     * Adds a binding, moving the bindings of a let expression bound to it up to the same level.
+     * @param binders The binders of the optimized let expression.
+     * @param exprs The bound expressions of the optimized let expression.
+     * @param binder The binder to add.
+     * @param expr The optimized expression bound.
+     */
+    private void addFlattened(List<Binder> binders, List<Expression> exprs, Binder binder, Expression expr) {
+        Expression bound = expr;
+        while (bound instanceof LetExpression && !((LetExpression) bound).isGuard) {
+            LetExpression inner = (LetExpression) bound;
+            // the names in the optimized expression are not fixed yet, so the bindings are taken as they were added
+            inner.getBindings().forEach((innerBinder, innerExpr) -> {
+                binders.add(innerBinder);
+                exprs.add(innerExpr);
+            });
+            bound = inner.getBody();
+        }
+
+        binders.add(binder);
+        exprs.add(bound);
+    }
+
+    /** @return Whether the binding of the name is used in the code that remains. */
+    private boolean isLive(String name) {
+        Binding binding = this.bindings.get(name);
+        return binding != null && binding.live;
+    }
+
+    /** @return Whether the binding of the binder is used, and not replaced at its uses. */
+    private boolean isNeeded(Binder binder) {
+        List<String> names = new ArrayList<>();
+        binder.collectBoundNames(names);
+        if (!binder.isVariable()) {
+            // a pattern binding is needed when any of its variables is used
+            return names.stream().anyMatch(this::isLive);
+        }
+
+        String name = names.get(0);
+        return this.isLive(name) && (!this.isInlinable(name) || this.kept.contains(name));
+    }
+
+    /** @return Whether the binding of the name may be replaced at its uses. */
+    private boolean isInlinable(String name) {
+        Binding binding = this.bindings.get(name);
+        if (binding == null || !binding.isVariable || !binding.live || this.ambiguous.contains(name)) {
+            return false;
+        }
+
+        Expression expr = binding.expr;
+        if (expr instanceof LocalVar || expr instanceof FunVar || expr instanceof Hole) {
+            return true;
+        }
+
+        return this.uses.getOrDefault(name, 0) == 1 && !this.usedInLambda.contains(name);
+    }
+}
@@ -0,0 +1,184 @@
+package nl.utwente.viskell.haskell.expr;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Plan for evaluating a number of expressions together, such as all displays that need updating in a refresh.
+ * Each expression carries its own copy of the let bindings it depends on, so a part of the graph that feeds several
+ * displays would be evaluated once per display. Bindings at the top of the expressions that occur in more than one
+ * of them are therefore moved out, to be bound once before the expressions are evaluated against them.
+ * <p>
+ * Equal bindings are recognized by the unique names of their binders, which are derived from the structure of the
+ * bound expressions, so they are equal between the expressions whenever the bound expressions are.
+ * </p>
+ */
+public final class SharedBindings {
+    /** The unique names of the shared bindings. */
+    private final List<String> names;
+
+    /** The bound expressions of the shared bindings, matching the names. */
+    private final List<Expression> bound;
+
+    /** The expressions to evaluate, without the shared bindings. */
+    private final List<Expression> expressions;
+
+    /**
+     * @param names The unique names of the shared bindings.
+     * @param bound The bound expressions of the shared bindings.
+     * @param expressions The expressions to evaluate, without the shared bindings.
+     */
+    private SharedBindings(List<String> names, List<Expression> bound, List<Expression> expressions) {
+        this.names = names;
+        this.bound = bound;
+        this.expressions = expressions;
+    }
+
+    /**
+     * @param exprs The expressions that are evaluated together.
+     * @return The plan with the bindings shared by the expressions.
+     */
+    public static SharedBindings plan(List<Expression> exprs) {
+        // the bound expressions by name, the number of expressions binding each name, and all names bound at the top
+        Map<String, Expression> definitions = new LinkedHashMap<>();
+        Map<String, Integer> uses = new HashMap<>();
+        Set<String> conflicts = new HashSet<>();
+        Set<String> topNames = new HashSet<>();
+
+        for (Expression expr : exprs) {
+            List<LetExpression> lets = new ArrayList<>();
+            expr.collectTopLets(lets);
+
+            Map<String, Expression> local = new HashMap<>();
+            for (LetExpression let : lets) {
+                List<Binder> binders = let.getBoundBinders();
+                for (int i = 0; i < binders.size(); i++) {
+                    binders.get(i).collectBoundNames(topNames);
+                    if (binders.get(i).isVariable()) {
+                        SharedBindings.define(local, let.getBoundNames().get(i), let.getBoundExprs().get(i), conflicts);
+                    }
+                }
+            }
+
+            for (Map.Entry<String, Expression> definition : local.entrySet()) {
+                SharedBindings.define(definitions, definition.getKey(), definition.getValue(), conflicts);
+                uses.merge(definition.getKey(), 1, Integer::sum);
+            }
+        }
+
+        Map<String, Set<String>> references = new HashMap<>();
+        for (Map.Entry<String, Integer> use : uses.entrySet()) {
+            if (use.getValue() > 1 && !conflicts.contains(use.getKey())) {
+                references.put(use.getKey(), SharedBindings.referencedNames(definitions.get(use.getKey())));
+            }
+        }
+
+        // a binding can only be moved out together with all the top level bindings it refers to
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (String name : new ArrayList<>(references.keySet())) {
+                for (String ref : references.get(name)) {
+                    if (topNames.contains(ref) && !references.containsKey(ref)) {
+                        references.remove(name);
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (references.isEmpty()) {
+            return new SharedBindings(ImmutableList.of(), ImmutableList.of(), ImmutableList.copyOf(exprs));
+        }
+
+        List<String> names = new ArrayList<>();
+        List<Expression> bound = new ArrayList<>();
+        for (Map.Entry<String, Expression> definition : definitions.entrySet()) {
+            if (references.containsKey(definition.getKey())) {
+                names.add(definition.getKey());
+                bound.add(definition.getValue());
+            }
+        }
+
+        List<Expression> expressions = new ArrayList<>(exprs.size());
+        for (Expression expr : exprs) {
+            expressions.add(expr.withoutBindings(references.keySet()));
+        }
+
+        return new SharedBindings(names, bound, expressions);
+    }
+
+    /** @return Whether there are no shared bindings, so that the expressions are unchanged. */
+    public boolean isEmpty() {
+        return this.names.isEmpty();
+    }
+
+    /** @return The number of shared bindings. */
+    public int size() {
+        return this.names.size();
+    }
+
+    /** @return The expressions to evaluate after the shared bindings, in the same order as given. */
+    public List<Expression> getExpressions() {
+        return this.expressions;
+    }
+
+    /**
+     * Writes the ghci command binding all shared bindings at once.
+     * @param out The destination of the command.
+     * @throws IOException if writing to the destination fails.
+     */
+    public void bindingsToHaskell(Appendable out) throws IOException {
+        out.append("let {");
+        for (int i = 0; i < this.names.size(); i++) {
+            out.append(this.names.get(i)).append(" = ");
+            this.bound.get(i).toHaskell(out);
+            out.append("; ");
+        }
+        out.append("}");
+    }
+
+    /**
+     * Adds a binding, marking the name as conflicting if it is already bound to a different expression.
+     * @param definitions The bound expressions by name.
+     * @param name The unique name of the binder.
+     * @param expr The bound expression.
+     * @param conflicts The names bound to different expressions.
+     */
+    private static void define(Map<String, Expression> definitions, String name, Expression expr, Set<String> conflicts) {
+        Expression previous = definitions.putIfAbsent(name, expr);
+        if (previous != null && previous.fingerprint() != expr.fingerprint()) {
+            conflicts.add(name);
+        }
+    }
+
+    /**
+     * @param expr An expression.
+     * @return The unique names of all local variables used in the expression.
+     */
+    private static Set<String> referencedNames(Expression expr) {
+        Set<String> names = new HashSet<>();
+        Deque<Expression> todo = new ArrayDeque<>();
+        todo.push(expr);
+        while (!todo.isEmpty()) {
+            Expression next = todo.pop();
+            if (next instanceof LocalVar) {
+                names.add(((LocalVar) next).getUniqueName());
+            }
+            next.getChildren().forEach(todo::push);
+        }
+
+        return names;
+    }
+}
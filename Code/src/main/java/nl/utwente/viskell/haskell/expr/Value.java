@@ -3,6 +3,8 @@ package nl.utwente.viskell.haskell.expr;
 import nl.utwente.viskell.haskell.type.HaskellTypeError;
 import nl.utwente.viskell.haskell.type.Type;
 
+import java.io.IOException;
+
 /**
  * Value in Haskell. Haskell values are always defined as String in Java. The responsibility of inputting a valid value,
  * e.g. wrapping a String in quotes, is the responsibility of the user.
@@ -41,8 +43,13 @@ public class Value extends Expression {
     }
 
     @Override
-    public final String toHaskell() {
-        return "(" + this.value + ")";
+    public final void toHaskell(Appendable out) throws IOException {
+        out.append('(').append(this.value).append(')');
+    }
+
+    @Override
+    protected final long computeFingerprint() {
+        return new Fingerprint("Value").add(this.value).add(this.type.prettyPrint()).get();
     }
 
     @Override
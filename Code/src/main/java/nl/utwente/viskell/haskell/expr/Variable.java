@@ -1,5 +1,7 @@
 package nl.utwente.viskell.haskell.expr;
 
+import java.io.IOException;
+
 /*
  * Anything that looks like using a variable in Haskell code. 
  */
@@ -18,8 +20,8 @@ public abstract class Variable extends Expression {
     }
 
     @Override
-    public String toHaskell() {
-        return this.name;
+    public void toHaskell(Appendable out) throws IOException {
+        out.append(this.name);
     }
 
 }
\ No newline at end of file
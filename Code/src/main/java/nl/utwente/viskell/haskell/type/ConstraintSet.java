@@ -1,17 +1,30 @@
 package nl.utwente.viskell.haskell.type;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public final class ConstraintSet {
 
+    /** The type class defaulting results by combination of type classes. */
+    private static final Cache<List<TypeClass>, Optional<ConcreteType>> defaults = CacheBuilder.newBuilder().maximumSize(256).build();
+
+    /** The number of times the defaulting results were invalidated, see defaultsVersion(). */
+    private static final AtomicInteger defaultsVersion = new AtomicInteger();
+
     /**
      * A set of type class constraints belonging to a single type object.
      */
     TreeSet<TypeClass> constraints;
 
+    /** The number of changes to this set, for invalidating what was derived from it. */
+    private int version;
+
     public ConstraintSet() {
         this.constraints = new TreeSet<>();
     }
@@ -33,6 +46,7 @@ public final class ConstraintSet {
     protected void addExtraConstraint(TypeClass tc) {
         this.constraints.add(tc);
         this.simplifyConstraints();
+        this.version++;
     }
 
     /**
@@ -41,8 +55,20 @@ public final class ConstraintSet {
     protected void addExtraConstraint(ConstraintSet extras) {
         this.constraints.addAll(extras.constraints);
         this.simplifyConstraints();
+        this.version++;
     }
     
+    /** Removes all constraints. */
+    void clear() {
+        this.constraints = new TreeSet<>();
+        this.version++;
+    }
+
+    /** @return The number of changes to this set so far. */
+    int getVersion() {
+        return this.version;
+    }
+
     /**
      * Checks whether the given type is within the constraints. 
      * If the set of constraints is empty, every type is within the constraints.
@@ -100,6 +126,7 @@ public final class ConstraintSet {
     protected void mergeConstraintsWith(ConstraintSet other) throws HaskellTypeError {
         this.constraints = new TreeSet<>(Sets.union(this.constraints, other.constraints));
         this.simplifyConstraints();
+        this.version++;
         this.checkSatisfiable();
     }
 
@@ -118,7 +145,40 @@ public final class ConstraintSet {
         }
     }
 
+    /**
+     * @return The type to use for this constraint set by type class defaulting, if any.
+     * The result is cached per combination of type classes, until any type class is changed.
+     */
     protected Optional<ConcreteType> tryGetDefaulted() {
+        if (this.constraints.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // type classes have identity equality, so different classes by the same name do not share results
+        List<TypeClass> key = ImmutableList.copyOf(this.constraints);
+        Optional<ConcreteType> result = ConstraintSet.defaults.getIfPresent(key);
+        if (result == null) {
+            result = this.findDefault();
+            ConstraintSet.defaults.put(key, result);
+        }
+
+        return result;
+    }
+
+    /** Clears the cached defaulting results, to be called whenever the instances or defaults of a type class change. */
+    static void invalidateDefaults() {
+        ConstraintSet.defaults.invalidateAll();
+        // the results cached per type depend on the type classes as well
+        ConstraintSet.defaultsVersion.incrementAndGet();
+    }
+
+    /** @return The version of the type classes as far as defaulting is concerned, changing whenever their instances or defaults change. */
+    static int defaultsVersion() {
+        return ConstraintSet.defaultsVersion.get();
+    }
+
+    /** @return The type to use for this constraint set by type class defaulting, if any. */
+    private Optional<ConcreteType> findDefault() {
         Set<TypeClass> classes = this.constraints;
         // search through the type classes for a suitable default
         while (!classes.isEmpty()) {
@@ -143,12 +203,29 @@ public final class ConstraintSet {
      * @return The readable representation of this type for in the UI.
      */
     public String prettyPrintWith(String typeText, final int fixity) {
+        TypePrinter out = new TypePrinter(Integer.MAX_VALUE);
+        boolean close = this.openPrettyPrint(out, fixity);
+        out.append(typeText);
+        if (close) {
+            out.append(")");
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Appends the readable representation of the constraints, to be followed by the constrained type.
+     * @param out The printer to append to.
+     * @param The fixity of the context the type is shown in.
+     * @return Whether a closing parenthesis needs to be appended after the constrained type.
+     */
+    boolean openPrettyPrint(TypePrinter out, final int fixity) {
         if (this.constraints.isEmpty()) {
-            return typeText;
+            return false;
         } else if (fixity < 9 && this.constraints.size() == 1) {
-            return this.constraints.iterator().next().getName() + " " + typeText;
+            out.append(this.constraints.iterator().next().getName()).append(" ");
+            return false;
         } else {
-            final StringBuilder out = new StringBuilder();
             out.append("(");
 
             int i = 0;
@@ -162,9 +239,7 @@ public final class ConstraintSet {
             }
 
             out.append(" ");
-            out.append(typeText);
-            out.append(")");
-            return out.toString();
+            return true;
         }
     }
     
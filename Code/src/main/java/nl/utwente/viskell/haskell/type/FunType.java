@@ -33,18 +33,22 @@ public class FunType extends ConcreteType {
     }
 
     @Override
-    public final String prettyPrint(final int fixity) {
-        final StringBuilder out = new StringBuilder();
+    final void prettyPrint(final TypePrinter out, final int fixity) {
+        if (out.isFull()) {
+            return;
+        }
 
-        out.append(this.argument.prettyPrint(1));
+        if (fixity > 0) {
+            out.append("(");
+        }
+
+        this.argument.prettyPrint(out, 1);
         out.append(" -> ");
-        out.append(this.result.prettyPrint(0));
+        this.result.prettyPrint(out, 0);
 
         if (fixity > 0) {
-            return "(" + out.toString() + ")";
+            out.append(")");
         }
-
-        return out.toString();
     }
 
     @Override
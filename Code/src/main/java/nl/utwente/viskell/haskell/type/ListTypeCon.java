@@ -9,13 +9,16 @@ public class ListTypeCon extends TypeCon {
     }
 
     @Override
-    protected String prettyPrintAppChain(final int fixity, final List<Type> args)
+    void prettyPrintAppChain(final TypePrinter out, final int fixity, final List<Type> args)
     {
         if (args.size() != 1) {
             // for the not exact applied tuple constructor use the prefix notation
-            return super.prettyPrintAppChain(fixity, args);
+            super.prettyPrintAppChain(out, fixity, args);
+            return;
         }
 
-        return "[" + args.get(0).prettyPrint(0) + "]";
+        out.append("[");
+        args.get(0).prettyPrint(out, 0);
+        out.append("]");
     }
 }
@@ -1,6 +1,5 @@
 package nl.utwente.viskell.haskell.type;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 
 import java.util.List;
@@ -27,12 +26,21 @@ public class TupleTypeCon extends TypeCon {
     }
 
     @Override
-    protected String prettyPrintAppChain(final int fixity, final List<Type> args) {
+    void prettyPrintAppChain(final TypePrinter out, final int fixity, final List<Type> args) {
         if (this.name.length() > args.size() + 2) {
             // for the partial applied tuple constructor use the prefix notation
-            super.prettyPrintAppChain(fixity, args);
+            super.prettyPrintAppChain(out, fixity, args);
+            return;
         }
         
-        return "(" + Joiner.on(", ").join(args.stream().map(a -> a.prettyPrint(0)).iterator()) + ")";
+        out.append("(");
+        for (int i = 0; i < args.size() && !out.isFull(); i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+
+            args.get(i).prettyPrint(out, 0);
+        }
+        out.append(")");
     }
 }
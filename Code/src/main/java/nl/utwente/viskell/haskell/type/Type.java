@@ -1,7 +1,5 @@
 package nl.utwente.viskell.haskell.type;
 
-import com.google.common.base.Joiner;
-
 import java.util.List;
 import java.util.Optional;
 
@@ -10,6 +8,41 @@ import java.util.Optional;
  */
 public abstract class Type {
 
+    /** A printed form of a type, with the parts of the type it depends on. */
+    private static final class Printed {
+        /** The maximum length the text was abbreviated to, or Integer.MAX_VALUE if it is complete. */
+        private final int maxLength;
+        private final String text;
+        private final TypeDependencies dependencies;
+
+        private Printed(int maxLength, String text, TypeDependencies dependencies) {
+            this.maxLength = maxLength;
+            this.text = text;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /** The last result of prettyPrint() or prettyPrintBounded(), or null. */
+    private volatile Printed printed;
+
+    /** A result of defaulting a type, with the filler used and the parts of the type and type classes it depends on. */
+    private static final class Defaulted {
+        private final TypeDependencies dependencies;
+        private final int defaultsVersion;
+        private final ConcreteType backupFiller;
+        private final Optional<Type> result;
+
+        private Defaulted(TypeDependencies dependencies, int defaultsVersion, ConcreteType backupFiller, Optional<Type> result) {
+            this.dependencies = dependencies;
+            this.defaultsVersion = defaultsVersion;
+            this.backupFiller = backupFiller;
+            this.result = result;
+        }
+    }
+
+    /** The last result of defaultedConcreteType(), or null. */
+    private volatile Defaulted defaulted;
+
 	/** @return The number of arguments that can be applied to a value of this type. */
 	public int countArguments() {
 		int count = 0;
@@ -24,9 +57,15 @@ public abstract class Type {
 	
     /**
      * @return The readable representation of this type for in the UI.
+     * The text is cached until a type variable or constraint set within this type is modified.
      */
     public String prettyPrint() {
-        return this.prettyPrint(0);
+        Printed cached = this.printed;
+        if (cached == null || cached.maxLength != Integer.MAX_VALUE || !cached.dependencies.isCurrent()) {
+            cached = this.print(Integer.MAX_VALUE);
+        }
+
+        return cached.text;
     }
 
     /**
@@ -34,25 +73,73 @@ public abstract class Type {
      * The fixity is small positive number derived from operator precedence (see also Section 4.4.2 of the Haskell language report)
      * @return The readable representation of this type for in the UI.
      */
-    public abstract String prettyPrint(final int fixity);
+    public String prettyPrint(final int fixity) {
+        TypePrinter out = new TypePrinter(Integer.MAX_VALUE);
+        this.prettyPrint(out, fixity);
+        return out.toString();
+    }
+
+    /**
+     * @param maxLength The maximum length of the result, at least 1.
+     * @return The readable representation of this type, abbreviated with an ellipsis if it is longer than maxLength.
+     * Printing stops once the limit is reached, so this is cheap even for huge types.
+     * The text is cached like that of prettyPrint().
+     */
+    public String prettyPrintBounded(final int maxLength) {
+        Printed cached = this.printed;
+        if (cached == null || (cached.maxLength != Integer.MAX_VALUE && cached.maxLength != maxLength) || !cached.dependencies.isCurrent()) {
+            cached = this.print(maxLength);
+        }
+
+        return TypePrinter.abbreviate(cached.text, maxLength);
+    }
+
+    /**
+     * Prints this type, and caches the result together with the parts of this type that were printed.
+     * @param maxLength The maximum length of the result, at least 1.
+     * @return The printed form of this type.
+     */
+    private Printed print(final int maxLength) {
+        TypeDependencies dependencies = new TypeDependencies();
+        TypePrinter out = new TypePrinter(maxLength, dependencies);
+        this.prettyPrint(out, 0);
+        // a text that fits is complete, so it serves any maximum length
+        Printed printed = new Printed(out.isFull() ? maxLength : Integer.MAX_VALUE, out.toString(), dependencies.freeze());
+        this.printed = printed;
+        return printed;
+    }
 
-    
     /**
+     * Appends the readable representation of this type.
+     * @param out The printer to append to.
+     * @param fixity of the context the type is shown in.
+     */
+    abstract void prettyPrint(final TypePrinter out, final int fixity);
+
+    /**
+     * Appends the readable representation of this type applied to a list of types.
+     * @param out The printer to append to.
      * @param fixity of the context the type is shown in.
      * @param args list of types applied to this type.
-     * @return the pretty representation of this type a list of of types 
      */
-    protected String prettyPrintAppChain(final int fixity, final List<Type> args) {
-        final StringBuilder out = new StringBuilder();
-        out.append(this.prettyPrint(10));
-        out.append(' ');
-        out.append(Joiner.on(' ').join(args.stream().map(a -> a.prettyPrint(10)).iterator()));
-        
+    void prettyPrintAppChain(final TypePrinter out, final int fixity, final List<Type> args) {
         if (fixity > 1) {
-            return "(" + out.toString() + ")";
+            out.append("(");
         }
 
-        return out.toString();
+        this.prettyPrint(out, 10);
+        for (Type arg : args) {
+            if (out.isFull()) {
+                break;
+            }
+
+            out.append(" ");
+            arg.prettyPrint(out, 10);
+        }
+
+        if (fixity > 1) {
+            out.append(")");
+        }
     }
 
     /**
@@ -90,19 +177,40 @@ public abstract class Type {
      * Attempts to produce a concrete type with all type variables instantiated.
      * @param backupFiller the type to use when no type can be found using type class defaulting.
      * @return a type without any polymorphism, if successful.
+     * The result is cached until a type variable or constraint set within this type, or a type class, is modified.
+     * The result should not be modified.
      */
     public Optional<Type> defaultedConcreteType(ConcreteType backupFiller) {
+        Defaulted cached = this.defaulted;
+        if (cached != null && cached.backupFiller.equals(backupFiller) &&
+                cached.defaultsVersion == ConstraintSet.defaultsVersion() && cached.dependencies.isCurrent()) {
+            return cached.result;
+        }
+
+        int defaultsVersion = ConstraintSet.defaultsVersion();
+
+        Optional<Type> result;
         Type ftype = this.getFresh();
-        try {
-            for (TypeVar.TypeInstance tvi : TypeScope.gatherAllTypeVarInsts(ftype)) {
-                tvi.defaultOrElse(backupFiller);
+        List<TypeVar.TypeInstance> instances = TypeScope.gatherAllTypeVarInsts(ftype);
+        if (instances.isEmpty()) {
+            // without type variables there is nothing to default, nor to validate
+            result = Optional.of(ftype.getConcrete());
+        } else {
+            try {
+                for (TypeVar.TypeInstance tvi : instances) {
+                    tvi.defaultOrElse(backupFiller);
+                }
+                Type ctype = ftype.getConcrete();
+                TypeChecker.unify("defaulting validation", ctype.getFresh(), this.getFresh());
+                result = Optional.of(ctype);
+            } catch (HaskellTypeError e) {
+                result = Optional.empty();
             }
-            Type ctype = ftype.getConcrete();
-            TypeChecker.unify("defaulting validation", ctype.getFresh(), this.getFresh());
-            return Optional.of(ctype);
-        } catch (HaskellTypeError e) {
-            return Optional.empty();
         }
+
+        // defaulting only modified the fresh copies, so the state of this type after it is the one the result is for
+        this.defaulted = new Defaulted(TypeDependencies.of(this), defaultsVersion, backupFiller, result);
+        return result;
     }
 
     /**
@@ -17,7 +17,7 @@ public class TypeApp extends ConcreteType {
     private final Type typeArg;
     
     /** The set of constraints attached to this type application that can not yet be propagated further. */
-    private ConstraintSet constraints;
+    private final ConstraintSet constraints;
     
     TypeApp(Type typeFun, Type typearg) {
         this.typeFun = typeFun;
@@ -41,7 +41,7 @@ public class TypeApp extends ConcreteType {
      * Remove all constraints from this type application, to be used only after all are satisfied.
      */
     protected void clearConstraints() {
-    	this.constraints = new ConstraintSet();
+    	this.constraints.clear();
     }
     
     /**
@@ -53,14 +53,18 @@ public class TypeApp extends ConcreteType {
     }
 
     @Override
-    public String prettyPrint(int fixity) {
+    void prettyPrint(TypePrinter out, int fixity) {
         List<Type> chain = this.asFlattenedAppChain();
         Type ftype = chain.remove(0);
+        out.dependOn(this.constraints);
         if (this.constraints.hasConstraints()) {
-            String apptype = ftype.prettyPrintAppChain(9, chain);
-            return this.constraints.prettyPrintWith(apptype, fixity);
+            boolean close = this.constraints.openPrettyPrint(out, fixity);
+            ftype.prettyPrintAppChain(out, 9, chain);
+            if (close) {
+                out.append(")");
+            }
         } else {
-           return ftype.prettyPrintAppChain(fixity, chain);
+           ftype.prettyPrintAppChain(out, fixity, chain);
         }
     }
 
@@ -0,0 +1,329 @@
+package nl.utwente.viskell.haskell.type;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact store for many long lived type schemes, such as the signatures of all functions in a catalog.
+ * Instead of a graph of objects per type, all nodes are kept in a few parallel arrays and referred to by int handles.
+ * Equal nodes are stored only once, so common parts like type constructors and whole argument types are shared.
+ * <p>
+ * The type checker works on the object model, so a stored type is turned into a fresh Type again when it is used.
+ * Only the structure, names and constraints of type variables are stored: instantiated type variables are replaced
+ * by their instance, and rigidity and deferred type application constraints are dropped, like they are by getFresh().
+ * </p>
+ * All methods are thread safe. Storing types takes a lock, but instantiating them does not, as the tables are only
+ * ever appended to and each store publishes the part that is finished.
+ */
+public final class TypeArena {
+    /** Node kind of a type constructor, the first field is the name. */
+    private static final byte CON = 0;
+
+    /** Node kind of a type application, the first two fields are the function and the argument. */
+    private static final byte APP = 1;
+
+    /** Node kind of a function type, the first two fields are the argument and the result. */
+    private static final byte FUN = 2;
+
+    /** Node kind of a type variable, the fields are the name, the constraint set, and the number within the type. */
+    private static final byte VAR = 3;
+
+    /** Node kind of an internally generated type variable, with the same fields as VAR. */
+    private static final byte INTERNAL_VAR = 4;
+
+    /** The kind of each node. */
+    private byte[] kinds;
+
+    /** The first field of each node. */
+    private int[] firsts;
+
+    /** The second field of each node. */
+    private int[] seconds;
+
+    /** The third field of each node. */
+    private int[] thirds;
+
+    /** The number of nodes. */
+    private int size;
+
+    /** Open addressing hash table of node handles plus one, with zero for an empty slot, for finding equal nodes. */
+    private int[] table;
+
+    /** The names of type constructors and variables, by id. */
+    private String[] names;
+
+    /** The number of names. */
+    private int nameCount;
+
+    /** The ids of the names. */
+    private final Map<String, Integer> nameIds;
+
+    /** The type constructor objects for the names used as such, as they are immutable they can be shared. */
+    private TypeCon[] typeCons;
+
+    /** The constraint sets of type variables by id, with the empty set at 0. */
+    private ConstraintSet[] constraintSets;
+
+    /** The number of constraint sets. */
+    private int constraintCount;
+
+    /** The ids of the constraint sets, by their type classes. */
+    private final Map<List<TypeClass>, Integer> constraintIds;
+
+    /** The tables as far as they are finished, for instantiating without taking the lock. */
+    private volatile Nodes nodes;
+
+    public TypeArena() {
+        this.kinds = new byte[256];
+        this.firsts = new int[256];
+        this.seconds = new int[256];
+        this.thirds = new int[256];
+        this.size = 0;
+        this.table = new int[512];
+        this.names = new String[64];
+        this.nameCount = 0;
+        this.nameIds = new HashMap<>();
+        this.typeCons = new TypeCon[64];
+        this.constraintSets = new ConstraintSet[16];
+        this.constraintSets[0] = new ConstraintSet();
+        this.constraintCount = 1;
+        this.constraintIds = new HashMap<>();
+        this.constraintIds.put(ImmutableList.of(), 0);
+        this.publish();
+    }
+
+    /**
+     * Stores a type.
+     * @param type The type to store, it is not modified.
+     * @return The handle of the stored type.
+     */
+    public synchronized int intern(Type type) {
+        int handle = this.intern(type, new ArrayList<>());
+        this.publish();
+        return handle;
+    }
+
+    /**
+     * @param handle A handle returned by intern.
+     * @return A new type equivalent to the stored one, using fresh type variables.
+     */
+    public Type instantiate(int handle) {
+        Nodes finished = this.nodes;
+        if (handle < 0 || handle >= finished.size) {
+            throw new IllegalArgumentException("Invalid type handle " + handle);
+        }
+
+        return finished.instantiate(handle, new ArrayList<>());
+    }
+
+    /** @return The number of distinct nodes stored. */
+    public int size() {
+        return this.nodes.size;
+    }
+
+    /** Makes the nodes added so far available to instantiate. */
+    private void publish() {
+        // the arrays are only written beyond the published sizes, or replaced by larger copies
+        this.nodes = new Nodes(this.kinds, this.firsts, this.seconds, this.thirds, this.size, this.names, this.typeCons, this.constraintSets);
+    }
+    /**
+     * @param type The type to store.
+     * @param vars The type variables seen so far in the type, in order of their numbers.
+     * @return The handle of the stored type.
+     */
+    private int intern(Type type, List<TypeVar> vars) {
+        if (type instanceof TypeVar) {
+            TypeVar var = (TypeVar) type;
+            if (var.hasConcreteInstance()) {
+                return this.intern(var.getInstantiatedType(), vars);
+            }
+
+            // TypeVar equality is by instance, and types have few variables, so a list is good enough
+            int number = vars.indexOf(var);
+            if (number < 0) {
+                number = vars.size();
+                vars.add(var);
+            }
+
+            byte kind = var.isInternal() ? INTERNAL_VAR : VAR;
+            return this.node(kind, this.nameId(var.getName()), this.constraintId(var.getConstraints()), number);
+        }
+
+        if (type instanceof FunType) {
+            FunType ftype = (FunType) type;
+            int arg = this.intern(ftype.getArgument(), vars);
+            return this.node(FUN, arg, this.intern(ftype.getResult(), vars), 0);
+        }
+
+        if (type instanceof TypeApp) {
+            TypeApp tapp = (TypeApp) type;
+            int fun = this.intern(tapp.getTypeFun(), vars);
+            return this.node(APP, fun, this.intern(tapp.getTypeArg(), vars), 0);
+        }
+
+        if (type instanceof TypeCon) {
+            int name = this.nameId(((TypeCon) type).getName());
+            if (this.typeCons[name] == null) {
+                this.typeCons[name] = Type.con(this.names[name]);
+            }
+            return this.node(CON, name, 0, 0);
+        }
+
+        throw new IllegalArgumentException("Can not store type " + type);
+    }
+
+    /**
+     * @return The handle of the node with the given fields, added if there is no such node yet.
+     */
+    private int node(byte kind, int first, int second, int third) {
+        int mask = this.table.length - 1;
+        int slot = TypeArena.hash(kind, first, second, third) & mask;
+        while (this.table[slot] != 0) {
+            int handle = this.table[slot] - 1;
+            if (this.kinds[handle] == kind && this.firsts[handle] == first && this.seconds[handle] == second && this.thirds[handle] == third) {
+                return handle;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (this.size == this.kinds.length) {
+            int capacity = this.size * 2;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.firsts = Arrays.copyOf(this.firsts, capacity);
+            this.seconds = Arrays.copyOf(this.seconds, capacity);
+            this.thirds = Arrays.copyOf(this.thirds, capacity);
+        }
+
+        int handle = this.size++;
+        this.kinds[handle] = kind;
+        this.firsts[handle] = first;
+        this.seconds[handle] = second;
+        this.thirds[handle] = third;
+        this.table[slot] = handle + 1;
+
+        if (this.size * 2 > this.table.length) {
+            this.rehash();
+        }
+
+        return handle;
+    }
+
+    /** Doubles the size of the hash table. */
+    private void rehash() {
+        this.table = new int[this.table.length * 2];
+        int mask = this.table.length - 1;
+        for (int handle = 0; handle < this.size; handle++) {
+            int slot = TypeArena.hash(this.kinds[handle], this.firsts[handle], this.seconds[handle], this.thirds[handle]) & mask;
+            while (this.table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.table[slot] = handle + 1;
+        }
+    }
+
+    /** @return The hash of the fields of a node. */
+    private static int hash(byte kind, int first, int second, int third) {
+        int h = kind;
+        h = h * 0x9E3779B1 + first;
+        h = h * 0x9E3779B1 + second;
+        h = h * 0x9E3779B1 + third;
+        return h ^ (h >>> 16);
+    }
+
+    /** @return The id of a name, added if it is new. */
+    private int nameId(String name) {
+        Integer id = this.nameIds.get(name);
+        if (id == null) {
+            id = this.nameCount++;
+            if (id == this.names.length) {
+                this.names = Arrays.copyOf(this.names, id * 2);
+                this.typeCons = Arrays.copyOf(this.typeCons, id * 2);
+            }
+            this.names[id] = name;
+            this.nameIds.put(name, id);
+        }
+
+        return id;
+    }
+
+    /** @return The id of a constraint set, added if it is new. */
+    private int constraintId(ConstraintSet constraints) {
+        // type classes are compared by identity, as different catalogs may have different classes by the same name
+        List<TypeClass> classes = ImmutableList.copyOf(constraints.constraints);
+        Integer id = this.constraintIds.get(classes);
+        if (id == null) {
+            id = this.constraintCount++;
+            if (id == this.constraintSets.length) {
+                this.constraintSets = Arrays.copyOf(this.constraintSets, id * 2);
+            }
+            this.constraintSets[id] = constraints.clone();
+            this.constraintIds.put(classes, id);
+        }
+
+        return id;
+    }
+
+    /** The node tables up to a given size, which are not changed anymore. */
+    private static final class Nodes {
+        private final byte[] kinds;
+        private final int[] firsts;
+        private final int[] seconds;
+        private final int[] thirds;
+        private final int size;
+        private final String[] names;
+        private final TypeCon[] typeCons;
+        private final ConstraintSet[] constraintSets;
+
+        private Nodes(byte[] kinds, int[] firsts, int[] seconds, int[] thirds, int size, String[] names, TypeCon[] typeCons, ConstraintSet[] constraintSets) {
+            this.kinds = kinds;
+            this.firsts = firsts;
+            this.seconds = seconds;
+            this.thirds = thirds;
+            this.size = size;
+            this.names = names;
+            this.typeCons = typeCons;
+            this.constraintSets = constraintSets;
+        }
+
+        /**
+         * @param handle The node to instantiate.
+         * @param vars The fresh type variables created so far, by their numbers.
+         * @return The new type for the node.
+         */
+        private Type instantiate(int handle, List<TypeVar> vars) {
+            int first = this.firsts[handle];
+            int second = this.seconds[handle];
+            switch (this.kinds[handle]) {
+                case CON:
+                    return this.typeCons[first];
+
+                case APP:
+                    return new TypeApp(this.instantiate(first, vars), this.instantiate(second, vars));
+
+                case FUN:
+                    return new FunType(this.instantiate(first, vars), this.instantiate(second, vars));
+
+                default:
+                    int number = this.thirds[handle];
+                    while (vars.size() <= number) {
+                        vars.add(null);
+                    }
+
+                    TypeVar var = vars.get(number);
+                    if (var == null) {
+                        var = new TypeVar(this.names[first], this.kinds[handle] == INTERNAL_VAR);
+                        if (second != 0) {
+                            var.introduceConstrainst(this.constraintSets[second]);
+                        }
+                        vars.set(number, var);
+                    }
+                    return var;
+            }
+        }
+    }
+}
@@ -2,7 +2,10 @@ package nl.utwente.viskell.haskell.type;
 
 import nl.utwente.viskell.haskell.expr.Expression;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,74 +29,146 @@ public final class TypeChecker {
     private TypeChecker() {
     }
 
+    /** Counter to give every occurs check a unique number for marking the visited type variables. */
+    private static final AtomicInteger visits = new AtomicInteger();
+
+    /** The worklist of each thread, to avoid allocating one for every unification. */
+    private static final ThreadLocal<Worklist> worklists = ThreadLocal.withInitial(Worklist::new);
+
+    /**
+     * Unifies two types, with an expression as context for errors.
+     * @throws HaskellTypeError if the types can not be unified.
+     */
     public static void unify(final Expression context, final Type a, final Type b) throws HaskellTypeError {
-        TypeChecker.unify(context.toString(), a, b);
+        TypeChecker.unifyIn(context, a, b);
     }
-    
+
+    /**
+     * Unifies two types, with a fixed description as context for errors.
+     * @throws HaskellTypeError if the types can not be unified.
+     */
     public static void unify(final String context, final Type a, final Type b) throws HaskellTypeError {
-        
-        TypeChecker.logger.info(String.format("Unifying types %s and %s for context %s", a, b, context));
-
-        if (a.equals(b)) {
-            // for identical types unifying is trivial
-        } else if (a instanceof TypeVar) {
-            TypeVar va = (TypeVar) a;
-
-            // First, prevent ourselves from going into an infinite loop
-            if (b.containsOccurenceOf(va)) {
-                TypeChecker.logger.info(String.format("Recursion in types %s and %s for context %s", a, b, context));
-                throw new HaskellTypeError(String.format("%s ∈ %s in context of %s", a, b, context));
-            }
+        TypeChecker.unifyIn(context, a, b);
+    }
+
+    /**
+     * Unifies two types, with a context for errors that is only produced if unification fails.
+     * @throws HaskellTypeError if the types can not be unified.
+     */
+    public static void unify(final Supplier<String> context, final Type a, final Type b) throws HaskellTypeError {
+        TypeChecker.unifyIn(context, a, b);
+    }
+
+    /**
+     * Unifies two types iteratively using the worklist of the current thread, so that deep types can not overflow the stack.
+     * Apart from the new bindings of type variables nothing is allocated, unless unification fails.
+     * @param context The context for errors, either a Supplier of the description or an object whose toString describes it.
+     */
+    private static void unifyIn(final Object context, final Type a, final Type b) throws HaskellTypeError {
+        Worklist work = TypeChecker.worklists.get();
+        final int base = work.size;
+        try {
+            work.push(a, b);
+            while (work.size > base) {
+                Type y = (Type) work.pop();
+                Type x = (Type) work.pop();
 
-            if (va.hasConcreteInstance()) {
-                // if a type variable has been instantiated already then we can just unify b with a concrete type of a
-                TypeChecker.unify(context, va.getInstantiatedType(), b);
-            } else if (b instanceof TypeVar) {
-                TypeVar vb = (TypeVar) b;
-                
-                if (vb.hasConcreteInstance()) {
-                    // with type variable b instantiated continue with unifying type variable a with the concrete type of b
-                    TypeChecker.unify(context, va, vb.getInstantiatedType());
+                if (x.equals(y)) {
+                    // for identical types unifying is trivial
+                } else if (x instanceof TypeVar) {
+                    TypeVar vx = (TypeVar) x;
+
+                    if (vx.hasConcreteInstance()) {
+                        // if a type variable has been instantiated already then we can just unify y with a concrete type of x
+                        work.push(vx.getInstantiatedType(), y);
+                    } else if (y instanceof TypeVar) {
+                        TypeVar vy = (TypeVar) y;
+
+                        if (vy.hasConcreteInstance()) {
+                            // with type variable y instantiated continue with unifying type variable x with the concrete type of y
+                            work.push(vx, vy.getInstantiatedType());
+                        } else {
+                            // two plain type variable are unified by sharing the internal reference of (future) type instance
+                            vy.unifyWith(vx);
+                        }
+                    } else if (y instanceof ConcreteType) {
+                        ConcreteType ty = (ConcreteType) y;
+                        // prevent ourselves from going into an infinite loop, only binding can introduce a cycle
+                        if (TypeChecker.occurs(work, vx, ty)) {
+                            throw TypeChecker.failure(context, "%s ∈ %s in context of %s", x, y);
+                        }
+
+                        // check that the type satisfy the constraints
+                        TypeChecker.satisfyIn(context, ty, vx.getConstraints());
+                        // then make the type variable instantiated by this concrete type
+                        vx.setConcreteInstance(ty);
+                    }
+                } else if (y instanceof TypeVar && x instanceof ConcreteType) {
+                    // Example: we have to unify Int and α.
+                    // Same as above, but mirrored.
+                    work.push(y, x);
+                } else if (x instanceof TypeCon && y instanceof TypeCon) {
+                    // unification of type constructor is just name equality
+                    if (! ((TypeCon) x).getName().equals(((TypeCon) y).getName())) {
+                        throw TypeChecker.failure(context, "%s ⊥ %s in context of %s", x, y);
+                    }
+                } else if (x instanceof FunType && y instanceof FunType) {
+                    // Unifying function types is pairwise unification of its argument and result, the argument first.
+                    FunType fx = (FunType) x;
+                    FunType fy = (FunType) y;
+                    work.push(fx.getResult(), fy.getResult());
+                    work.push(fx.getArgument(), fy.getArgument());
+                } else if (x instanceof TypeApp && y instanceof TypeApp) {
+                    // Unifying type applications is pairwise unification of its typeFun and typeArg, the typeFun first.
+                    TypeApp tx = (TypeApp) x;
+                    TypeApp ty = (TypeApp) y;
+                    work.push(tx.getTypeArg(), ty.getTypeArg());
+                    work.push(tx.getTypeFun(), ty.getTypeFun());
                 } else {
-                    // two plain type variable are unified by sharing the internal reference of (future) type instance   
-                    vb.unifyWith(va);
+                    // Running out of things that can be unified, so bail out with a type error.
+                    throw TypeChecker.failure(context, "%s ⊥ %s in context of %s", x, y);
                 }
-            } else if (b instanceof ConcreteType) {
-                ConcreteType tb = (ConcreteType) b;
-                // check that the type satisfy the constraints
-                TypeChecker.satisfyConstraints(tb, va.getConstraints(), context);
-                // then make the type variable instantiated by this concrete type 
-                va.setConcreteInstance(tb);
             }
-        } else if (b instanceof TypeVar && a instanceof ConcreteType) {
-            // Example: we have to unify Int and α.
-            // Same as above, but mirrored.
-            TypeChecker.unify(context, b, a);
-        } else if (a instanceof TypeCon && b instanceof TypeCon) {
-            final TypeCon ca = (TypeCon) a;
-            final TypeCon cb = (TypeCon) b;
-            // unification of type constructor is just name equality
-            if (! ca.getName().equals(cb.getName()))
-            {
-                TypeChecker.logger.info(String.format("Mismatching TypeCon %s and %s for context %s", a, b, context));
-                throw new HaskellTypeError(String.format("%s ⊥ %s in context of %s", a, b, context));
+        } finally {
+            work.truncate(base);
+        }
+    }
+
+    /**
+     * @param work The worklist to use, which is left as it was.
+     * @param tvar The type variable to look for.
+     * @param type The type to look in.
+     * @return Whether the type variable occurs in the type, including in the instances of type variables.
+     */
+    private static boolean occurs(Worklist work, TypeVar tvar, Type type) {
+        // the instance of a type variable is often shared by many parts of a type, but needs to be searched only once
+        final int visit = TypeChecker.visits.incrementAndGet();
+        final int base = work.size;
+        try {
+            work.push(type);
+            while (work.size > base) {
+                Type t = (Type) work.pop();
+                if (t instanceof TypeVar) {
+                    TypeVar tv = (TypeVar) t;
+                    // If type variable share the same instance then they have been unified to a single one.
+                    if (tv.equals(tvar)) {
+                        return true;
+                    }
+                    if (tv.hasConcreteInstance() && tv.markVisited(visit)) {
+                        work.push(tv.getInstantiatedType());
+                    }
+                } else if (t instanceof FunType) {
+                    work.push(((FunType) t).getResult());
+                    work.push(((FunType) t).getArgument());
+                } else if (t instanceof TypeApp) {
+                    work.push(((TypeApp) t).getTypeArg());
+                    work.push(((TypeApp) t).getTypeFun());
+                }
             }
-        } else if (a instanceof FunType && b instanceof FunType) {
-            // Unifying function types is pairwise unification of its argument and result. 
-            FunType fa = (FunType) a;
-            FunType fb = (FunType) b;
-            TypeChecker.unify(context, fa.getArgument(), fb.getArgument());
-            TypeChecker.unify(context, fa.getResult(), fb.getResult());
-        } else if (a instanceof TypeApp && b instanceof TypeApp) {
-            // Unifying type applications is pairwise unification of its typeFun and typeArg. 
-            TypeApp ta = (TypeApp) a;
-            TypeApp tb = (TypeApp) b;
-            TypeChecker.unify(context, ta.getTypeFun(), tb.getTypeFun());
-            TypeChecker.unify(context, ta.getTypeArg(), tb.getTypeArg());
-        } else {
-            // Running out of things that can be unified, so bail out with a type error.
-            TypeChecker.logger.info(String.format("Given up to unify types %s and %s for context %s", a, b, context));
-            throw new HaskellTypeError(String.format("%s ⊥ %s in context of %s", a, b, context));
+
+            return false;
+        } finally {
+            work.truncate(base);
         }
     }
 
@@ -102,32 +177,64 @@ public final class TypeChecker {
      * 
      * @param type A concrete type which is affected by the constraints
      * @param constraints The set of constraint that need to be satisfied.
-     * @param context the expression string to use as context in errors. 
+     * @param context the description of the context to use in errors, only produced when needed.
      * @throws HaskellTypeError if the constraints can no be satisfied by this type.
      */
-    protected static void satisfyConstraints(Type type, ConstraintSet constraints, String context) throws HaskellTypeError {
+    protected static void satisfyConstraints(Type type, ConstraintSet constraints, Supplier<String> context) throws HaskellTypeError {
+        TypeChecker.satisfyIn(context, type, constraints);
+    }
+
+    /**
+     * Iterative implementation of satisfyConstraints, using the worklist of the current thread.
+     * @param context The context for errors, either a Supplier of the description or an object whose toString describes it.
+     */
+    private static void satisfyIn(Object context, Type type, ConstraintSet constraints) throws HaskellTypeError {
         if (! constraints.hasConstraints()) {
             // empty constraints are always satisfied.
             return;
         }
-        
+
+        Worklist work = TypeChecker.worklists.get();
+        final int base = work.size;
+        try {
+            work.push(type, constraints);
+            while (work.size > base) {
+                ConstraintSet cs = (ConstraintSet) work.pop();
+                Type t = (Type) work.pop();
+                if (TypeChecker.satisfyStep(work, t, cs)) {
+                    continue;
+                }
+
+                // for now, constraining other types will fail.
+                throw TypeChecker.failure(context, "%s ∉ constraints of %s in context of %s", t, cs);
+            }
+        } finally {
+            work.truncate(base);
+        }
+    }
+
+    /**
+     * Checks the constraints for a single type, pushing the checks for type arguments on the worklist.
+     * @return Whether the constraints are (or will be) satisfied, false if they can not be.
+     */
+    private static boolean satisfyStep(Worklist work, Type type, ConstraintSet constraints) {
+        if (! constraints.hasConstraints()) {
+            return true;
+        }
+
         if (type instanceof TypeVar) {
             TypeVar tv = (TypeVar) type;
             if (tv.hasConcreteInstance()) {
                 // just constrain the concrete instantiation
-                TypeChecker.satisfyConstraints(tv.getInstantiatedType(), constraints, context);
-                return;
+                work.push(tv.getInstantiatedType(), constraints);
             } else {
                 // add extra constraint for this type variable
                 tv.introduceConstrainst(constraints);
-                return;
             }
+            return true;
         } else if (type instanceof TypeCon) {
-            TypeCon tc = (TypeCon)type;
-            // directly check if all constraints are satisfied 
-            if (constraints.allConstraintsMatch(tc)) {
-                return;
-            }
+            // directly check if all constraints are satisfied
+            return constraints.allConstraintsMatch((TypeCon) type);
         } else if (type instanceof TypeApp) {
             TypeApp ta = (TypeApp)type;
             List<Type> chain = ta.asFlattenedAppChain();
@@ -135,34 +242,82 @@ public final class TypeChecker {
             
             // use the instantiated type instead, if available.
             if (ctype instanceof TypeVar && ((TypeVar)ctype).hasConcreteInstance()) {
-            	ctype = ((TypeVar)ctype).getInstantiatedType();
+                ctype = ((TypeVar)ctype).getInstantiatedType();
             }
             
             // check if the head of a type application chain is a known type constructor 
             if (ctype instanceof TypeCon) {
                 TypeCon tc = (TypeCon)ctype;
                 if (constraints.allConstraintsMatch(tc)) {
-                    // also for all type arguments add implied constraint as needed
+                    // also for all type arguments add implied constraint as needed, to be checked in order
                     int arity = chain.size();
                     List<ConstraintSet> argConstraints = constraints.getImpliedArgConstraints(tc, arity);
-                    for (int i = 0; i < arity; i++) {
-                        TypeChecker.satisfyConstraints(chain.get(i), argConstraints.get(i), context);
+                    for (int i = arity - 1; i >= 0; i--) {
+                        work.push(chain.get(i), argConstraints.get(i));
                     }
-                    // all satisfied, done
-                    return;
+                    return true;
                 }
             } else if (ctype instanceof TypeVar) {
-            	// in case of a type variable application we add the constraints
-            	ta.extendConstraints(constraints);
-            	((TypeVar)ctype).addConstrainedTypeApp(ta);
-            	// done for now, the constraint satisfaction check is deferred to later
-            	return;
+                // in case of a type variable application we add the constraints
+                ta.extendConstraints(constraints);
+                ((TypeVar)ctype).addConstrainedTypeApp(ta);
+                // done for now, the constraint satisfaction check is deferred to later
+                return true;
             }
         }
-        
-        // for now, constraining other types will fail.
-        TypeChecker.logger.info(String.format("Unable to unify types %s with constraints %s for context %s", type, constraints, context));
-        throw new HaskellTypeError(String.format("%s ∉ constraints of %s in context of %s", type, constraints, context));
+
+        return false;
+    }
+
+    /**
+     * @param context The context, either a Supplier of the description or an object whose toString describes it.
+     * @param format The format of the message, with the context as last argument.
+     * @param x The first type or constraint involved.
+     * @param y The second type or constraint involved.
+     * @return The type error to throw, which is also logged.
+     */
+    private static HaskellTypeError failure(Object context, String format, Object x, Object y) {
+        String description = context instanceof Supplier ? String.valueOf(((Supplier<?>) context).get()) : String.valueOf(context);
+        String message = String.format(format, x, y, description);
+        TypeChecker.logger.info(message);
+        return new HaskellTypeError(message);
+    }
+
+    /**
+     * Growable stack of pending work for the iterative algorithms, reused per thread.
+     * Every algorithm only pops what it pushed itself, so nested use is fine.
+     */
+    private static final class Worklist {
+        /** The pending items, of which the first size are in use. */
+        private Object[] items = new Object[64];
+
+        /** The number of items in use. */
+        private int size = 0;
+
+        /** Pushes a single item. */
+        private void push(Object item) {
+            if (this.size == this.items.length) {
+                this.items = Arrays.copyOf(this.items, this.size * 2);
+            }
+            this.items[this.size++] = item;
+        }
+
+        /** Pushes a pair of items, to be popped in reverse order. */
+        private void push(Object first, Object second) {
+            this.push(first);
+            this.push(second);
+        }
+
+        /** @return The last pushed item. */
+        private Object pop() {
+            return this.items[--this.size];
+        }
+
+        /** Drops everything above the given size, not keeping references to the dropped items. */
+        private void truncate(int newSize) {
+            Arrays.fill(this.items, newSize, this.size, null);
+            this.size = newSize;
+        }
     }
 
 }
@@ -89,10 +89,12 @@ public class TypeClass implements Comparable<TypeClass> {
      */
     public final void addInstance(TypeCon tc, int constrainedArgs) {
             this.instances.add(new Instance(tc, constrainedArgs));
+            ConstraintSet.invalidateDefaults();
     }
 
     public void setDefaultType(TypeCon defType) {
         this.defaultType = Optional.of(defType);
+        ConstraintSet.invalidateDefaults();
     }
     
     protected Optional<TypeCon> getDefaultType() {
@@ -113,6 +115,7 @@ public class TypeClass implements Comparable<TypeClass> {
         this.supers.add(tc);
         // Also transitively add all the superclasses of this superclass for easier simplification
         this.supers.addAll(tc.supers);
+        ConstraintSet.invalidateDefaults();
     }
 
     protected Set<TypeCon> allInstanceTypeCons() {
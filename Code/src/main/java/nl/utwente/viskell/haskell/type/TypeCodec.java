@@ -0,0 +1,235 @@
+package nl.utwente.viskell.haskell.type;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of types and type classes, used for storing already parsed catalogs.
+ * Strings are stored as a byte length followed by the UTF-8 bytes, all numbers are big endian.
+ * Lengths, counts and references are checked while reading, so that corrupt data is reported as an IllegalArgumentException.
+ */
+public final class TypeCodec {
+
+    /** Tag of an encoded type constructor. */
+    private static final byte CON = 'C';
+
+    /** Tag of an encoded type application. */
+    private static final byte APP = 'A';
+
+    /** Tag of an encoded function type. */
+    private static final byte FUN = 'F';
+
+    /** Tag of the first occurrence of a type variable, including its name and constraints. */
+    private static final byte VAR = 'V';
+
+    /** Tag of a later occurrence of a type variable, referring to an earlier one by index. */
+    private static final byte VAR_REF = 'v';
+
+    /**
+     * Private constructor - methods in this class are static.
+     */
+    private TypeCodec() {
+    }
+
+    /**
+     * @param out the output to write to.
+     * @param text the string to write.
+     */
+    public static void writeString(DataOutput out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @param in the buffer to read from.
+     * @return the string read.
+     * @throws IllegalArgumentException if the length is negative or beyond the end of the buffer.
+     */
+    public static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[TypeCodec.readCount(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param in the buffer to read from.
+     * @return the number of elements or bytes that follow, each of which takes at least one byte.
+     * @throws IllegalArgumentException if the count is negative or more than the rest of the buffer can hold.
+     */
+    public static int readCount(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalArgumentException("Corrupt encoding with count " + count);
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes a type, with type variables shared the same way as in the original.
+     * @param out the output to write to.
+     * @param type the type to write.
+     */
+    public static void writeType(DataOutput out, Type type) throws IOException {
+        TypeCodec.writeType(out, type, new ArrayList<>());
+    }
+
+    private static void writeType(DataOutput out, Type type, List<TypeVar> vars) throws IOException {
+        if (type instanceof TypeVar) {
+            TypeVar tv = (TypeVar) type;
+            if (tv.hasConcreteInstance()) {
+                TypeCodec.writeType(out, tv.getInstantiatedType(), vars);
+                return;
+            }
+
+            int index = vars.indexOf(tv);
+            if (index >= 0) {
+                out.writeByte(VAR_REF);
+                out.writeInt(index);
+                return;
+            }
+
+            vars.add(tv);
+            out.writeByte(VAR);
+            TypeCodec.writeString(out, tv.getName());
+            out.writeInt(tv.getConstraints().count());
+            for (TypeClass tc : tv.getConstraints().constraints) {
+                TypeCodec.writeString(out, tc.getName());
+            }
+        } else if (type instanceof FunType) {
+            FunType ft = (FunType) type;
+            out.writeByte(FUN);
+            TypeCodec.writeType(out, ft.getArgument(), vars);
+            TypeCodec.writeType(out, ft.getResult(), vars);
+        } else if (type instanceof TypeApp) {
+            TypeApp ta = (TypeApp) type;
+            out.writeByte(APP);
+            TypeCodec.writeType(out, ta.getTypeFun(), vars);
+            TypeCodec.writeType(out, ta.getTypeArg(), vars);
+        } else if (type instanceof TypeCon) {
+            out.writeByte(CON);
+            TypeCodec.writeString(out, ((TypeCon) type).getName());
+        } else {
+            throw new IllegalArgumentException("Can not encode type " + type);
+        }
+    }
+
+    /**
+     * @param in the buffer to read from.
+     * @param typeClasses the available type classes, by name.
+     * @return the type read, with fresh type variables.
+     * @throws IllegalArgumentException if the buffer does not contain an encoded type.
+     */
+    public static Type readType(ByteBuffer in, Map<String, TypeClass> typeClasses) {
+        return TypeCodec.readType(in, typeClasses, new ArrayList<>());
+    }
+
+    private static Type readType(ByteBuffer in, Map<String, TypeClass> typeClasses, List<TypeVar> vars) {
+        byte tag = in.get();
+        switch (tag) {
+            case CON:
+                return Type.con(TypeCodec.readString(in));
+            case APP:
+                Type typeFun = TypeCodec.readType(in, typeClasses, vars);
+                return new TypeApp(typeFun, TypeCodec.readType(in, typeClasses, vars));
+            case FUN:
+                Type arg = TypeCodec.readType(in, typeClasses, vars);
+                return new FunType(arg, TypeCodec.readType(in, typeClasses, vars));
+            case VAR:
+                TypeVar tv = new TypeVar(TypeCodec.readString(in), false);
+                int count = TypeCodec.readCount(in);
+                for (int i = 0; i < count; i++) {
+                    TypeClass tc = typeClasses.get(TypeCodec.readString(in));
+                    if (tc != null) {
+                        tv.introduceConstraint(tc);
+                    }
+                }
+                vars.add(tv);
+                return tv;
+            case VAR_REF:
+                int index = in.getInt();
+                if (index < 0 || index >= vars.size()) {
+                    throw new IllegalArgumentException("Corrupt type encoding with variable " + index);
+                }
+                return vars.get(index);
+            default:
+                throw new IllegalArgumentException("Corrupt type encoding with tag " + tag);
+        }
+    }
+
+    /**
+     * Writes a collection of type classes, ordered such that superclasses come before their subclasses.
+     * @param out the output to write to.
+     * @param classes the type classes to write.
+     */
+    public static void writeClasses(DataOutput out, Collection<TypeClass> classes) throws IOException {
+        // the set of superclasses is transitively closed, so a superclass always has fewer superclasses itself
+        List<TypeClass> ordered = new ArrayList<>(classes);
+        ordered.sort(Comparator.comparing((TypeClass tc) -> tc.getSupers().size()).thenComparing(TypeClass::getName));
+
+        out.writeInt(ordered.size());
+        for (TypeClass tc : ordered) {
+            TypeCodec.writeString(out, tc.getName());
+            out.writeBoolean(tc.getDefaultType().isPresent());
+            if (tc.getDefaultType().isPresent()) {
+                TypeCodec.writeString(out, tc.getDefaultType().get().getName());
+            }
+
+            out.writeInt(tc.getSupers().size());
+            for (TypeClass sc : tc.getSupers()) {
+                TypeCodec.writeString(out, sc.getName());
+            }
+
+            out.writeInt(tc.allInstanceTypeCons().size());
+            for (TypeCon con : tc.allInstanceTypeCons()) {
+                TypeCodec.writeString(out, con.getName());
+                out.writeInt(tc.lookupConstrainedArgs(con));
+            }
+        }
+    }
+
+    /**
+     * @param in the buffer to read from.
+     * @return a mapping of names to the type classes read.
+     * @throws IllegalArgumentException if a superclass can not be resolved, or the encoding is corrupt.
+     */
+    public static Map<String, TypeClass> readClasses(ByteBuffer in) {
+        Map<String, TypeClass> classes = new HashMap<>();
+        int count = TypeCodec.readCount(in);
+        for (int i = 0; i < count; i++) {
+            TypeClass tc = new TypeClass(TypeCodec.readString(in));
+            if (in.get() != 0) {
+                tc.setDefaultType(Type.con(TypeCodec.readString(in)));
+            }
+
+            int supers = TypeCodec.readCount(in);
+            for (int j = 0; j < supers; j++) {
+                String name = TypeCodec.readString(in);
+                TypeClass sc = classes.get(name);
+                if (sc == null) {
+                    throw new IllegalArgumentException("Can't resolve superclass " + name + " of " + tc.getName());
+                }
+                tc.addSuperClass(sc);
+            }
+
+            int instances = TypeCodec.readCount(in);
+            for (int j = 0; j < instances; j++) {
+                TypeCon con = Type.con(TypeCodec.readString(in));
+                tc.addInstance(con, in.getInt());
+            }
+
+            classes.put(tc.getName(), tc);
+        }
+
+        return classes;
+    }
+}
@@ -18,8 +18,8 @@ public class TypeCon extends ConcreteType {
     }
 
     @Override
-    public String prettyPrint(int fixity) {
-        return this.name;
+    void prettyPrint(TypePrinter out, int fixity) {
+        out.append(this.name);
     }
 
     @Override
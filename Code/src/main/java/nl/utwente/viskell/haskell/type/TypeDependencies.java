@@ -0,0 +1,102 @@
+package nl.utwente.viskell.haskell.type;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The mutable parts of the type graph that something derived from a type depends on, being the type variable
+ * instances and constraint sets reached while deriving it, with their versions at that time.
+ * What was derived stays valid as long as none of these parts change, whatever happens to unrelated types.
+ */
+final class TypeDependencies {
+    /** The parts with their versions while they are being recorded, or null once frozen. */
+    private Map<Object, Integer> recording;
+
+    /** The recorded parts, each a type variable instance or a constraint set. */
+    private Object[] parts;
+
+    /** The versions of the recorded parts. */
+    private int[] versions;
+
+    TypeDependencies() {
+        this.recording = new IdentityHashMap<>();
+    }
+
+    /**
+     * @param type The type to depend on.
+     * @return The dependencies on all mutable parts reachable from the type.
+     */
+    static TypeDependencies of(Type type) {
+        TypeDependencies dependencies = new TypeDependencies();
+        Deque<Type> todo = new ArrayDeque<>();
+        todo.push(type);
+        while (!todo.isEmpty()) {
+            Type t = todo.pop();
+            if (t instanceof TypeVar) {
+                TypeVar tv = (TypeVar) t;
+                if (tv.addTo(dependencies) && tv.hasConcreteInstance()) {
+                    todo.push(tv.getInstantiatedType());
+                }
+            } else if (t instanceof FunType) {
+                todo.push(((FunType) t).getResult());
+                todo.push(((FunType) t).getArgument());
+            } else if (t instanceof TypeApp) {
+                TypeApp ta = (TypeApp) t;
+                dependencies.add(ta.getConstraint());
+                todo.push(ta.getTypeArg());
+                todo.push(ta.getTypeFun());
+            }
+        }
+
+        return dependencies.freeze();
+    }
+
+    /**
+     * @param instance A type variable instance, with its constraints.
+     * @return Whether the instance was not recorded before.
+     */
+    boolean add(TypeVar.TypeInstance instance) {
+        return this.recording.putIfAbsent(instance, instance.getVersion()) == null;
+    }
+
+    /**
+     * @param constraints A constraint set not belonging to a type variable instance.
+     * @return Whether the constraint set was not recorded before.
+     */
+    boolean add(ConstraintSet constraints) {
+        return this.recording.putIfAbsent(constraints, constraints.getVersion()) == null;
+    }
+
+    /**
+     * Ends recording, and compacts the recorded parts.
+     * @return this.
+     */
+    TypeDependencies freeze() {
+        this.parts = new Object[this.recording.size()];
+        this.versions = new int[this.recording.size()];
+        int i = 0;
+        for (Map.Entry<Object, Integer> entry : this.recording.entrySet()) {
+            this.parts[i] = entry.getKey();
+            this.versions[i] = entry.getValue();
+            i++;
+        }
+
+        this.recording = null;
+        return this;
+    }
+
+    /** @return Whether none of the recorded parts have changed since they were recorded. */
+    boolean isCurrent() {
+        for (int i = 0; i < this.parts.length; i++) {
+            Object part = this.parts[i];
+            int version = part instanceof ConstraintSet ? ((ConstraintSet) part).getVersion() : ((TypeVar.TypeInstance) part).getVersion();
+            if (version != this.versions[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,88 @@
+package nl.utwente.viskell.haskell.type;
+
+/**
+ * Accumulates the readable representation of a type, optionally bounded in length.
+ * Once the bound is exceeded further text is dropped, so that printing huge types can stop early.
+ * The mutable parts of the type that are printed can be recorded, to know for how long the text stays valid.
+ */
+final class TypePrinter {
+    /** The text printed so far. */
+    private final StringBuilder out;
+
+    /** The maximum length of the result. */
+    private final int maxLength;
+
+    /** The dependencies on the printed parts of the type, or null if they are not recorded. */
+    private final TypeDependencies dependencies;
+
+    /**
+     * @param maxLength The maximum length of the result, at least 1.
+     */
+    TypePrinter(int maxLength) {
+        this(maxLength, null);
+    }
+
+    /**
+     * @param maxLength The maximum length of the result, at least 1.
+     * @param dependencies The dependencies to record the printed parts of the type in, or null.
+     */
+    TypePrinter(int maxLength, TypeDependencies dependencies) {
+        if (maxLength < 1) {
+            throw new IllegalArgumentException("maximum length should be positive");
+        }
+
+        this.out = new StringBuilder(Math.min(maxLength, 64));
+        this.maxLength = maxLength;
+        this.dependencies = dependencies;
+    }
+
+    /** @param instance A type variable instance of which the state is about to be printed. */
+    void dependOn(TypeVar.TypeInstance instance) {
+        if (this.dependencies != null) {
+            this.dependencies.add(instance);
+        }
+    }
+
+    /** @param constraints A constraint set of which the state is about to be printed. */
+    void dependOn(ConstraintSet constraints) {
+        if (this.dependencies != null) {
+            this.dependencies.add(constraints);
+        }
+    }
+
+    /**
+     * @param text The text to append, dropped if the printer is full already.
+     * @return this printer.
+     */
+    TypePrinter append(String text) {
+        if (!this.isFull()) {
+            this.out.append(text);
+        }
+
+        return this;
+    }
+
+    /** @return Whether the text exceeds the maximum length, and nothing more will be printed. */
+    boolean isFull() {
+        return this.out.length() > this.maxLength;
+    }
+
+    /** @return The printed text, abbreviated to the maximum length. */
+    @Override
+    public String toString() {
+        return TypePrinter.abbreviate(this.out.toString(), this.maxLength);
+    }
+
+    /**
+     * @param text Some text.
+     * @param maxLength The maximum length of the result, at least 1.
+     * @return The text, or its prefix ending in an ellipsis if it is longer than maxLength.
+     */
+    static String abbreviate(String text, int maxLength) {
+        if (text.length() <= maxLength) {
+            return text;
+        }
+
+        return text.substring(0, maxLength - 1) + "\u2026";
+    }
+}
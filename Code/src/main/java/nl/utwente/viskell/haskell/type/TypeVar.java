@@ -56,6 +56,12 @@ public class TypeVar extends Type {
          */
         private LinkedList<WeakReference<TypeVar>> unifiedVars;
 
+        /** The number of the last search through the type graph that visited this instance. */
+        private int lastVisit;
+
+        /** The number of changes to this instance, apart from its constraints, for invalidating what was derived from it. */
+        private int version;
+
         /**
          * @param name The textual representation of the type variable.
          * @param internal whether this an internally generated type variable
@@ -84,6 +90,7 @@ public class TypeVar extends Type {
             }
 
             this.isRigid = true;
+            this.version++;
         }
         
         /**
@@ -120,10 +127,11 @@ public class TypeVar extends Type {
             }
 
             this.type = ctype;
+            this.version++;
             
             // now the type variable is instantiated we need check all deferred typeapp constraints
             for (TypeApp tapp : this.associatedTypeApps) {
-            	TypeChecker.satisfyConstraints(tapp, this.constraints, "typeapp constraint with " + this.getName());
+            	TypeChecker.satisfyConstraints(tapp, this.constraints, () -> "typeapp constraint with " + this.getName());
             	// once satisfied the constraints are not needed anymore
             	tapp.clearConstraints();
             }
@@ -150,6 +158,9 @@ public class TypeVar extends Type {
                 throw new HaskellTypeError("Can not add extra constraints to a rigid type variable " + this.name);
             }
             
+            // the variables referring to this instance will print as the other one from now on
+            this.version++;
+            other.version++;
             other.constraints.mergeConstraintsWith(this.constraints);
             other.associatedTypeApps.addAll(this.associatedTypeApps);
             
@@ -165,6 +176,11 @@ public class TypeVar extends Type {
             }
         }
 
+        /** @return The number of changes to this instance and its constraints so far. */
+        int getVersion() {
+            return this.version + this.constraints.getVersion();
+        }
+
         /**
          * @return The textual representation of the type variable.
          */
@@ -173,15 +189,21 @@ public class TypeVar extends Type {
         }
         
         /**
+         * Appends the readable representation of this type.
+         * @param out The printer to append to.
          * @param The fixity of the context the type is shown in.
-         * @return The readable representation of this type for in the UI.
          */
-        private final String prettyPrint(final int fixity) {
+        private void prettyPrint(final TypePrinter out, final int fixity) {
             if (this.type != null) {
-                return this.type.prettyPrint(fixity);
+                this.type.prettyPrint(out, fixity);
+                return;
             }
 
-            return this.constraints.prettyPrintWith(this.getName(), fixity);
+            boolean close = this.constraints.openPrettyPrint(out, fixity);
+            out.append(this.getName());
+            if (close) {
+                out.append(")");
+            }
         }
 
         protected void defaultOrElse(ConcreteType backupType) throws HaskellTypeError {
@@ -225,6 +247,36 @@ public class TypeVar extends Type {
         return this.instance.getName();
     }
 
+    /**
+     * @return Whether this type variable was created internally in the type checking process.
+     */
+    final boolean isInternal() {
+        return this.instance.internal;
+    }
+
+    /**
+     * Marks this type variable as visited in a search through the type graph.
+     * @param visit The unique number of the search.
+     * @return Whether this is the first visit by the search, of this or any other variable unified with it.
+     */
+    final boolean markVisited(int visit) {
+        if (this.instance.lastVisit == visit) {
+            return false;
+        }
+
+        this.instance.lastVisit = visit;
+        return true;
+    }
+
+    /**
+     * Records the instance of this type variable as a dependency.
+     * @param dependencies The dependencies to record it in.
+     * @return Whether the instance was not recorded before, through this or any other variable unified with it.
+     */
+    final boolean addTo(TypeDependencies dependencies) {
+        return dependencies.add(this.instance);
+    }
+
     /**
      * @return Whether this type variable has been instantiated with a concrete type.
      */
@@ -298,17 +350,20 @@ public class TypeVar extends Type {
 	}
 
     @Override
-    public final String prettyPrint(final int fixity) {
-        return this.instance.prettyPrint(fixity);
+    final void prettyPrint(final TypePrinter out, final int fixity) {
+        out.dependOn(this.instance);
+        this.instance.prettyPrint(out, fixity);
     }
 
     @Override
-    protected String prettyPrintAppChain(int fixity, List<Type> args) {
+    void prettyPrintAppChain(TypePrinter out, int fixity, List<Type> args) {
+        out.dependOn(this.instance);
         if (this.instance.isPresent()) {
-            return this.instance.get().prettyPrintAppChain(fixity, args);
+            this.instance.get().prettyPrintAppChain(out, fixity, args);
+            return;
         }
         
-        return super.prettyPrintAppChain(fixity, args);
+        super.prettyPrintAppChain(out, fixity, args);
     }
 
     @Override
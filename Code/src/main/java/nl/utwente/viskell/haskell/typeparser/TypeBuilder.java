@@ -1,5 +1,7 @@
 package nl.utwente.viskell.haskell.typeparser;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import nl.utwente.viskell.haskell.type.Type;
 import nl.utwente.viskell.haskell.type.TypeClass;
 import org.antlr.v4.runtime.ANTLRInputStream;
@@ -11,16 +13,24 @@ import java.util.Map;
 
 /**
  * Turns a String into a Type.
+ * A builder only reads its map of type classes, so it can be shared between threads as long as that map is not modified.
  */
 public final class TypeBuilder {
+    /** The maximum number of parsed type schemes to keep. */
+    private static final int CACHE_SIZE = 1024;
+
     /** Map of available type classes. */
-    private Map<String, TypeClass> typeClasses;
+    private final Map<String, TypeClass> typeClasses;
+
+    /** Parsed type schemes by their text, which must only be handed out as fresh copies. */
+    private final Cache<String, Type> schemes;
 
     /**
      * @param typeClasses The available type classes.
      */
     public TypeBuilder(Map<String, TypeClass> typeClasses) {
         this.typeClasses = typeClasses;
+        this.schemes = CacheBuilder.newBuilder().maximumSize(TypeBuilder.CACHE_SIZE).build();
     }
 
     /**
@@ -28,20 +38,50 @@ public final class TypeBuilder {
      *
      * @param hs The Haskell type declaration
      * @return Type
+     * @throws IllegalArgumentException if the declaration is not a valid type.
      */
     public Type build(final String hs) {
+        return new TypeSignatureParser(this.typeClasses, hs).parse();
+    }
+
+    /**
+     * Parse a Haskell type declaration into a TypeT instance, using the parser generated from the ANTLR grammar.
+     * Kept as reference implementation for comparing with the hand-written parser.
+     *
+     * @param hs The Haskell type declaration
+     * @return Type
+     */
+    Type buildWithAntlr(final String hs) {
         TypeLexer lexer = new TypeLexer(new ANTLRInputStream(hs));
         CommonTokenStream tokens = new CommonTokenStream(lexer);
         TypeParser parser = new TypeParser(tokens);
 
         ParserRuleContext tree = parser.type();
-        ParseTreeWalker walker = new ParseTreeWalker();
         TypeBuilderListener extractor;
 
         extractor = new TypeBuilderListener(this.typeClasses);
 
-        walker.walk(extractor, tree);
+        // the default walker is stateless, so it can be shared by all builders and threads
+        ParseTreeWalker.DEFAULT.walk(extractor, tree);
 
         return extractor.result();
     }
+
+    /**
+     * Parse a Haskell type declaration into a Type, reusing the result of an earlier parse of the same text
+     * by this builder. Intended for signatures that are built over and over again, by a builder that is kept
+     * as long as its type classes do not change.
+     *
+     * @param hs The Haskell type declaration
+     * @return A fresh instance of the type.
+     */
+    public Type buildCached(final String hs) {
+        Type scheme = this.schemes.getIfPresent(hs);
+        if (scheme == null) {
+            scheme = this.build(hs);
+            this.schemes.put(hs, scheme);
+        }
+
+        return scheme.getFresh();
+    }
 }
@@ -0,0 +1,268 @@
+package nl.utwente.viskell.haskell.typeparser;
+
+import nl.utwente.viskell.haskell.type.Type;
+import nl.utwente.viskell.haskell.type.TypeClass;
+import nl.utwente.viskell.haskell.type.TypeScope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recursive descent parser for Haskell type signatures, building the Type directly while reading the text.
+ * It accepts the same language as the ANTLR grammar in Type.g4, with type applications taking atoms as arguments:
+ *
+ * <pre>
+ * type     : (context '=&gt;')? function
+ * context  : '(' classed (',' classed)* ')' | classed
+ * classed  : CONSTRUCTOR VARIABLE
+ * function : applied ('-&gt;' function)?
+ * applied  : atom atom*
+ * atom     : CONSTRUCTOR | VARIABLE | '[' ']' | '[' function ']' | '(' ','* ')' | '(' function (',' function)* ')'
+ * </pre>
+ *
+ * A parser reads a single signature, and is not safe to use from multiple threads.
+ */
+final class TypeSignatureParser {
+    /** The available type classes. */
+    private final Map<String, TypeClass> typeClasses;
+
+    /** The signature text. */
+    private final String text;
+
+    /** The scope in which type variables are looked up and built. */
+    private final TypeScope scope;
+
+    /** The position of the next character to read. */
+    private int pos;
+
+    /**
+     * @param typeClasses The available type classes.
+     * @param text The Haskell type signature to parse.
+     */
+    TypeSignatureParser(Map<String, TypeClass> typeClasses, String text) {
+        this.typeClasses = typeClasses;
+        this.text = text;
+        this.scope = new TypeScope();
+        this.pos = 0;
+    }
+
+    /**
+     * @return The type represented by the complete text.
+     * @throws IllegalArgumentException if the text is not a valid type signature.
+     */
+    Type parse() {
+        // a context can only be recognized by the arrow following it, but that arrow does not occur anywhere else
+        if (this.text.indexOf("=>") >= 0) {
+            this.parseContext();
+            if (!this.skipSpace() || !this.text.startsWith("=>", this.pos)) {
+                throw this.error("'=>'");
+            }
+            this.pos += 2;
+        }
+
+        Type type = this.parseFunction();
+        this.skipSpace();
+        if (this.pos < this.text.length()) {
+            throw this.error("end of type");
+        }
+
+        return type;
+    }
+
+    /** Parses the type class constraints before the context arrow. */
+    private void parseContext() {
+        if (this.skipSpace() && this.peek() == '(') {
+            this.pos++;
+            if (this.accept(')')) {
+                return;
+            }
+
+            do {
+                this.parseClassed();
+            } while (this.accept(','));
+
+            this.expect(')');
+        } else {
+            this.parseClassed();
+        }
+    }
+
+    /** Parses a single constraint of a type variable. */
+    private void parseClassed() {
+        String className = this.parseName(true);
+        String varName = this.parseName(false);
+        TypeClass typeClass = this.typeClasses.get(className);
+        if (typeClass != null) {
+            // unknown type classes are ignored, like they are by the ANTLR based builder
+            this.scope.introduceConstraint(varName, typeClass);
+        }
+    }
+
+    /** @return A function type, or an applied type if there is no arrow. */
+    private Type parseFunction() {
+        Type arg = this.parseApplied();
+        if (this.skipSpace() && this.text.startsWith("->", this.pos)) {
+            this.pos += 2;
+            return Type.fun(arg, this.parseFunction());
+        }
+
+        return arg;
+    }
+
+    /** @return An atom, applied to all atoms following it. */
+    private Type parseApplied() {
+        Type type = this.parseAtom();
+        while (this.skipSpace() && this.startsAtom(this.peek())) {
+            type = Type.app(type, this.parseAtom());
+        }
+
+        return type;
+    }
+
+    /** @return A type constructor, type variable, or a bracketed type. */
+    private Type parseAtom() {
+        if (!this.skipSpace()) {
+            throw this.error("a type");
+        }
+
+        char c = this.peek();
+        if (c == '[') {
+            this.pos++;
+            if (this.accept(']')) {
+                return Type.con("[]");
+            }
+
+            Type elem = this.parseFunction();
+            this.expect(']');
+            return Type.listOf(elem);
+        }
+
+        if (c == '(') {
+            this.pos++;
+            int commas = 0;
+            while (this.accept(',')) {
+                commas++;
+            }
+
+            if (this.accept(')')) {
+                // the unit type or a tuple constructor, such as (,)
+                return commas == 0 ? Type.con("()") : TypeSignatureParser.tupleCon(commas);
+            }
+
+            if (commas > 0) {
+                throw this.error(")");
+            }
+
+            Type first = this.parseFunction();
+            if (!this.accept(',')) {
+                this.expect(')');
+                return first;
+            }
+
+            List<Type> elems = new ArrayList<>(4);
+            elems.add(first);
+            do {
+                elems.add(this.parseFunction());
+            } while (this.accept(','));
+
+            this.expect(')');
+            return Type.tupleOf(elems.toArray(new Type[elems.size()]));
+        }
+
+        if (Character.isUpperCase(c)) {
+            return Type.con(this.parseName(true));
+        }
+
+        return this.scope.getVar(this.parseName(false));
+    }
+
+    /**
+     * @param commas The number of commas in the constructor.
+     * @return The tuple type constructor with one element more than commas.
+     */
+    private static Type tupleCon(int commas) {
+        StringBuilder name = new StringBuilder(commas + 2).append('(');
+        for (int i = 0; i < commas; i++) {
+            name.append(',');
+        }
+
+        return Type.con(name.append(')').toString());
+    }
+
+    /**
+     * @param upper Whether the name should start with an upper case letter (a constructor), or not (a variable).
+     * @return The name at the current position.
+     */
+    private String parseName(boolean upper) {
+        this.skipSpace();
+        int start = this.pos;
+        if (start >= this.text.length() || !Character.isLetter(this.text.charAt(start)) || Character.isUpperCase(this.text.charAt(start)) != upper) {
+            throw this.error(upper ? "a type constructor" : "a type variable");
+        }
+
+        while (this.pos < this.text.length() && TypeSignatureParser.isNameChar(this.text.charAt(this.pos))) {
+            this.pos++;
+        }
+
+        return this.text.substring(start, this.pos);
+    }
+
+    /** @return Whether the character can occur in a name after the first one. */
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '\'';
+    }
+
+    /** @return Whether an atom can start with the character. */
+    private boolean startsAtom(char c) {
+        return c == '[' || c == '(' || Character.isLetter(c);
+    }
+
+    /**
+     * Skips white space.
+     * @return Whether there is anything left after the white space.
+     */
+    private boolean skipSpace() {
+        while (this.pos < this.text.length() && Character.isWhitespace(this.text.charAt(this.pos))) {
+            this.pos++;
+        }
+
+        return this.pos < this.text.length();
+    }
+
+    /** @return The current character, which must exist. */
+    private char peek() {
+        return this.text.charAt(this.pos);
+    }
+
+    /**
+     * Skips the given character if it is next, after white space.
+     * @return Whether the character was skipped.
+     */
+    private boolean accept(char c) {
+        if (this.skipSpace() && this.peek() == c) {
+            this.pos++;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Skips the given character, which must be next after white space.
+     * @throws IllegalArgumentException if it is not.
+     */
+    private void expect(char c) {
+        if (!this.accept(c)) {
+            throw this.error("'" + c + "'");
+        }
+    }
+
+    /**
+     * @param expected A description of what was expected at the current position.
+     * @return An exception describing the syntax error.
+     */
+    private IllegalArgumentException error(String expected) {
+        return new IllegalArgumentException("Expected " + expected + " at position " + this.pos + " of type " + this.text);
+    }
+}
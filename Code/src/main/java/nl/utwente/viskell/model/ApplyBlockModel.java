@@ -0,0 +1,54 @@
+package nl.utwente.viskell.model;
+
+import nl.utwente.viskell.haskell.env.FunctionInfo;
+import nl.utwente.viskell.haskell.expr.Apply;
+import nl.utwente.viskell.haskell.expr.Binder;
+import nl.utwente.viskell.haskell.expr.Expression;
+import nl.utwente.viskell.haskell.expr.FunVar;
+import nl.utwente.viskell.haskell.expr.Lambda;
+import nl.utwente.viskell.haskell.expr.LocalVar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A block applying a function to the values of its inputs, leaving the curried arguments open.
+ * The function is either a library function, or the value of the first input.
+ */
+final class ApplyBlockModel extends BlockModel {
+    /** The library function applied, or null if the function is taken from the first input. */
+    private final FunctionInfo function;
+
+    /** Which arguments are left open. */
+    private final List<Boolean> curried;
+
+    ApplyBlockModel(int id, String kind, double x, double y, Map<String, Object> properties, FunctionInfo function, List<Boolean> curried) {
+        super(id, kind, x, y, properties, function == null ? curried.size() + 1 : curried.size(), "res");
+        this.function = function;
+        this.curried = curried;
+    }
+
+    @Override
+    public Expression getLocalExpr() {
+        Expression expr = this.function != null ? new FunVar(this.function) : this.inputs.get(0).getLocalExpr();
+        int first = this.function != null ? 0 : 1;
+        List<Binder> curriedArgs = new ArrayList<>();
+
+        for (int i = 0; i < this.curried.size(); i++) {
+            if (this.curried.get(i)) {
+                Binder ca = new Binder("ca");
+                curriedArgs.add(ca);
+                expr = new Apply(expr, new LocalVar(ca));
+            } else {
+                expr = new Apply(expr, this.inputs.get(first + i).getLocalExpr());
+            }
+        }
+
+        if (curriedArgs.isEmpty()) {
+            return expr;
+        } else {
+            return new Lambda(curriedArgs, expr);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package nl.utwente.viskell.model;
+
+import com.google.common.collect.ImmutableMap;
+import nl.utwente.viskell.ghcj.HaskellException;
+import nl.utwente.viskell.haskell.env.Environment;
+import nl.utwente.viskell.haskell.env.FunctionInfo;
+import nl.utwente.viskell.haskell.expr.Expression;
+import nl.utwente.viskell.haskell.expr.LetExpression;
+import nl.utwente.viskell.haskell.type.TypeScope;
+import nl.utwente.viskell.ui.serialize.Bundleable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * A block in the headless model, holding what a bundle describes of it: its kind, position and properties,
+ * together with its inputs and output. Each kind of block builds the same expression as its visual counterpart.
+ */
+public abstract class BlockModel implements Bundleable {
+    /** The name of the id of a block in a bundle. */
+    public static final String ID_LABEL = "id";
+
+    /** The name of the horizontal position of a block in a bundle. */
+    public static final String X_LABEL = "x";
+
+    /** The name of the vertical position of a block in a bundle. */
+    public static final String Y_LABEL = "y";
+
+    /** The name of the class specific properties of a block in a bundle. */
+    public static final String PROPERTIES_LABEL = "properties";
+
+    /** The id of this block, unique within its graph. */
+    private final int id;
+
+    /** The simple class name of the visual block. */
+    private final String kind;
+
+    /** The horizontal position of this block. */
+    private final double x;
+
+    /** The vertical position of this block. */
+    private final double y;
+
+    /** The class specific properties of this block, as in the bundle. */
+    private final Map<String, Object> properties;
+
+    /** The inputs of this block. */
+    protected final List<InputModel> inputs;
+
+    /** The output of this block, if it has one. */
+    private final Optional<OutputModel> output;
+
+    /**
+     * @param id The id of this block, unique within its graph.
+     * @param kind The simple class name of the visual block.
+     * @param x The horizontal position of this block.
+     * @param y The vertical position of this block.
+     * @param properties The class specific properties of this block.
+     * @param inputCount The number of inputs of this block.
+     * @param outputName The base name of the binder of the output, or null if this block has no output.
+     */
+    protected BlockModel(int id, String kind, double x, double y, Map<String, Object> properties, int inputCount, String outputName) {
+        this.id = id;
+        this.kind = kind;
+        this.x = x;
+        this.y = y;
+        this.properties = properties;
+        this.inputs = new ArrayList<>();
+        for (int i = 0; i < inputCount; i++) {
+            this.inputs.add(new InputModel(this, i));
+        }
+        this.output = Optional.ofNullable(outputName).map(name -> new OutputModel(this, name));
+    }
+
+    /** @return The id of this block, unique within its graph. */
+    public final int getId() {
+        return this.id;
+    }
+
+    /** @return The simple class name of the visual block. */
+    public final String getKind() {
+        return this.kind;
+    }
+
+    /** @return The horizontal position of this block. */
+    public final double getX() {
+        return this.x;
+    }
+
+    /** @return The vertical position of this block. */
+    public final double getY() {
+        return this.y;
+    }
+
+    /** @return The class specific properties of this block, as in the bundle. */
+    public final Map<String, Object> getProperties() {
+        return this.properties;
+    }
+
+    /** @return The inputs of this block. */
+    public final List<InputModel> getInputs() {
+        return Collections.unmodifiableList(this.inputs);
+    }
+
+    /**
+     * @param index The position of the input.
+     * @return The input at that position, if this block has it.
+     */
+    public Optional<InputModel> getInput(int index) {
+        return index >= 0 && index < this.inputs.size() ? Optional.of(this.inputs.get(index)) : Optional.empty();
+    }
+
+    /** @return The output of this block, if it has one. */
+    public final Optional<OutputModel> getOutput() {
+        return this.output;
+    }
+
+    /** @return Whether the expression of this block is known, rather than a hole standing in for an unsupported kind. */
+    public boolean isSupported() {
+        return true;
+    }
+
+    /** @return Whether the output of this block is not used by any other block. */
+    public final boolean isBottomMost() {
+        return !this.output.isPresent() || !this.output.get().hasConnection();
+    }
+
+    /** @return The expression this block represents, referring to the outputs of the blocks connected to it. */
+    public abstract Expression getLocalExpr();
+
+    /**
+     * @param steps The number of steps to take for a block showing a sequence of results, such as a simulation.
+     * @return The expression of which the value is the result shown by this block, if it is a sink such as a display.
+     */
+    public Optional<Expression> getResultExpr(int steps) {
+        return Optional.empty();
+    }
+
+    /** @return A complete expression of this block and all its dependencies. */
+    public final LetExpression getFullExpr() {
+        LetExpression fullExpr = new LetExpression(this.getLocalExpr(), false);
+        this.extendExprGraph(fullExpr);
+        return fullExpr;
+    }
+
+    /**
+     * Extends the expression graph to include all subexpressions required.
+     * @param exprGraph the let expression representing the current expression graph
+     */
+    void extendExprGraph(LetExpression exprGraph) {
+        for (InputModel input : this.inputs) {
+            input.extendExprGraph(exprGraph);
+        }
+    }
+
+    @Override
+    public Map<String, Object> toBundle() {
+        return ImmutableMap.of(
+                Bundleable.KIND, this.kind,
+                ID_LABEL, this.id,
+                X_LABEL, this.x,
+                Y_LABEL, this.y,
+                PROPERTIES_LABEL, this.properties);
+    }
+
+    /**
+     * @param bundle The bundle of a block.
+     * @param env The environment for looking up the functions used.
+     * @return The block described by the bundle, standing in with a hole for a kind of which the expression is not known.
+     * @throws HaskellException if a function used is not in scope.
+     */
+    static BlockModel fromBundle(Map<String, Object> bundle, Environment env) throws HaskellException {
+        String kind = (String) bundle.get(Bundleable.KIND);
+        int id = ((Number) bundle.get(ID_LABEL)).intValue();
+        double x = ((Number) bundle.get(X_LABEL)).doubleValue();
+        double y = ((Number) bundle.get(Y_LABEL)).doubleValue();
+        Map<String, Object> properties = BlockModel.asMap(bundle.get(PROPERTIES_LABEL));
+        if (properties == null) {
+            properties = ImmutableMap.of();
+        }
+
+        switch (kind) {
+            case "ConstantBlock":
+                return new ValueBlockModel(id, kind, x, y, properties, TypeScope.unique("x"));
+            case "SliderBlock":
+                boolean isIntegral = (Boolean) properties.get("isIntegral");
+                return new ValueBlockModel(id, kind, x, y, properties, env.buildType(isIntegral ? "Num a => a" : "Fractional a => a"));
+            case "ArbitraryBlock":
+                return new ValueBlockModel(id, kind, x, y, properties, env.buildType("Arbitrary a => a"));
+            case "DisplayBlock":
+            case "GraphBlock":
+            case "SimulateBlock":
+                return new SinkBlockModel(id, kind, x, y, properties);
+            case "BinOpApplyBlock":
+                return new ApplyBlockModel(id, kind, x, y, properties, BlockModel.lookupFunction(properties.get("funInfo"), env), BlockModel.curriedArgs(properties));
+            case "FunApplyBlock":
+                Map<String, Object> funRef = BlockModel.asMap(properties.get("funRef"));
+                switch ((String) funRef.get(Bundleable.KIND)) {
+                    case "LibraryFunUse":
+                        return new ApplyBlockModel(id, kind, x, y, properties, BlockModel.lookupFunction(funRef.get("funInfo"), env), BlockModel.curriedArgs(properties));
+                    case "ApplyAnchor":
+                        return new ApplyBlockModel(id, kind, x, y, properties, null, BlockModel.curriedArgs(properties));
+                    default:
+                        // the use of a local definition does not say which definition it is
+                        return new OpaqueBlockModel(id, kind, x, y, properties);
+                }
+            case "JoinerBlock":
+                return new JoinerBlockModel(id, kind, x, y, properties, ((Number) properties.get("arity")).intValue());
+            case "LambdaBlock":
+                return new LambdaBlockModel(id, kind, x, y, properties, ((Number) properties.get("arity")).intValue());
+            default:
+                return new OpaqueBlockModel(id, kind, x, y, properties);
+        }
+    }
+
+    /**
+     * @param bundle The bundle of a block.
+     * @return A block of the kind and properties described by the bundle, standing in with a hole for its expression.
+     * @throws IllegalArgumentException if the bundle does not name the kind of the block.
+     */
+    static BlockModel opaqueFromBundle(Map<String, Object> bundle) {
+        String kind = (String) bundle.get(Bundleable.KIND);
+        if (kind == null) {
+            throw new IllegalArgumentException("Block without a kind");
+        }
+
+        Map<String, Object> properties = BlockModel.asMap(bundle.get(PROPERTIES_LABEL));
+        return new OpaqueBlockModel(((Number) bundle.get(ID_LABEL)).intValue(), kind,
+                ((Number) bundle.get(X_LABEL)).doubleValue(), ((Number) bundle.get(Y_LABEL)).doubleValue(),
+                properties == null ? ImmutableMap.of() : properties);
+    }
+
+    /**
+     * @param funInfo The bundle of the function information.
+     * @param env The environment for looking up the function.
+     * @return The function named in the bundle.
+     * @throws HaskellException if the function is not in scope.
+     */
+    private static FunctionInfo lookupFunction(Object funInfo, Environment env) throws HaskellException {
+        String name = (String) BlockModel.asMap(funInfo).get("name");
+        FunctionInfo function = env.lookupFun(name);
+        if (function == null) {
+            throw new HaskellException("Function " + name + " is not in scope");
+        }
+
+        return function;
+    }
+
+    /** @return Which arguments of a function application are left open, as in the bundle. */
+    private static List<Boolean> curriedArgs(Map<String, Object> properties) {
+        return BlockModel.asList(properties.get("curriedArgs")).stream().map(arg -> (Boolean) arg).collect(Collectors.toList());
+    }
+
+    /**
+     * @param value A value from a bundle, which should be a nested bundle.
+     * @return The value as a bundle, or null if it is absent.
+     * @throws IllegalArgumentException if the value is not a bundle.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> asMap(Object value) {
+        if (value != null && !(value instanceof Map)) {
+            throw new IllegalArgumentException("Expected a map instead of " + value);
+        }
+
+        // the keys of a bundle read from JSON are always strings
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * @param value A value from a bundle, which should be a list.
+     * @return The value as a list, or null if it is absent.
+     * @throws IllegalArgumentException if the value is not a list.
+     */
+    static List<?> asList(Object value) {
+        if (value != null && !(value instanceof List)) {
+            throw new IllegalArgumentException("Expected a list instead of " + value);
+        }
+
+        return (List<?>) value;
+    }
+
+    @Override
+    public String toString() {
+        return this.kind + "[" + this.id + "]";
+    }
+}
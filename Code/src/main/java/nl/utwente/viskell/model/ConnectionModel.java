@@ -0,0 +1,93 @@
+package nl.utwente.viskell.model;
+
+import com.google.common.collect.ImmutableMap;
+import nl.utwente.viskell.ui.serialize.Bundleable;
+
+import java.util.Map;
+
+/**
+ * A connection from an output to an input in the headless model.
+ */
+public class ConnectionModel implements Bundleable {
+    /** The name of the source of a connection in a bundle. */
+    public static final String SOURCE_LABEL = "from";
+
+    /** The name of the sink of a connection in a bundle. */
+    public static final String SINK_LABEL = "to";
+
+    /** The name of the block id of either end of a connection in a bundle. */
+    public static final String BLOCK_LABEL = "block";
+
+    /** The name of the input index of the sink of a connection in a bundle. */
+    public static final String ANCHOR_LABEL = "anchor";
+
+    /** The output this connection starts at. */
+    private final OutputModel start;
+
+    /** The input this connection ends at. */
+    private final InputModel end;
+
+    /**
+     * Connects an output to an input, replacing the connection the input had before.
+     * @param start The output this connection starts at.
+     * @param end The input this connection ends at.
+     */
+    public ConnectionModel(OutputModel start, InputModel end) {
+        this.start = start;
+        this.end = end;
+        end.getConnection().ifPresent(ConnectionModel::remove);
+        start.addConnection(this);
+        end.setConnection(this);
+    }
+
+    /** @return The output this connection starts at. */
+    public OutputModel getStart() {
+        return this.start;
+    }
+
+    /** @return The input this connection ends at. */
+    public InputModel getEnd() {
+        return this.end;
+    }
+
+    /** Removes this connection from both its ends. */
+    public void remove() {
+        this.start.removeConnection(this);
+        if (this.end.getConnection().orElse(null) == this) {
+            this.end.setConnection(null);
+        }
+    }
+
+    @Override
+    public Map<String, Object> toBundle() {
+        return ImmutableMap.of(
+                SOURCE_LABEL, ImmutableMap.of(BLOCK_LABEL, this.start.getBlock().getId()),
+                SINK_LABEL, ImmutableMap.of(BLOCK_LABEL, this.end.getBlock().getId(), ANCHOR_LABEL, this.end.getIndex()));
+    }
+
+    /**
+     * @param bundle The bundle of a connection.
+     * @param graph The graph containing the blocks at both ends.
+     * @return The connection described by the bundle.
+     * @throws IllegalArgumentException if either end does not exist.
+     */
+    static ConnectionModel fromBundle(Map<String, Object> bundle, GraphModel graph) {
+        Map<String, Object> source = BlockModel.asMap(bundle.get(SOURCE_LABEL));
+        int sourceId = ((Number) source.get(BLOCK_LABEL)).intValue();
+        OutputModel start = graph.getBlock(sourceId).flatMap(BlockModel::getOutput)
+                .orElseThrow(() -> new IllegalArgumentException("No output for block " + sourceId));
+
+        Map<String, Object> sink = BlockModel.asMap(bundle.get(SINK_LABEL));
+        int sinkId = ((Number) sink.get(BLOCK_LABEL)).intValue();
+        int sinkIndex = ((Number) sink.get(ANCHOR_LABEL)).intValue();
+        InputModel end = graph.getBlock(sinkId).flatMap(block -> block.getInput(sinkIndex))
+                .orElseThrow(() -> new IllegalArgumentException("No input " + sinkIndex + " for block " + sinkId));
+
+        return new ConnectionModel(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionModel from " + this.start.getBlock() + " to " + this.end;
+    }
+}
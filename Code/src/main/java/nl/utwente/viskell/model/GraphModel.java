@@ -0,0 +1,185 @@
+package nl.utwente.viskell.model;
+
+import com.google.common.collect.ImmutableMap;
+import nl.utwente.viskell.ghcj.HaskellException;
+import nl.utwente.viskell.haskell.env.Environment;
+import nl.utwente.viskell.haskell.type.HaskellTypeError;
+import nl.utwente.viskell.haskell.type.Type;
+import nl.utwente.viskell.haskell.type.TypeScope;
+import nl.utwente.viskell.ui.serialize.Bundleable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The headless model of the top level of a visual program: its blocks and the connections between them.
+ * It is built directly from a bundle, so a program can be loaded, typechecked and evaluated without a display.
+ */
+public class GraphModel implements Bundleable {
+    /** The name of the list of blocks in a bundle. */
+    public static final String BLOCKS_LABEL = "Blocks";
+
+    /** The name of the list of connections in a bundle. */
+    public static final String CONNECTIONS_LABEL = "Connections";
+
+    /** The blocks by their id, in the order of the bundle. */
+    private final Map<Integer, BlockModel> blocks;
+
+    /** Descriptions of the parts of the bundle that could not be loaded. */
+    private final List<String> errors;
+
+    /** Creates an empty graph. */
+    public GraphModel() {
+        this.blocks = new LinkedHashMap<>();
+        this.errors = new ArrayList<>();
+    }
+
+    /**
+     * @param layers The bundle of a program, as read by the Importer.
+     * @param env The environment for looking up the functions used.
+     * @return The graph described by the bundle, with opaque blocks for the blocks of which only the expression could
+     * not be loaded, leaving out the other blocks and connections that could not be loaded.
+     */
+    public static GraphModel fromBundle(Map<String, Object> layers, Environment env) {
+        GraphModel graph = new GraphModel();
+        if (layers == null) {
+            return graph;
+        }
+
+        List<?> blocksBundle = BlockModel.asList(layers.get(BLOCKS_LABEL));
+        if (blocksBundle != null) {
+            for (Object bundle : blocksBundle) {
+                graph.addBlockBundle(bundle, env);
+            }
+        }
+
+        List<?> connectionsBundle = BlockModel.asList(layers.get(CONNECTIONS_LABEL));
+        if (connectionsBundle != null) {
+            for (Object bundle : connectionsBundle) {
+                try {
+                    ConnectionModel.fromBundle(BlockModel.asMap(bundle), graph);
+                } catch (RuntimeException e) {
+                    graph.errors.add("Connection: " + e.getMessage());
+                }
+            }
+        }
+
+        return graph;
+    }
+
+    /**
+     * Adds the block described by a bundle, or an opaque block in its place if only its expression can not be built,
+     * so that the block and its connections are kept when the bundle is loaded again.
+     * @param bundle The bundle of a block.
+     * @param env The environment for looking up the functions used.
+     */
+    private void addBlockBundle(Object bundle, Environment env) {
+        try {
+            this.addBlock(BlockModel.fromBundle(BlockModel.asMap(bundle), env));
+        } catch (HaskellException | RuntimeException e) {
+            Object id = bundle instanceof Map ? ((Map<?, ?>) bundle).get(BlockModel.ID_LABEL) : null;
+            this.errors.add("Block " + id + ": " + e.getMessage());
+
+            try {
+                this.addBlock(BlockModel.opaqueFromBundle(BlockModel.asMap(bundle)));
+            } catch (RuntimeException ignored) {
+                // not even the id and position of the block are known, so there is nothing to keep
+            }
+        }
+    }
+
+    /**
+     * @param block A block to add to this graph.
+     * @throws IllegalArgumentException if this graph already has a block with the same id.
+     */
+    public void addBlock(BlockModel block) {
+        if (this.blocks.putIfAbsent(block.getId(), block) != null) {
+            throw new IllegalArgumentException("Duplicate block id " + block.getId());
+        }
+    }
+
+    /**
+     * @param id The id of a block.
+     * @return The block with that id, if this graph has it.
+     */
+    public Optional<BlockModel> getBlock(int id) {
+        return Optional.ofNullable(this.blocks.get(id));
+    }
+
+    /** @return All blocks of this graph, in the order they were added. */
+    public Collection<BlockModel> getBlocks() {
+        return Collections.unmodifiableCollection(this.blocks.values());
+    }
+
+    /** @return All connections between the blocks of this graph. */
+    public List<ConnectionModel> getConnections() {
+        return this.blocks.values().stream()
+                .flatMap(block -> block.getOutput().map(output -> output.getConnections().stream()).orElse(Stream.empty()))
+                .collect(Collectors.toList());
+    }
+
+    /** @return The blocks of which the output is not used, such as displays, whose values are the results of the program. */
+    public List<BlockModel> getBottomMost() {
+        return this.blocks.values().stream().filter(BlockModel::isBottomMost).collect(Collectors.toList());
+    }
+
+    /** @return Descriptions of the parts of the bundle that could not be loaded. */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(this.errors);
+    }
+
+    /**
+     * Infers the types of the outputs of all blocks, upstream blocks first.
+     * @return The type errors found, by the block in which they were found.
+     */
+    public Map<BlockModel, HaskellTypeError> typecheck() {
+        Map<BlockModel, HaskellTypeError> typeErrors = new LinkedHashMap<>();
+        Set<BlockModel> done = new HashSet<>();
+        for (BlockModel block : this.blocks.values()) {
+            this.typecheck(block, done, typeErrors);
+        }
+
+        return typeErrors;
+    }
+
+    /**
+     * Infers the type of a block after the blocks connected to its inputs.
+     * @param block The block to typecheck.
+     * @param done The blocks that have been typechecked already, or are being typechecked.
+     * @param typeErrors The type errors found so far.
+     */
+    private void typecheck(BlockModel block, Set<BlockModel> done, Map<BlockModel, HaskellTypeError> typeErrors) {
+        if (!done.add(block)) {
+            return;
+        }
+
+        // a fresh type to start with, for a cycle leading back into this block
+        block.getOutput().ifPresent(output -> output.setType(TypeScope.unique("r")));
+        for (InputModel input : block.getInputs()) {
+            input.getConnection().ifPresent(c -> this.typecheck(c.getStart().getBlock(), done, typeErrors));
+        }
+
+        try {
+            Type type = block.getLocalExpr().inferType();
+            block.getOutput().ifPresent(output -> output.setType(type));
+        } catch (HaskellTypeError e) {
+            typeErrors.put(block, e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> toBundle() {
+        return ImmutableMap.of(
+                BLOCKS_LABEL, this.blocks.values().stream().map(BlockModel::toBundle).collect(Collectors.toList()),
+                CONNECTIONS_LABEL, this.getConnections().stream().map(ConnectionModel::toBundle).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,82 @@
+package nl.utwente.viskell.model;
+
+import nl.utwente.viskell.haskell.expr.Expression;
+import nl.utwente.viskell.haskell.expr.Hole;
+import nl.utwente.viskell.haskell.expr.LetExpression;
+import nl.utwente.viskell.haskell.type.Type;
+
+import java.util.Optional;
+
+/**
+ * An input of a block in the headless model, which can be connected to at most one output.
+ */
+public class InputModel {
+    /** The block this input belongs to. */
+    private final BlockModel block;
+
+    /** The position of this input within the inputs of its block. */
+    private final int index;
+
+    /** The connection to this input, if any. */
+    private Optional<ConnectionModel> connection;
+
+    /**
+     * @param block The block this input belongs to.
+     * @param index The position of this input within the inputs of its block.
+     */
+    InputModel(BlockModel block, int index) {
+        this.block = block;
+        this.index = index;
+        this.connection = Optional.empty();
+    }
+
+    /** @return The block this input belongs to. */
+    public BlockModel getBlock() {
+        return this.block;
+    }
+
+    /** @return The position of this input within the inputs of its block. */
+    public int getIndex() {
+        return this.index;
+    }
+
+    /** @return The connection to this input, if any. */
+    public Optional<ConnectionModel> getConnection() {
+        return this.connection;
+    }
+
+    /** @param connection The new connection to this input, replacing the old one, or null to disconnect it. */
+    void setConnection(ConnectionModel connection) {
+        this.connection = Optional.ofNullable(connection);
+    }
+
+    /** @return The type of the output connected to this input, as found by the last typecheck, if any. */
+    public Optional<Type> getType() {
+        return this.connection.flatMap(c -> c.getStart().getType());
+    }
+
+    /** @return The local expression carried by the connection connected to this input. */
+    public Expression getLocalExpr() {
+        return this.connection.map(c -> (Expression) c.getStart().getVariable()).orElse(new Hole());
+    }
+
+    /** @return The full expression carried by the connection connected to this input. */
+    public LetExpression getFullExpr() {
+        LetExpression fullExpr = new LetExpression(this.getLocalExpr(), false);
+        this.extendExprGraph(fullExpr);
+        return fullExpr;
+    }
+
+    /**
+     * Extends the expression graph to include all subexpressions required.
+     * @param exprGraph the let expression representing the current expression graph
+     */
+    void extendExprGraph(LetExpression exprGraph) {
+        this.connection.ifPresent(c -> c.getStart().extendExprGraph(exprGraph));
+    }
+
+    @Override
+    public String toString() {
+        return "InputModel " + this.index + " of " + this.block;
+    }
+}
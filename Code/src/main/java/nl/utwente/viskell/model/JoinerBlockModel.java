@@ -0,0 +1,41 @@
+package nl.utwente.viskell.model;
+
+import com.google.common.base.Strings;
+import nl.utwente.viskell.haskell.expr.Apply;
+import nl.utwente.viskell.haskell.expr.Expression;
+import nl.utwente.viskell.haskell.expr.Value;
+import nl.utwente.viskell.haskell.type.Type;
+import nl.utwente.viskell.haskell.type.TypeScope;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/** A block joining the values of its inputs into a tuple. */
+final class JoinerBlockModel extends BlockModel {
+    JoinerBlockModel(int id, String kind, double x, double y, Map<String, Object> properties, int arity) {
+        super(id, kind, x, y, properties, arity, "res");
+    }
+
+    @Override
+    public Expression getLocalExpr() {
+        int arity = this.inputs.size();
+        if (arity == 0) {
+            return new Value(Type.tupleOf(), "()");
+        } else if (arity == 1) {
+            return this.inputs.get(0).getLocalExpr();
+        }
+
+        // the tuple constructor applied to all inputs
+        Type[] signature = new Type[arity + 1];
+        for (int i = 0; i < arity; i++) {
+            signature[i] = TypeScope.unique("a");
+        }
+        signature[arity] = Type.tupleOf(Arrays.copyOf(signature, arity));
+        Expression expr = new Value(Type.fun(signature), "(" + Strings.repeat(",", arity - 1) + ")");
+        for (InputModel input : this.inputs) {
+            expr = new Apply(expr, input.getLocalExpr());
+        }
+
+        return expr;
+    }
+}
@@ -0,0 +1,33 @@
+package nl.utwente.viskell.model;
+
+import nl.utwente.viskell.haskell.expr.Binder;
+import nl.utwente.viskell.haskell.expr.Expression;
+import nl.utwente.viskell.haskell.expr.Hole;
+import nl.utwente.viskell.haskell.expr.Lambda;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A lambda block, of which only the arity is stored in a bundle, so its body is always open.
+ */
+final class LambdaBlockModel extends BlockModel {
+    /** The number of arguments of the lambda. */
+    private final int arity;
+
+    LambdaBlockModel(int id, String kind, double x, double y, Map<String, Object> properties, int arity) {
+        super(id, kind, x, y, properties, 0, "res");
+        this.arity = arity;
+    }
+
+    @Override
+    public Expression getLocalExpr() {
+        List<Binder> binders = new ArrayList<>();
+        for (int i = 0; i < this.arity; i++) {
+            binders.add(new Binder("a_" + i));
+        }
+
+        return new Lambda(binders, new Hole());
+    }
+}
@@ -0,0 +1,37 @@
+package nl.utwente.viskell.model;
+
+import nl.utwente.viskell.haskell.expr.Expression;
+import nl.utwente.viskell.haskell.expr.Hole;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A block of a kind whose expression can not be built without the visual block, or of which the expression
+ * could not be loaded, which stands in as a hole.
+ * Its inputs are created as the connections to them are found.
+ */
+final class OpaqueBlockModel extends BlockModel {
+    OpaqueBlockModel(int id, String kind, double x, double y, Map<String, Object> properties) {
+        super(id, kind, x, y, properties, 0, "res");
+    }
+
+    @Override
+    public Optional<InputModel> getInput(int index) {
+        while (index >= this.inputs.size()) {
+            this.inputs.add(new InputModel(this, this.inputs.size()));
+        }
+
+        return super.getInput(index);
+    }
+
+    @Override
+    public boolean isSupported() {
+        return false;
+    }
+
+    @Override
+    public Expression getLocalExpr() {
+        return new Hole();
+    }
+}
@@ -0,0 +1,96 @@
+package nl.utwente.viskell.model;
+
+import nl.utwente.viskell.haskell.expr.Binder;
+import nl.utwente.viskell.haskell.expr.LetExpression;
+import nl.utwente.viskell.haskell.expr.LocalVar;
+import nl.utwente.viskell.haskell.type.Type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The output of a block in the headless model, which can be connected to any number of inputs.
+ */
+public class OutputModel {
+    /** The block this output belongs to. */
+    private final BlockModel block;
+
+    /** The binder for the value of this output in the expression graph. */
+    private final Binder binder;
+
+    /** The connections from this output. */
+    private final List<ConnectionModel> connections;
+
+    /** The type found by the last typecheck, if any. */
+    private Optional<Type> type;
+
+    /**
+     * @param block The block this output belongs to.
+     * @param name The base name of the binder of this output.
+     */
+    OutputModel(BlockModel block, String name) {
+        this.block = block;
+        this.binder = new Binder(name);
+        this.connections = new ArrayList<>();
+        this.type = Optional.empty();
+    }
+
+    /** @return The block this output belongs to. */
+    public BlockModel getBlock() {
+        return this.block;
+    }
+
+    /** @return The connections from this output. */
+    public List<ConnectionModel> getConnections() {
+        return Collections.unmodifiableList(this.connections);
+    }
+
+    /** @return Whether this output is connected to any input. */
+    public boolean hasConnection() {
+        return !this.connections.isEmpty();
+    }
+
+    /** @param connection A new connection from this output. */
+    void addConnection(ConnectionModel connection) {
+        this.connections.add(connection);
+    }
+
+    /** @param connection A connection that is removed. */
+    void removeConnection(ConnectionModel connection) {
+        this.connections.remove(connection);
+    }
+
+    /** @return The variable referring to the value of this output. */
+    public LocalVar getVariable() {
+        return new LocalVar(this.binder);
+    }
+
+    /** @return The type found by the last typecheck, if it has been typechecked. */
+    public Optional<Type> getType() {
+        return this.type;
+    }
+
+    /** @param type The type of this output, used for the variables referring to it. */
+    void setType(Type type) {
+        this.type = Optional.of(type);
+        this.binder.setAnnotationAsType(type);
+    }
+
+    /**
+     * Extends the expression graph with the binding of this output and everything it requires.
+     * @param exprGraph the let expression representing the current expression graph
+     */
+    void extendExprGraph(LetExpression exprGraph) {
+        if (exprGraph.addLetBinding(this.binder, this.block.getLocalExpr())) {
+            // for a new let binding everything from the subexpression in this block needs to be included
+            this.block.extendExprGraph(exprGraph);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OutputModel of " + this.block;
+    }
+}
@@ -0,0 +1,96 @@
+package nl.utwente.viskell.model;
+
+import nl.utwente.viskell.haskell.expr.Apply;
+import nl.utwente.viskell.haskell.expr.Expression;
+import nl.utwente.viskell.haskell.expr.Value;
+import nl.utwente.viskell.haskell.type.ListTypeCon;
+import nl.utwente.viskell.haskell.type.Type;
+import nl.utwente.viskell.haskell.type.TypeApp;
+import nl.utwente.viskell.haskell.type.TypeScope;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A block showing the value of its single input, such as a display.
+ * The expressions of which the values are shown are built here for the visual blocks as well.
+ */
+public final class SinkBlockModel extends BlockModel {
+    /** The number of elements of a list that a display shows, so that infinite lists can be shown too. */
+    public static final int DISPLAY_LIMIT = 32;
+
+    /** The lowest argument a graph is sampled at. */
+    public static final double GRAPH_MIN = -5;
+
+    /** The highest argument a graph is sampled at. */
+    public static final double GRAPH_MAX = 5;
+
+    /** The distance between the arguments a graph is sampled at. */
+    public static final double GRAPH_STEP = 0.01;
+
+    SinkBlockModel(int id, String kind, double x, double y, Map<String, Object> properties) {
+        super(id, kind, x, y, properties, 1, null);
+    }
+
+    @Override
+    public Expression getLocalExpr() {
+        return this.inputs.get(0).getLocalExpr();
+    }
+
+    @Override
+    public Optional<Expression> getResultExpr(int steps) {
+        Expression expr = this.getFullExpr();
+        switch (this.getKind()) {
+            case "GraphBlock":
+                return Optional.of(SinkBlockModel.graphExpr(expr));
+            case "SimulateBlock":
+                return Optional.of(SinkBlockModel.simulateExpr(expr, steps));
+            default:
+                return Optional.of(SinkBlockModel.displayExpr(expr, this.inputs.get(0).getType()));
+        }
+    }
+
+    /**
+     * @param expr The expression shown by a display.
+     * @param type The type of the expression, if known.
+     * @return The expression of which the value is shown, only the start of it for a list.
+     */
+    public static Expression displayExpr(Expression expr, Optional<Type> type) {
+        Optional<Type> concrete = type.map(Type::getConcrete);
+        if (concrete.isPresent() && concrete.get() instanceof TypeApp && ((TypeApp) concrete.get()).asFlattenedAppChain().get(0) instanceof ListTypeCon) {
+            // so we don't try to fully evaluate infinite lists
+            return SinkBlockModel.wrap("Data.List.take " + SinkBlockModel.DISPLAY_LIMIT, expr);
+        }
+
+        return expr;
+    }
+
+    /**
+     * @param fun The function shown by a graph.
+     * @return The list of the values of the function at the arguments from GRAPH_MIN to GRAPH_MAX by GRAPH_STEP.
+     */
+    public static Expression graphExpr(Expression fun) {
+        double min = SinkBlockModel.GRAPH_MIN;
+        String range = String.format(Locale.US, "[%f,%f..%f]", min, min + SinkBlockModel.GRAPH_STEP, SinkBlockModel.GRAPH_MAX);
+        return SinkBlockModel.wrap("\\f -> Data.List.map f " + range, fun);
+    }
+
+    /**
+     * @param fun The function on signals shown by a simulation.
+     * @param steps The number of steps to simulate.
+     * @return The list of the first results of simulating the function.
+     */
+    public static Expression simulateExpr(Expression fun, int steps) {
+        return SinkBlockModel.wrap("\\f -> Data.List.take " + steps + " (simulate f [1..])", fun);
+    }
+
+    /**
+     * @param code The code of a function, of which the type no longer matters after typechecking.
+     * @param expr The argument of the function.
+     * @return The function applied to the argument.
+     */
+    private static Expression wrap(String code, Expression expr) {
+        return new Apply(new Value(Type.fun(TypeScope.unique("a"), TypeScope.unique("b")), code), expr);
+    }
+}
@@ -0,0 +1,23 @@
+package nl.utwente.viskell.model;
+
+import nl.utwente.viskell.haskell.expr.Expression;
+import nl.utwente.viskell.haskell.expr.Value;
+import nl.utwente.viskell.haskell.type.Type;
+
+import java.util.Map;
+
+/** A block with a value given as Haskell code, such as a constant or a slider. */
+final class ValueBlockModel extends BlockModel {
+    /** The type of the value, of which a fresh copy is used for every expression. */
+    private final Type type;
+
+    ValueBlockModel(int id, String kind, double x, double y, Map<String, Object> properties, Type type) {
+        super(id, kind, x, y, properties, 0, "val");
+        this.type = type;
+    }
+
+    @Override
+    public Expression getLocalExpr() {
+        return new Value(this.type.getFresh(), (String) this.getProperties().get("value"));
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains the headless model of a visual program, which can be loaded, typechecked and evaluated without a display.
+ */
+package nl.utwente.viskell.model;
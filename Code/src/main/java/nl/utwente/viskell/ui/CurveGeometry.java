@@ -0,0 +1,87 @@
+package nl.utwente.viskell.ui;
+
+/**
+ * Analytic tests of cubic Bezier curves, such as wires, against points, avoiding the construction
+ * of JavaFX shape geometry. The curve is subdivided only where it can still be near the other shape, and each part
+ * that is flat enough is treated as a straight line.
+ */
+final class CurveGeometry {
+    /** The distance in pixels a part of a curve may deviate from a straight line to be treated as one. */
+    private static final double FLATNESS = 0.25;
+
+    /** The maximum number of times a curve is halved, which is far below a pixel for any curve on screen. */
+    private static final int MAX_DEPTH = 24;
+
+    private CurveGeometry() {
+        // This is a static utility class.
+    }
+
+    /**
+     * @param curve The control points of a cubic Bezier curve, as x0, y0, x1, y1, x2, y2, x3, y3.
+     * @param px The horizontal position of the point.
+     * @param py The vertical position of the point.
+     * @param distance The maximum distance.
+     * @return Whether the curve passes within the distance of the point.
+     */
+    static boolean cubicNearPoint(double[] curve, double px, double py, double distance) {
+        return CurveGeometry.nearPoint(curve, px, py, distance, 0);
+    }
+
+    private static boolean nearPoint(double[] c, double px, double py, double distance, int depth) {
+        // the curve lies within the bounding box of its control points
+        if (px < CurveGeometry.min(c, 0) - distance || px > CurveGeometry.max(c, 0) + distance ||
+                py < CurveGeometry.min(c, 1) - distance || py > CurveGeometry.max(c, 1) + distance) {
+            return false;
+        }
+
+        if (depth >= MAX_DEPTH || CurveGeometry.flatness(c) <= FLATNESS) {
+            return CurveGeometry.segmentDistanceSq(c[0], c[1], c[6], c[7], px, py) <= distance * distance;
+        }
+
+        double[][] halves = CurveGeometry.split(c);
+        return CurveGeometry.nearPoint(halves[0], px, py, distance, depth + 1) ||
+                CurveGeometry.nearPoint(halves[1], px, py, distance, depth + 1);
+    }
+
+    /** @return The smallest of the x (offset 0) or y (offset 1) coordinates of the control points. */
+    private static double min(double[] c, int offset) {
+        return Math.min(Math.min(c[offset], c[offset + 2]), Math.min(c[offset + 4], c[offset + 6]));
+    }
+
+    /** @return The largest of the x (offset 0) or y (offset 1) coordinates of the control points. */
+    private static double max(double[] c, int offset) {
+        return Math.max(Math.max(c[offset], c[offset + 2]), Math.max(c[offset + 4], c[offset + 6]));
+    }
+
+    /** @return An upper bound of the distance between the curve and the line between its end points. */
+    private static double flatness(double[] c) {
+        return Math.sqrt(Math.max(
+                CurveGeometry.segmentDistanceSq(c[0], c[1], c[6], c[7], c[2], c[3]),
+                CurveGeometry.segmentDistanceSq(c[0], c[1], c[6], c[7], c[4], c[5])));
+    }
+
+    /** @return The two halves of the curve, by de Casteljau's algorithm. */
+    private static double[][] split(double[] c) {
+        double x01 = (c[0] + c[2]) / 2, y01 = (c[1] + c[3]) / 2;
+        double x12 = (c[2] + c[4]) / 2, y12 = (c[3] + c[5]) / 2;
+        double x23 = (c[4] + c[6]) / 2, y23 = (c[5] + c[7]) / 2;
+        double xa = (x01 + x12) / 2, ya = (y01 + y12) / 2;
+        double xb = (x12 + x23) / 2, yb = (y12 + y23) / 2;
+        double xm = (xa + xb) / 2, ym = (ya + yb) / 2;
+        return new double[][] {
+            {c[0], c[1], x01, y01, xa, ya, xm, ym},
+            {xm, ym, xb, yb, x23, y23, c[6], c[7]}
+        };
+    }
+
+    /** @return The squared distance between the point p and the line segment from a to b. */
+    private static double segmentDistanceSq(double ax, double ay, double bx, double by, double px, double py) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSq));
+        double ex = ax + t * dx - px;
+        double ey = ay + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+}
@@ -50,6 +50,12 @@ import java.util.stream.Collectors;
  */
 public class FunctionMenu extends StackPane implements ComponentLoader {
 
+    /** The maximum number of functions shown as search result. */
+    private static final int SEARCH_LIMIT = 25;
+
+    /** The preferred height of the search result list. */
+    private static final double SEARCH_LIST_HEIGHT = 160;
+
     /** The context that deals with dragging for this Menu */
     protected DragContext dragContext;
 
@@ -71,7 +77,23 @@ public class FunctionMenu extends StackPane implements ComponentLoader {
         this.dragContext = new DragContext(this);
 
         /* Create content for searchSpace. */
-        // TODO create search tools and add them to searchSpace.
+        TextField searchField = new TextField();
+        searchField.setPromptText("Search");
+        ObservableList<CatalogFunction> searchResults = FXCollections.observableArrayList();
+        ListView<CatalogFunction> searchList = this.createFunctionList(searchResults, null);
+        searchList.setPrefHeight(SEARCH_LIST_HEIGHT);
+        searchList.setVisible(false);
+        searchList.setManaged(false);
+
+        // search as you type, showing the result list only while there is a query
+        searchField.textProperty().addListener((obs, oldQuery, query) -> {
+            searchResults.setAll(catalog.search(query, SEARCH_LIMIT));
+            boolean searching = !query.trim().isEmpty();
+            searchList.setVisible(searching);
+            searchList.setManaged(searching);
+        });
+
+        this.searchSpace.getChildren().addAll(searchField, searchList);
 
         /* Create content for categorySpace. */
         ArrayList<String> categories = new ArrayList<>(catalog.getCategories());
@@ -92,112 +114,8 @@ public class FunctionMenu extends StackPane implements ComponentLoader {
             Collections.sort(entries);
             items.addAll(entries);
 
-            ListView<CatalogFunction> listView = new ListView<>(items);
-
-            listView.setCellFactory((list) -> {
-                return new ListCell<CatalogFunction>() {
-                    {
-                        
-                        this.setOnMouseReleased(e -> {
-                            if (this.isEmpty()) {
-                                return;
-                            }
-                            
-                            if ((e.isSynthesized() && e.getButton() != MouseButton.SECONDARY) || !this.contains(e.getX(), e.getY())) {
-                                return;
-                            }
-                            
-                            CatalogFunction entry = this.getItem();
-                            if ("Deconstructors".equals(category) && entry.isConstructor()) {
-                                addBlock(new MatchBlock(parent, entry));
-                            } else if (e.getButton() == MouseButton.SECONDARY && entry.isConstructor()) {
-                                addBlock(new MatchBlock(parent, entry));
-                            } else if (!(entry.getFreshSignature() instanceof FunType)) {
-                                addBlock(new ConstantBlock(pane, entry.getFreshSignature(), entry.getName(), true));
-                            } else {
-                            	if (entry.getName().startsWith("(") && entry.getFreshSignature().countArguments() == 2) {
-                            		addBlock(new BinOpApplyBlock(parent, entry));
-                            	} else {
-                            		addBlock(new FunApplyBlock(parent, new LibraryFunUse(entry)));
-                            	}
-                            }
-                        });
-              
-                        final double[] touchStartY = new double[]{0.0};
-                        
-                        this.setOnTouchPressed(e -> {
-                            touchStartY[0] = this.localToParent(e.getTouchPoint().getX(), e.getTouchPoint().getY()).getY();
-                        });
-                        
-                        this.setOnTouchReleased(e -> {
-                            if (this.isEmpty()) {
-                                return;
-                            }
-                            
-                            double touchParentY = this.localToParent(e.getTouchPoint().getX(), e.getTouchPoint().getY()).getY();
-                            if (Math.abs(touchStartY[0] - touchParentY) > 10) {
-                                // a release after scrolling is not intended as touch click
-                                return;
-                            }
-                            
-                            if (!this.contains(e.getTouchPoint().getX(), e.getTouchPoint().getY())) {
-                                return;
-                            }
-                            
-                            CatalogFunction entry = this.getItem();
-                            
-                            if ("Deconstructors".equals(category) && entry.isConstructor()) {
-                                addBlock(new MatchBlock(parent, entry));
-                            } else if (!(entry.getFreshSignature() instanceof FunType)) {
-                                addBlock(new ConstantBlock(pane, entry.getFreshSignature(), entry.getName(), true));
-                            } else {
-                                if (entry.getName().startsWith("(") && entry.getFreshSignature().countArguments() == 2) {
-                                    addBlock(new BinOpApplyBlock(parent, entry));
-                                } else {
-                                    addBlock(new FunApplyBlock(parent, new LibraryFunUse(entry)));
-                                }
-                            }
-                        });
-                        
-                        this.setOnTouchMoved(e -> {
-                            if (this.isEmpty()) {
-                                return;
-                            }
-          
-                            if (this.contains(e.getTouchPoint().getX(), e.getTouchPoint().getY())) {
-                                return;
-                            }
-                            
-                            double sceneX = e.getTouchPoint().getSceneX();
-                            Bounds bounds = FunctionMenu.this.localToScene(FunctionMenu.this.getBoundsInLocal());
-                            if (sceneX < bounds.getMinX()-75 || sceneX > bounds.getMaxX()+25) {
-                                CatalogFunction entry = this.getItem();
-                                if ("Deconstructors".equals(category) && entry.isConstructor()) {
-                                    addDraggedBlock(e.getTouchPoint(), new MatchBlock(parent, entry));
-                                } else if (!(entry.getFreshSignature() instanceof FunType)) {
-                                    addDraggedBlock(e.getTouchPoint(), new ConstantBlock(pane, entry.getFreshSignature(), entry.getName(), true));
-                                } else {
-                                    if (entry.getName().startsWith("(") && entry.getFreshSignature().countArguments() == 2) {
-                                        addDraggedBlock(e.getTouchPoint(), new BinOpApplyBlock(parent, entry));
-                                    } else {
-                                        addDraggedBlock(e.getTouchPoint(), new FunApplyBlock(parent, new LibraryFunUse(entry)));
-                                    }
-                                }
-                                e.consume();
-                            }
-                        });
-                    }
-
-                    @Override
-                    protected void updateItem(CatalogFunction item, boolean empty) {
-                        super.updateItem(item, empty);
-                        this.setText(item == null ? null : item.getDisplayName());
-                    }
+            ListView<CatalogFunction> listView = this.createFunctionList(items, category);
 
-                };
-            });
-
-            
             TitledPane submenu = new TitledPane(category, listView);
             submenu.setAnimated(false);
             
@@ -208,12 +126,6 @@ public class FunctionMenu extends StackPane implements ComponentLoader {
                 }
             });
             
-            //Prevent dragging the whole menu when dragging inside a category list 
-            listView.addEventHandler(TouchEvent.TOUCH_MOVED, Event::consume);
-            
-            // Consume scroll events to prevent mixing of zooming and list scrolling.
-            listView.addEventHandler(ScrollEvent.SCROLL, Event::consume);
-            
             categoryContainer.getPanes().addAll(submenu);
         }
 
@@ -286,6 +198,127 @@ public class FunctionMenu extends StackPane implements ComponentLoader {
         opening.play();
     }
 
+    /**
+     * Creates a list view of functions, with cells that place the selected function as a block.
+     * @param items the functions to show.
+     * @param category the name of the category that is shown, or null if it is not a single category.
+     * @return the new list view.
+     */
+    private ListView<CatalogFunction> createFunctionList(ObservableList<CatalogFunction> items, String category) {
+        ListView<CatalogFunction> listView = new ListView<>(items);
+
+        listView.setCellFactory((list) -> {
+            return new ListCell<CatalogFunction>() {
+                {
+                    
+                    this.setOnMouseReleased(e -> {
+                        if (this.isEmpty()) {
+                            return;
+                        }
+                        
+                        if ((e.isSynthesized() && e.getButton() != MouseButton.SECONDARY) || !this.contains(e.getX(), e.getY())) {
+                            return;
+                        }
+                        
+                        CatalogFunction entry = this.getItem();
+                        if ("Deconstructors".equals(category) && entry.isConstructor()) {
+                            addBlock(new MatchBlock(parent, entry));
+                        } else if (e.getButton() == MouseButton.SECONDARY && entry.isConstructor()) {
+                            addBlock(new MatchBlock(parent, entry));
+                        } else if (!(entry.getFreshSignature() instanceof FunType)) {
+                            addBlock(new ConstantBlock(parent, entry.getFreshSignature(), entry.getName(), true));
+                        } else {
+                        	if (entry.getName().startsWith("(") && entry.getFreshSignature().countArguments() == 2) {
+                        		addBlock(new BinOpApplyBlock(parent, entry));
+                        	} else {
+                        		addBlock(new FunApplyBlock(parent, new LibraryFunUse(entry)));
+                        	}
+                        }
+                    });
+          
+                    final double[] touchStartY = new double[]{0.0};
+                    
+                    this.setOnTouchPressed(e -> {
+                        touchStartY[0] = this.localToParent(e.getTouchPoint().getX(), e.getTouchPoint().getY()).getY();
+                    });
+                    
+                    this.setOnTouchReleased(e -> {
+                        if (this.isEmpty()) {
+                            return;
+                        }
+                        
+                        double touchParentY = this.localToParent(e.getTouchPoint().getX(), e.getTouchPoint().getY()).getY();
+                        if (Math.abs(touchStartY[0] - touchParentY) > 10) {
+                            // a release after scrolling is not intended as touch click
+                            return;
+                        }
+                        
+                        if (!this.contains(e.getTouchPoint().getX(), e.getTouchPoint().getY())) {
+                            return;
+                        }
+                        
+                        CatalogFunction entry = this.getItem();
+                        
+                        if ("Deconstructors".equals(category) && entry.isConstructor()) {
+                            addBlock(new MatchBlock(parent, entry));
+                        } else if (!(entry.getFreshSignature() instanceof FunType)) {
+                            addBlock(new ConstantBlock(parent, entry.getFreshSignature(), entry.getName(), true));
+                        } else {
+                            if (entry.getName().startsWith("(") && entry.getFreshSignature().countArguments() == 2) {
+                                addBlock(new BinOpApplyBlock(parent, entry));
+                            } else {
+                                addBlock(new FunApplyBlock(parent, new LibraryFunUse(entry)));
+                            }
+                        }
+                    });
+                    
+                    this.setOnTouchMoved(e -> {
+                        if (this.isEmpty()) {
+                            return;
+                        }
+      
+                        if (this.contains(e.getTouchPoint().getX(), e.getTouchPoint().getY())) {
+                            return;
+                        }
+                        
+                        double sceneX = e.getTouchPoint().getSceneX();
+                        Bounds bounds = FunctionMenu.this.localToScene(FunctionMenu.this.getBoundsInLocal());
+                        if (sceneX < bounds.getMinX()-75 || sceneX > bounds.getMaxX()+25) {
+                            CatalogFunction entry = this.getItem();
+                            if ("Deconstructors".equals(category) && entry.isConstructor()) {
+                                addDraggedBlock(e.getTouchPoint(), new MatchBlock(parent, entry));
+                            } else if (!(entry.getFreshSignature() instanceof FunType)) {
+                                addDraggedBlock(e.getTouchPoint(), new ConstantBlock(parent, entry.getFreshSignature(), entry.getName(), true));
+                            } else {
+                                if (entry.getName().startsWith("(") && entry.getFreshSignature().countArguments() == 2) {
+                                    addDraggedBlock(e.getTouchPoint(), new BinOpApplyBlock(parent, entry));
+                                } else {
+                                    addDraggedBlock(e.getTouchPoint(), new FunApplyBlock(parent, new LibraryFunUse(entry)));
+                                }
+                            }
+                            e.consume();
+                        }
+                    });
+                }
+
+                @Override
+                protected void updateItem(CatalogFunction item, boolean empty) {
+                    super.updateItem(item, empty);
+                    this.setText(item == null ? null : item.getDisplayName());
+                }
+
+            };
+        });
+
+        //Prevent dragging the whole menu when dragging inside a category list 
+        listView.addEventHandler(TouchEvent.TOUCH_MOVED, Event::consume);
+        
+        // Consume scroll events to prevent mixing of zooming and list scrolling.
+        listView.addEventHandler(ScrollEvent.SCROLL, Event::consume);
+
+        return listView;
+    }
+
     /** Specialized Button that behaves better in a many touch environment. */
     private static class MenuButton extends Button {
         
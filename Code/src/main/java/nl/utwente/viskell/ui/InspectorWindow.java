@@ -2,14 +2,19 @@ package nl.utwente.viskell.ui;
 
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ListView;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
+
+import java.util.prefs.Preferences;
+import nl.utwente.viskell.ghcj.GhciSession;
 import nl.utwente.viskell.ghcj.HaskellException;
 import nl.utwente.viskell.haskell.expr.Expression;
+import nl.utwente.viskell.haskell.expr.Optimizer;
 import nl.utwente.viskell.ui.components.Block;
 import nl.utwente.viskell.ui.serialize.Exporter;
 
@@ -25,10 +30,12 @@ public class InspectorWindow extends BorderPane implements ComponentLoader {
     @FXML private ListView<String> errors;
     @FXML private TextArea hs;
     @FXML private TextArea json;
+    @FXML private CheckBox optimize;
 
     public InspectorWindow(MainOverlay overlay) {
         loadFXML("InspectorWindow");
         this.overlay = overlay;
+        optimize.setSelected(GhciSession.pickOptimizeExpressions());
 
         stage = new Stage();
         stage.setTitle("Inspect");
@@ -61,7 +68,8 @@ public class InspectorWindow extends BorderPane implements ComponentLoader {
             if (node instanceof Block && ((Block)node).isBottomMost()) {
                 Block block = (Block)node;
                 Expression expr = block.getFullExpr();
-                haskell.append(expr.toHaskell());
+                // the source is shown as it is sent to ghci
+                haskell.append((optimize.isSelected() ? Optimizer.optimize(expr) : expr).toHaskell());
                 haskell.append("\n\n");
 
                 String label = String.format("%s: %s", block.getClass().getSimpleName(), haskell).trim();
@@ -77,6 +85,17 @@ public class InspectorWindow extends BorderPane implements ComponentLoader {
         errors.getItems().setAll(pane.getGhciSession().getErrors());
     }
 
+    /**
+     * Switches the optimization of the expressions sent to ghci, which is useful to switch off when debugging the
+     * code generated for a graph.
+     */
+    @FXML
+    private void toggleOptimize() {
+        Preferences prefs = Preferences.userNodeForPackage(Main.class);
+        prefs.putBoolean("optimizeExpressions", optimize.isSelected());
+        this.update();
+    }
+
     /**
      * Walks the expr tree, walk recursively calls itself on its children.
      */
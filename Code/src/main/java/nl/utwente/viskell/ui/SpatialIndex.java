@@ -0,0 +1,161 @@
+package nl.utwente.viskell.ui;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * Uniform grid of the bounding boxes of items on a plane, for finding the items near a point or in a rectangle
+ * without testing every item. Each item is listed in all cells its bounds overlap, and is moved between cells
+ * only when its bounds cover different cells than before.
+ *
+ * @param <T> The type of the items, which are compared by identity and equality as keys of a map.
+ */
+public class SpatialIndex<T> {
+    /** The width and height of a cell. */
+    private final double cellSize;
+
+    /** The items overlapping each non empty cell, by the key of the cell. */
+    private final Map<Long, Set<T>> cells;
+
+    /** The bounds of each item, as minX, minY, maxX and maxY. */
+    private final Map<T, double[]> bounds;
+
+    /**
+     * @param cellSize The width and height of a cell, which is best somewhat larger than a typical item.
+     */
+    public SpatialIndex(double cellSize) {
+        this.cellSize = cellSize;
+        this.cells = new HashMap<>();
+        this.bounds = new HashMap<>();
+    }
+
+    /**
+     * Adds an item, or updates the bounds of an item already in this index.
+     * @param item The item.
+     * @param minX The left of its bounds.
+     * @param minY The top of its bounds.
+     * @param maxX The right of its bounds.
+     * @param maxY The bottom of its bounds.
+     */
+    public void update(T item, double minX, double minY, double maxX, double maxY) {
+        double[] box = {minX, minY, maxX, maxY};
+        double[] old = this.bounds.put(item, box);
+        if (old != null) {
+            if (this.cell(old[0]) == this.cell(minX) && this.cell(old[1]) == this.cell(minY) &&
+                    this.cell(old[2]) == this.cell(maxX) && this.cell(old[3]) == this.cell(maxY)) {
+                // still in the same cells, only the bounds changed
+                return;
+            }
+
+            this.forCells(old, key -> {
+                Set<T> cell = this.cells.get(key);
+                cell.remove(item);
+                if (cell.isEmpty()) {
+                    this.cells.remove(key);
+                }
+            });
+        }
+
+        this.forCells(box, key -> this.cells.computeIfAbsent(key, k -> new HashSet<>()).add(item));
+    }
+
+    /**
+     * @param item The item to remove, if it is in this index.
+     */
+    public void remove(T item) {
+        double[] old = this.bounds.remove(item);
+        if (old != null) {
+            this.forCells(old, key -> {
+                Set<T> cell = this.cells.get(key);
+                cell.remove(item);
+                if (cell.isEmpty()) {
+                    this.cells.remove(key);
+                }
+            });
+        }
+    }
+
+    /** Removes all items. */
+    public void clear() {
+        this.cells.clear();
+        this.bounds.clear();
+    }
+
+    /** @return The number of items in this index. */
+    public int size() {
+        return this.bounds.size();
+    }
+
+    /**
+     * @param minX The left of the rectangle.
+     * @param minY The top of the rectangle.
+     * @param maxX The right of the rectangle.
+     * @param maxY The bottom of the rectangle.
+     * @return The items of which the bounds intersect the rectangle, each once.
+     */
+    public List<T> query(double minX, double minY, double maxX, double maxY) {
+        List<T> found = new ArrayList<>();
+        double columns = Math.floor(maxX / this.cellSize) - Math.floor(minX / this.cellSize) + 1;
+        double rows = Math.floor(maxY / this.cellSize) - Math.floor(minY / this.cellSize) + 1;
+        if (columns * rows > this.cells.size()) {
+            // a rectangle covering more cells than are in use, such as a large selection, is faster to test directly
+            for (Map.Entry<T, double[]> entry : this.bounds.entrySet()) {
+                if (SpatialIndex.intersects(entry.getValue(), minX, minY, maxX, maxY)) {
+                    found.add(entry.getKey());
+                }
+            }
+
+            return found;
+        }
+
+        Set<T> seen = new HashSet<>();
+        this.forCells(new double[] {minX, minY, maxX, maxY}, key -> {
+            Set<T> cell = this.cells.get(key);
+            if (cell != null) {
+                for (T item : cell) {
+                    if (SpatialIndex.intersects(this.bounds.get(item), minX, minY, maxX, maxY) && seen.add(item)) {
+                        found.add(item);
+                    }
+                }
+            }
+        });
+
+        return found;
+    }
+
+    /**
+     * @param box A rectangle as minX, minY, maxX and maxY.
+     * @return Whether the rectangle intersects the other one, including touching edges.
+     */
+    private static boolean intersects(double[] box, double minX, double minY, double maxX, double maxY) {
+        return box[0] <= maxX && minX <= box[2] && box[1] <= maxY && minY <= box[3];
+    }
+
+    /**
+     * @param coordinate A horizontal or vertical position.
+     * @return The column or row of the cell containing the position.
+     */
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / this.cellSize);
+    }
+
+    /**
+     * Calls an action for the key of every cell overlapping a rectangle.
+     * @param box The rectangle as minX, minY, maxX and maxY.
+     * @param action The action to call.
+     */
+    private void forCells(double[] box, LongConsumer action) {
+        int maxColumn = this.cell(box[2]);
+        int maxRow = this.cell(box[3]);
+        for (int column = this.cell(box[0]); column <= maxColumn; column++) {
+            for (int row = this.cell(box[1]); row <= maxRow; row++) {
+                action.accept(((long) column << 32) | (row & 0xFFFFFFFFL));
+            }
+        }
+    }
+}
@@ -1,21 +1,33 @@
 package nl.utwente.viskell.ui;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.ListChangeListener;
 import javafx.geometry.BoundingBox;
 import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
 import javafx.scene.Node;
+import javafx.scene.control.Alert;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.Region;
+import javafx.scene.shape.Circle;
 import javafx.scene.shape.Path;
 import javafx.scene.shape.Shape;
 import nl.utwente.viskell.ghcj.GhciSession;
 import nl.utwente.viskell.haskell.env.Environment;
+import nl.utwente.viskell.haskell.expr.Expression;
+import nl.utwente.viskell.model.BlockModel;
+import nl.utwente.viskell.model.ConnectionModel;
+import nl.utwente.viskell.model.GraphModel;
 import nl.utwente.viskell.ui.components.*;
 import nl.utwente.viskell.ui.serialize.Bundleable;
 
 import java.util.*;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -24,8 +36,8 @@ import java.util.stream.Stream;
  * And represents the toplevel container of all blocks.
  */
 public class ToplevelPane extends Region implements BlockContainer, Bundleable {
-    public static final String BLOCKS_SERIALIZED_NAME = "Blocks";
-    public static final String CONNECTIONS_SERIALIZED_NAME = "Connections";
+    public static final String BLOCKS_SERIALIZED_NAME = GraphModel.BLOCKS_LABEL;
+    public static final String CONNECTIONS_SERIALIZED_NAME = GraphModel.CONNECTIONS_LABEL;
 
     /** bottom pane layer intended for block container such as lambda's */
     private final Pane bottomLayer;
@@ -40,6 +52,24 @@ public class ToplevelPane extends Region implements BlockContainer, Bundleable {
 
     /** The set of blocks that logically belong to this top level */
     private final Set<Block> attachedBlocks;
+
+    /** The expressions of the blocks waiting to be evaluated together, in order of request */
+    private final Map<Block, Expression> pendingEvaluations;
+
+    /** The callbacks for the results of the pending evaluations */
+    private final Map<Block, FutureCallback<String>> pendingCallbacks;
+
+    /** The width and height of a cell of the spatial index, a bit larger than most blocks */
+    private static final double INDEX_CELL_SIZE = 256;
+
+    /** The bounds of all blocks on the bottom and block layers, for finding blocks near a point */
+    private final SpatialIndex<Block> blockIndex;
+
+    /** The bounds of all connections on the wire layer, for finding the wires near a cut */
+    private final SpatialIndex<Connection> wireIndex;
+
+    /** The listeners keeping the spatial indexes up to date with the bounds of each block and connection */
+    private final Map<Node, ChangeListener<Bounds>> boundsListeners;
     
     /**
      * Constructs a new instance.
@@ -47,12 +77,34 @@ public class ToplevelPane extends Region implements BlockContainer, Bundleable {
     public ToplevelPane(GhciSession ghci) {
         super();
         this.attachedBlocks = new HashSet<>();
+        this.pendingEvaluations = new LinkedHashMap<>();
+        this.pendingCallbacks = new HashMap<>();
+        this.blockIndex = new SpatialIndex<>(INDEX_CELL_SIZE);
+        this.wireIndex = new SpatialIndex<>(INDEX_CELL_SIZE);
+        this.boundsListeners = new HashMap<>();
         
         this.bottomLayer = new Pane();
         this.blockLayer = new Pane(this.bottomLayer);
         this.wireLayer = new Pane(this.blockLayer);
         this.getChildren().add(this.wireLayer);
 
+        // blocks move by relocation, resizing and with their container, all of which change their bounds in parent
+        ListChangeListener<Node> blockIndexer = change -> {
+            while (change.next()) {
+                change.getRemoved().stream().filter(n -> n instanceof Block).forEach(n -> this.unindexNode(this.blockIndex, (Block) n));
+                change.getAddedSubList().stream().filter(n -> n instanceof Block).forEach(n -> this.indexNode(this.blockIndex, (Block) n));
+            }
+        };
+        this.bottomLayer.getChildren().addListener(blockIndexer);
+        this.blockLayer.getChildren().addListener(blockIndexer);
+        // wires change their bounds when either of their ends moves
+        this.wireLayer.getChildren().addListener((ListChangeListener<Node>) change -> {
+            while (change.next()) {
+                change.getRemoved().stream().filter(n -> n instanceof Connection).forEach(n -> this.unindexNode(this.wireIndex, (Connection) n));
+                change.getAddedSubList().stream().filter(n -> n instanceof Connection).forEach(n -> this.indexNode(this.wireIndex, (Connection) n));
+            }
+        });
+
         this.ghci = ghci;
 
         TouchContext context = new TouchContext(this, true);
@@ -104,6 +156,37 @@ public class ToplevelPane extends Region implements BlockContainer, Bundleable {
         return ghci;
     }
 
+    /**
+     * Requests the evaluation of an expression for a block, together with those of all other blocks requesting one
+     * in the same refresh, so that the parts of the graph they share are evaluated only once.
+     * A later request of the same block in the same refresh replaces the earlier one.
+     * @param block The block that needs the result.
+     * @param expr The expression to evaluate.
+     * @param callback The callback for the result, which may be called from outside the JavaFX thread.
+     */
+    public void evaluateTogether(Block block, Expression expr, FutureCallback<String> callback) {
+        if (this.pendingEvaluations.isEmpty()) {
+            // the blocks of this refresh are already scheduled, so this runs after all of them made their request
+            Platform.runLater(this::evaluatePending);
+        }
+
+        this.pendingEvaluations.remove(block);
+        this.pendingEvaluations.put(block, expr);
+        this.pendingCallbacks.put(block, callback);
+    }
+
+    /** Evaluates all pending expressions together. */
+    private void evaluatePending() {
+        List<Block> blocks = new ArrayList<>(this.pendingEvaluations.keySet());
+        List<ListenableFuture<String>> results = this.ghci.pullAll(new ArrayList<>(this.pendingEvaluations.values()));
+        for (int i = 0; i < blocks.size(); i++) {
+            Futures.addCallback(results.get(i), this.pendingCallbacks.get(blocks.get(i)));
+        }
+
+        this.pendingEvaluations.clear();
+        this.pendingCallbacks.clear();
+    }
+
     /**
      * Terminate the current GhciSession, if any, then start a new one.
      * Waits for the old session to end, but not for the new session to start.
@@ -201,30 +284,31 @@ public class ToplevelPane extends Region implements BlockContainer, Bundleable {
 
     public void fromBundle(Map<String, Object> layers) {
         if (layers != null) {
+            // the headless model checks the structure of the bundle, the visual blocks are built on top of it
+            GraphModel graph = GraphModel.fromBundle(layers, this.getEnvInstance());
+            List<String> errors = new ArrayList<>(graph.getErrors());
+
             Map<Integer, Block> blockLookupTable = new HashMap<>();
-            List<Map<String, Object>> blocksBundle = (ArrayList<Map<String, Object>>) layers.get(BLOCKS_SERIALIZED_NAME);
-            if (blocksBundle != null) {
-                for (Map<String, Object> bundle : blocksBundle) {
-                    Block block;
-                    try {
-                        block = Block.fromBundle(bundle, this, blockLookupTable);
-                        addBlock(block);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
+            for (BlockModel model : graph.getBlocks()) {
+                try {
+                    addBlock(Block.fromModel(model, this, blockLookupTable));
+                } catch (Exception e) {
+                    errors.add("Block " + model.getId() + ": " + Throwables.getRootCause(e));
                 }
             }
 
-            List<Map<String, Object>> connectionsBundle = (ArrayList<Map<String, Object>>) layers.get(CONNECTIONS_SERIALIZED_NAME);
-            if (connectionsBundle != null) {
-                for (Map<String, Object> bundle : connectionsBundle) {
-                    try {
-                        Connection.fromBundle(bundle, blockLookupTable);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
+            for (ConnectionModel model : graph.getConnections()) {
+                try {
+                    Connection.fromModel(model, blockLookupTable);
+                } catch (Exception e) {
+                    errors.add("Connection from block " + model.getStart().getBlock().getId() + ": " + Throwables.getRootCause(e));
                 }
             }
+
+            if (!errors.isEmpty()) {
+                String msg = "Some parts of the program could not be loaded:\n" + String.join("\n", errors);
+                new Alert(Alert.AlertType.WARNING, msg).showAndWait();
+            }
         }
     }
 
@@ -258,6 +342,42 @@ public class ToplevelPane extends Region implements BlockContainer, Bundleable {
         return this.localToScene(this.getBoundsInLocal());
     }
 
+    /** Adds a block or connection to a spatial index, and keeps it up to date while it is on one of the layers. */
+    private <T extends Node> void indexNode(SpatialIndex<T> index, T node) {
+        ChangeListener<Bounds> listener = (obs, oldBounds, newBounds) -> index.update(node,
+                newBounds.getMinX(), newBounds.getMinY(), newBounds.getMaxX(), newBounds.getMaxY());
+        ChangeListener<Bounds> previous = this.boundsListeners.put(node, listener);
+        if (previous != null) {
+            node.boundsInParentProperty().removeListener(previous);
+        }
+
+        node.boundsInParentProperty().addListener(listener);
+        listener.changed(null, null, node.getBoundsInParent());
+    }
+
+    /** Removes a block or connection from a spatial index, if it is not on one of the layers anymore. */
+    private <T extends Node> void unindexNode(SpatialIndex<T> index, T node) {
+        Node parent = node.getParent();
+        if (parent == this.bottomLayer || parent == this.blockLayer || parent == this.wireLayer) {
+            // moved within the layers, such as to the front of its container
+            return;
+        }
+
+        ChangeListener<Bounds> listener = this.boundsListeners.remove(node);
+        if (listener != null) {
+            node.boundsInParentProperty().removeListener(listener);
+        }
+        index.remove(node);
+    }
+
+    /**
+     * @param bounds An area in the coordinate system of this pane.
+     * @return All blocks of which the bounds intersect the area, for hit tests and selections.
+     */
+    public List<Block> allBlocksIntersecting(Bounds bounds) {
+        return this.blockIndex.query(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+    }
+
     /**
      * @param pos the position to look around in coordinate system of this pane. 
      * @param distance the maximum 'nearby' distance.
@@ -265,7 +385,8 @@ public class ToplevelPane extends Region implements BlockContainer, Bundleable {
     public List<ConnectionAnchor> allNearbyFreeAnchors(Point2D pos, double distance) {
         ArrayList<ConnectionAnchor> anchors = new ArrayList<>(); 
         Bounds testBounds = new BoundingBox(pos.getX()-distance, pos.getY()-distance, distance*2, distance*2);
-        for (Block nearBlock : this.streamChildren().filter(n -> n instanceof Block).map(n -> (Block)n).filter(b -> b.getBoundsInParent().intersects(testBounds)).collect(Collectors.toList())) {
+        // the anchors lie within the bounds of their block, so only the blocks near the position need to be checked
+        for (Block nearBlock : this.allBlocksIntersecting(testBounds)) {
             for (ConnectionAnchor anchor : nearBlock.getAllAnchors()) {
                 Point2D anchorPos = anchor.getAttachmentPoint();
                 if (pos.distance(anchorPos) < distance  && anchor.getWireInProgress() == null && !anchor.hasConnection()) {
@@ -277,14 +398,30 @@ public class ToplevelPane extends Region implements BlockContainer, Bundleable {
         return anchors;
     }
     
+    /**
+     * Removes all connections touching the cutter. Only the wires of which the bounds intersect those of the cutter
+     * are tested, and a circular cutter is tested analytically against the curve of each wire.
+     * @param cutter The area in which to cut the wires, in the coordinate system of this pane.
+     */
     protected void cutIntersectingConnections(Shape cutter) {
-        new ArrayList<>(this.wireLayer.getChildren()).stream()
-                .filter(node -> node instanceof Connection).forEach(node -> {
-            Connection wire = (Connection) node;
-            if (((Path) Shape.intersect(wire, cutter)).getElements().size() > 0) {
+        Bounds bounds = cutter.getBoundsInParent();
+        for (Connection wire : this.wireIndex.query(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY())) {
+            boolean cut;
+            if (cutter instanceof Circle && cutter.getParent() == this) {
+                Circle circle = (Circle) cutter;
+                double[] curve = {wire.getStartX(), wire.getStartY(), wire.getControlX1(), wire.getControlY1(),
+                                  wire.getControlX2(), wire.getControlY2(), wire.getEndX(), wire.getEndY()};
+                double centerX = (bounds.getMinX() + bounds.getMaxX()) / 2;
+                double centerY = (bounds.getMinY() + bounds.getMaxY()) / 2;
+                cut = CurveGeometry.cubicNearPoint(curve, centerX, centerY, circle.getRadius() + wire.getStrokeWidth() / 2);
+            } else {
+                cut = ((Path) Shape.intersect(wire, cutter)).getElements().size() > 0;
+            }
+
+            if (cut) {
                 wire.remove();
             }
-        });
+        }
     }
     
     @Override
@@ -14,6 +14,7 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Polygon;
+import nl.utwente.viskell.haskell.expr.Apply;
 import nl.utwente.viskell.haskell.expr.Binder;
 import nl.utwente.viskell.haskell.expr.Expression;
 import nl.utwente.viskell.haskell.expr.Value;
@@ -99,19 +100,15 @@ public class AppendBlock extends Block {
 
     @Override
     public Expression getLocalExpr(Set<OutputAnchor> outsideAnchors) {
-        // sometimes textual code generation is just easier
-        StringBuilder expr = new StringBuilder();
-        expr.append("(");
-        for (int i = 0; i < this.inputs.size(); i++) {
-            if (i != 0) {
-                expr.append(" `mappend` ");
-            }
-            InputAnchor input = this.inputs.get(i);
-            expr.append(input.getLocalExpr(outsideAnchors).toHaskell());
+        // the inputs combined from left to right, as mappend has no fixity declaration
+        Expression expr = this.inputs.get(0).getLocalExpr(outsideAnchors);
+        for (int i = 1; i < this.inputs.size(); i++) {
+            Type monoid = this.monoidConstraint.getFresh();
+            Expression mappend = new Value(Type.fun(monoid, monoid, monoid), "mappend");
+            expr = new Apply(new Apply(mappend, expr), this.inputs.get(i).getLocalExpr(outsideAnchors));
         }
-        expr.append(')');
-        
-        return new Value(this.output.getType(Optional.empty()).getFresh(), expr.toString());
+
+        return expr;
     }
 
     @Override
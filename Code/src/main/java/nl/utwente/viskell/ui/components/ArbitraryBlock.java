@@ -65,7 +65,7 @@ public class ArbitraryBlock extends ValueBlock implements Bundleable {
             }
         }
 
-        Optional<Type> defType = outputType.getFresh().defaultedConcreteType(Type.con("Bool"));
+        Optional<Type> defType = outputType.defaultedConcreteType(Type.con("Bool"));
         Type type = defType.orElse(outputType);
         
         if (this.lastGenType.isPresent() && !fromClick) {
@@ -10,6 +10,7 @@ import javafx.scene.Node;
 import javafx.scene.layout.StackPane;
 import nl.utwente.viskell.haskell.expr.Expression;
 import nl.utwente.viskell.haskell.expr.LetExpression;
+import nl.utwente.viskell.model.BlockModel;
 import nl.utwente.viskell.ui.*;
 import nl.utwente.viskell.ui.serialize.Bundleable;
 
@@ -33,10 +34,10 @@ import java.util.function.Predicate;
  * </p>
  */
 public abstract class Block extends StackPane implements Bundleable, ComponentLoader {
-    private static final String BLOCK_ID_PARAMETER = "id";
-    private static final String BLOCK_X_PARAMETER = "x";
-    private static final String BLOCK_Y_PARAMETER = "y";
-    private static final String BLOCK_PROPERTIES_PARAMETER = "properties";
+    private static final String BLOCK_ID_PARAMETER = BlockModel.ID_LABEL;
+    private static final String BLOCK_X_PARAMETER = BlockModel.X_LABEL;
+    private static final String BLOCK_Y_PARAMETER = BlockModel.Y_LABEL;
+    private static final String BLOCK_PROPERTIES_PARAMETER = BlockModel.PROPERTIES_LABEL;
 
     /** The pane that is used to hold state and place all components on. */
     private final ToplevelPane toplevel;
@@ -56,6 +57,15 @@ public abstract class Block extends StackPane implements Bundleable, ComponentLo
     /** Whether this block has a meaningful interpretation the current container context. */
     protected boolean inValidContext;
 
+    /** The local expression of this block, kept until a change propagates to this block, or null if not built yet. */
+    private Expression localExpr;
+
+    /** The out-of-reach OutputAnchors required by the kept local expression. */
+    private Set<OutputAnchor> localOutsideAnchors;
+
+    /** The complete expression of this block and all its dependencies, or null if not built yet. */
+    private Expression fullExpr;
+
     /**
      * In order to serialize using simple class names we need some way to map the simple class
      * name to the full class names. This is one that should survive automatic refactoring of classes
@@ -193,6 +203,8 @@ public abstract class Block extends StackPane implements Bundleable, ComponentLo
         
         this.updateInProgress = !finalPhase;
         this.freshAnchorTypes = false;
+        // every change reaches all connected blocks, so the expressions of all others can be kept
+        this.invalidateExpressions();
         
         // First make sure that all connected inputs will be updated too.        
         for (InputAnchor input : this.getAllInputs()) {
@@ -218,20 +230,48 @@ public abstract class Block extends StackPane implements Bundleable, ComponentLo
      * @return The expression this block represents.
      */
     public abstract Expression getLocalExpr(Set<OutputAnchor> outsideAnchors);
+
+    /**
+     * Same as getLocalExpr, but the expression is only built once until a change propagates to this block.
+     * @param outsideAnchors the set being accumulated of out-of-reach OutputAnchors that are required for the expression.
+     * @return The expression this block represents.
+     */
+    public final Expression getCachedLocalExpr(Set<OutputAnchor> outsideAnchors) {
+        if (this.localExpr == null) {
+            this.localOutsideAnchors = new HashSet<>();
+            this.localExpr = this.getLocalExpr(this.localOutsideAnchors);
+        }
+
+        outsideAnchors.addAll(this.localOutsideAnchors);
+        return this.localExpr;
+    }
+
+    /** Forgets the kept expressions of this block, as they may have changed. */
+    protected void invalidateExpressions() {
+        this.localExpr = null;
+        this.localOutsideAnchors = null;
+        this.fullExpr = null;
+        this.getAllInputs().forEach(InputAnchor::invalidateFullExpr);
+    }
     
     /**
      * This method is only used for the inspector window.
      * @return A complete expression of this block and all its dependencies.
      */
     public final Expression getFullExpr() {
+        if (this.fullExpr != null) {
+            return this.fullExpr;
+        }
+
         Set<OutputAnchor> outerAnchors = new HashSet<>();
-        Expression localExpr = getLocalExpr(outerAnchors);
+        Expression localExpr = getCachedLocalExpr(outerAnchors);
         
         LetExpression fullExpr = new LetExpression(localExpr, false);
         extendExprGraph(fullExpr, this.toplevel, outerAnchors);
         
         outerAnchors.forEach(block -> block.extendExprGraph(fullExpr, this.toplevel, new HashSet<>()));
         
+        this.fullExpr = fullExpr;
         return fullExpr;
     }
 
@@ -364,20 +404,26 @@ public abstract class Block extends StackPane implements Bundleable, ComponentLo
         );
     }
 
-    public static Block fromBundle(Map<String,Object> blockBundle,
-                                   ToplevelPane toplevelPane,
-                                   Map<Integer, Block> blockLookupTable)
+    /**
+     * Creates the visual block for a block of the headless model.
+     * @param model The block as loaded from a bundle.
+     * @param toplevelPane The pane the block is placed on.
+     * @param blockLookupTable The visual blocks by the id of their model, to which the new block is added.
+     * @return The new visual block.
+     */
+    public static Block fromModel(BlockModel model,
+                                  ToplevelPane toplevelPane,
+                                  Map<Integer, Block> blockLookupTable)
             throws ClassNotFoundException, NoSuchMethodException, InvocationTargetException, IllegalAccessException {
-        String kind = (String)blockBundle.get(Bundleable.KIND);
-        String className = blockClassMap.get(kind);
+        String className = blockClassMap.get(model.getKind());
         Class<?> clazz = Class.forName(className);
 
         // Find the static "fromBundleFragment" method for the named type and call it
         Method fromBundleMethod = clazz.getDeclaredMethod("fromBundleFragment", ToplevelPane.class, Map.class);
-        Block block = (Block) fromBundleMethod.invoke(null, toplevelPane, blockBundle.get(BLOCK_PROPERTIES_PARAMETER));
-        block.setLayoutX((Double)blockBundle.get(BLOCK_X_PARAMETER));
-        block.setLayoutY((Double) blockBundle.get(BLOCK_Y_PARAMETER));
-        blockLookupTable.put(((Double)blockBundle.get(Block.BLOCK_ID_PARAMETER)).intValue(), block);
+        Block block = (Block) fromBundleMethod.invoke(null, toplevelPane, model.getProperties());
+        block.setLayoutX(model.getX());
+        block.setLayoutY(model.getY());
+        blockLookupTable.put(model.getId(), block);
 
         // Ensure initialization of types related to the block
         block.initiateConnectionChanges();
@@ -12,6 +12,7 @@ import javafx.scene.shape.CubicCurve;
 import javafx.scene.transform.Transform;
 import nl.utwente.viskell.haskell.expr.LetExpression;
 import nl.utwente.viskell.haskell.type.*;
+import nl.utwente.viskell.model.ConnectionModel;
 import nl.utwente.viskell.ui.BlockContainer;
 import nl.utwente.viskell.ui.ComponentLoader;
 import nl.utwente.viskell.ui.serialize.Bundleable;
@@ -40,8 +41,8 @@ public class Connection extends CubicCurve implements
     /**
      * Labels for serialization to and from JSON
      */
-    private static final String SOURCE_LABEL = "from";
-    private static final String SINK_LABEL = "to";
+    private static final String SOURCE_LABEL = ConnectionModel.SOURCE_LABEL;
+    private static final String SINK_LABEL = ConnectionModel.SINK_LABEL;
 
     /** Starting point of this Line that can be Anchored onto other objects. */
     private final OutputAnchor startAnchor;
@@ -169,18 +170,17 @@ public class Connection extends CubicCurve implements
         return bundle.build();
     }
 
-    public static void fromBundle(Map<String,Object> connectionBundle,
-                                        Map<Integer, Block> blockLookupTable) {
-        Map<String,Object> source = (Map<String,Object>)connectionBundle.get(SOURCE_LABEL);
-        Integer sourceId = ((Double)source.get(ConnectionAnchor.BLOCK_LABEL)).intValue();
-        Block sourceBlock = blockLookupTable.get(sourceId);
+    /**
+     * Creates the visual connection for a connection of the headless model.
+     * @param model The connection as loaded from a bundle.
+     * @param blockLookupTable The visual blocks by the id of their model.
+     */
+    public static void fromModel(ConnectionModel model, Map<Integer, Block> blockLookupTable) {
+        Block sourceBlock = blockLookupTable.get(model.getStart().getBlock().getId());
         OutputAnchor sourceAnchor = sourceBlock.getAllOutputs().get(0);
 
-        Map<String,Object> sink = (Map<String,Object>)connectionBundle.get(SINK_LABEL);
-        Integer sinkId = ((Double)sink.get(ConnectionAnchor.BLOCK_LABEL)).intValue();
-        Integer sinkAnchorNumber = ((Double)sink.get(ConnectionAnchor.ANCHOR_LABEL)).intValue();
-        Block sinkBlock = blockLookupTable.get(sinkId);
-        InputAnchor sinkAnchor = sinkBlock.getAllInputs().get(sinkAnchorNumber);
+        Block sinkBlock = blockLookupTable.get(model.getEnd().getBlock().getId());
+        InputAnchor sinkAnchor = sinkBlock.getAllInputs().get(model.getEnd().getIndex());
 
         Connection connection = new Connection(sourceAnchor, sinkAnchor);
         connection.invalidateVisualState();
@@ -5,6 +5,7 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.input.TouchEvent;
 import javafx.scene.layout.StackPane;
 import nl.utwente.viskell.haskell.type.Type;
+import nl.utwente.viskell.model.ConnectionModel;
 import nl.utwente.viskell.ui.BlockContainer;
 import nl.utwente.viskell.ui.ComponentLoader;
 import nl.utwente.viskell.ui.ToplevelPane;
@@ -16,8 +17,11 @@ import nl.utwente.viskell.ui.serialize.Bundleable;
  * A ConnectionAnchor has an invisible part that acts as an enlargement of the touch zone.
  */
 public abstract class ConnectionAnchor extends StackPane implements ComponentLoader, Bundleable {
-    protected static final String BLOCK_LABEL = "block";
-    protected static final String ANCHOR_LABEL = "anchor";
+    protected static final String BLOCK_LABEL = ConnectionModel.BLOCK_LABEL;
+    protected static final String ANCHOR_LABEL = ConnectionModel.ANCHOR_LABEL;
+
+    /** The maximum length of the type shown next to an anchor, longer types are abbreviated. */
+    protected static final int MAX_TYPE_LENGTH = 120;
 
     /** Helper interface for finding the associated connection anchor on release a wire onto something. */
     public interface Target {
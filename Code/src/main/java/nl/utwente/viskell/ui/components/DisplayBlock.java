@@ -2,17 +2,15 @@ package nl.utwente.viskell.ui.components;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.FutureCallback;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListenableFuture;
 
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
 import javafx.scene.layout.Pane;
-import nl.utwente.viskell.ghcj.GhciSession;
 import nl.utwente.viskell.ghcj.HaskellException;
 import nl.utwente.viskell.haskell.expr.*;
 import nl.utwente.viskell.haskell.type.*;
+import nl.utwente.viskell.model.SinkBlockModel;
 import nl.utwente.viskell.ui.ToplevelPane;
 
 import java.util.List;
@@ -71,22 +69,9 @@ public class DisplayBlock extends Block implements ConnectionAnchor.Target {
             try { 
                 TypeChecker.unify("is showable", inputAnchor.getType().getFresh(), showConstraint.getFresh());
             
-                GhciSession ghci = getToplevel().getGhciSession();
-
-                Expression expr = inputAnchor.getFullExpr();
-                Type type = inputAnchor.getType().getConcrete();
-                if (type instanceof TypeApp) {
-                    List<Type> tapps = ((TypeApp)type).asFlattenedAppChain();
-                    if (tapps.get(0) instanceof ListTypeCon) {
-                        // add an extra take on lists, so we don't try to fully eval infinite ones
-                        FunVar take = new FunVar(this.getToplevel().getEnvInstance().lookupFun("take"));
-                        expr = new Apply (new Apply(take, new Value(Type.con("Int"), "32")), expr);
-                    }
-                }
+                Expression expr = SinkBlockModel.displayExpr(inputAnchor.getFullExpr(), Optional.of(inputAnchor.getType()));
                 
-                ListenableFuture<String> result = ghci.pull(expr);
-
-                Futures.addCallback(result, new FutureCallback<String>() {
+                getToplevel().evaluateTogether(this, expr, new FutureCallback<String>() {
                     public void onSuccess(String s) {
                         // Can't call setOutput directly - this may not be JavaFX app thread.
                         // Instead, schedule setting the output.
@@ -1,7 +1,10 @@
 package nl.utwente.viskell.ui.components;
 
+import com.google.common.base.CharMatcher;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -10,15 +13,14 @@ import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.Pane;
-import nl.utwente.viskell.ghcj.GhciSession;
 import nl.utwente.viskell.haskell.expr.Expression;
 import nl.utwente.viskell.haskell.type.FunType;
 import nl.utwente.viskell.haskell.type.Type;
 import nl.utwente.viskell.haskell.type.TypeScope;
+import nl.utwente.viskell.model.SinkBlockModel;
 import nl.utwente.viskell.ui.ToplevelPane;
 
 import java.util.*;
-import java.util.concurrent.ExecutionException;
 
 /**
  * Block that accepts a (Float -> Float) function to be displayed on a linechart
@@ -47,6 +49,8 @@ public class GraphBlock extends Block {
     public GraphBlock(ToplevelPane pane) {
         super(pane);
         loadFXML("GraphBlock");
+        x.setLowerBound(SinkBlockModel.GRAPH_MIN);
+        x.setUpperBound(SinkBlockModel.GRAPH_MAX);
 
         input = new InputAnchor(this);
         input.layoutXProperty().bind(inputSpace.widthProperty().divide(2));
@@ -95,34 +99,49 @@ public class GraphBlock extends Block {
         if (! (this.inValidContext && this.input.hasValidConnection())) {
             return;
         }
-        
+
+        // evaluated together with the other blocks of this refresh, sharing the parts of the graph they have in common
+        Expression expr = SinkBlockModel.graphExpr(this.getAllInputs().get(0).getFullExpr());
+        getToplevel().evaluateTogether(this, expr, new FutureCallback<String>() {
+            public void onSuccess(String results) {
+                // See DisplayBlock.invalidateVisualState
+                Platform.runLater(() -> chart.setData(GraphBlock.toChartData(results)));
+            }
+
+            public void onFailure(Throwable throwable) {
+                // Pretend we didn't hear anything.
+                Platform.runLater(() -> chart.setData(FXCollections.observableArrayList()));
+            }
+        });
+    }
+
+    /**
+     * @param results The values of the function at the sampled arguments, as shown by ghci.
+     * @return The line of the values, or no line at all if they can not be read.
+     */
+    private static ObservableList<XYChart.Series<Double, Double>> toChartData(String results) {
         ObservableList<XYChart.Series<Double, Double>> lineChartData = FXCollections.observableArrayList();
 
-        double step = 0.01;
-        double min = x.getLowerBound();
-        double max = x.getUpperBound();
+        double step = SinkBlockModel.GRAPH_STEP;
+        double min = SinkBlockModel.GRAPH_MIN;
+        double max = SinkBlockModel.GRAPH_MAX;
 
         try {
-            GhciSession ghciSession = getToplevel().getGhciSession();
-            String funName = "graph_fun_" + Integer.toHexString(this.hashCode());
-            ghciSession.push(funName, this.getAllInputs().get(0).getFullExpr());
-            String range = String.format(Locale.US, " [%f,%f..%f]", min, min+step, max);
-            String results = ghciSession.pullRaw("putStrLn $ unwords $ map show $ map " + funName + range).get();
-
             LineChart.Series<Double, Double> series = new LineChart.Series<>();
             ObservableList<XYChart.Data<Double, Double>> data = series.getData();
-            Iterator<String> v = Splitter.on(' ').split(results).iterator();
+            // the results are shown as a list of numbers
+            Iterator<String> v = Splitter.on(',').trimResults().split(CharMatcher.anyOf("[]").trimFrom(results)).iterator();
 
             for (double i = min; i < max; i += step) {
                 data.add(new XYChart.Data<>(i, Double.valueOf(v.next())));
             }
 
             lineChartData.add(series);
-        } catch (NoSuchElementException | NumberFormatException | InterruptedException | ExecutionException ignored) {
+        } catch (NoSuchElementException | NumberFormatException ignored) {
             // Pretend we didn't hear anything.
         }
 
-        chart.setData(lineChartData);
+        return lineChartData;
     }
 
     @Override
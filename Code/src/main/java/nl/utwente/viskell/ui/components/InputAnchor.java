@@ -45,6 +45,9 @@ public class InputAnchor extends ConnectionAnchor implements ConnectionAnchor.Ta
     /** Property storing the error state. */
     private BooleanProperty errorState;
 
+    /** The full expression carried by the connection, kept until a change propagates to the block, or null. */
+    private LetExpression fullExpr;
+
     /**
      * @param block
      *            The Block this anchor is connected to.
@@ -101,6 +104,15 @@ public class InputAnchor extends ConnectionAnchor implements ConnectionAnchor.Ta
     protected void setConnection(Connection connection) {
         this.connection = Optional.of(connection);
         this.openWire.setVisible(false);
+        this.invalidateBlockExpressions();
+    }
+
+    /** Forgets the kept expressions of the block, as they depend on the connection of this anchor. */
+    private void invalidateBlockExpressions() {
+        this.fullExpr = null;
+        if (this.block != null) {
+            this.block.invalidateExpressions();
+        }
     }
     
     @Override
@@ -109,6 +121,7 @@ public class InputAnchor extends ConnectionAnchor implements ConnectionAnchor.Ta
             Connection conn = this.connection.get();
             this.connection = Optional.empty();
             conn.remove();
+            this.invalidateBlockExpressions();
         }
         this.setErrorState(false);
         this.openWire.setVisible(true);
@@ -145,10 +158,10 @@ public class InputAnchor extends ConnectionAnchor implements ConnectionAnchor.Ta
     }
 
     /**
-     * @return the string representation of the in- or output type.
+     * @return the string representation of the in- or output type, abbreviated if it is very long.
      */
     public final String getStringType() {
-        return this.getType().prettyPrint();
+        return this.getType().prettyPrintBounded(MAX_TYPE_LENGTH);
     }
     
     /**
@@ -183,6 +196,10 @@ public class InputAnchor extends ConnectionAnchor implements ConnectionAnchor.Ta
      * @return The full expression carried by the connection connected to this anchor.
      */
     public Expression getFullExpr() {
+        if (this.fullExpr != null) {
+            return this.fullExpr;
+        }
+
         Set<OutputAnchor> outsideAnchors = new HashSet<>();
         LetExpression fullExpr = new LetExpression(this.getLocalExpr(outsideAnchors), false);
         
@@ -196,8 +213,14 @@ public class InputAnchor extends ConnectionAnchor implements ConnectionAnchor.Ta
             outsideAnchors.forEach(connection -> connection.extendExprGraph(fullExpr, block.container, outsideAnchors));
         }
     
+        this.fullExpr = fullExpr;
         return fullExpr;
     }
+
+    /** Forgets the kept full expression, as something it depends on may have changed. */
+    public void invalidateFullExpr() {
+        this.fullExpr = null;
+    }
     
     /**
      * Extends the expression graph to include all subexpression required
@@ -2,6 +2,7 @@ package nl.utwente.viskell.ui.components;
 
 import java.util.*;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 
 import com.google.common.collect.ImmutableMap;
@@ -10,6 +11,7 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Polygon;
+import nl.utwente.viskell.haskell.expr.Apply;
 import nl.utwente.viskell.haskell.expr.Binder;
 import nl.utwente.viskell.haskell.expr.Expression;
 import nl.utwente.viskell.haskell.expr.Value;
@@ -94,16 +96,23 @@ public class JoinerBlock extends Block {
 
     @Override
     public Expression getLocalExpr(Set<OutputAnchor> outsideAnchors) {
-        // sometimes textual code generation is just easier
-        StringBuilder expr = new StringBuilder();
-        expr.append("(");
+        int arity = this.inputs.size();
+        if (arity == 1) {
+            return this.inputs.get(0).getLocalExpr(outsideAnchors);
+        }
+
+        // the tuple constructor applied to all inputs, instead of code built from the names of not yet bound variables
+        Type[] signature = new Type[arity + 1];
+        for (int i = 0; i < arity; i++) {
+            signature[i] = TypeScope.unique("a");
+        }
+        signature[arity] = Type.tupleOf(Arrays.copyOf(signature, arity));
+        Expression expr = new Value(Type.fun(signature), "(" + Strings.repeat(",", arity - 1) + ")");
         for (InputAnchor input : this.inputs) {
-            expr.append(input.getLocalExpr(outsideAnchors).toHaskell());
-            expr.append(",");
+            expr = new Apply(expr, input.getLocalExpr(outsideAnchors));
         }
-        expr.setCharAt(expr.length()-1, ')');
-        
-        return new Value(this.output.getType(Optional.empty()).getFresh(), expr.toString());
+
+        return expr;
     }
 
     @Override
@@ -105,7 +105,7 @@ public class Lane extends BorderPane implements WrappedContainer, ComponentLoade
                 guards.addLetBinding(((SplitterBlock)block).getPrimaryBinder(), block.getAllInputs().get(0).getFullExpr());
             } else {
                 block.getAllOutputs().forEach(anchor -> {
-                    if (anchor.getStringType().equals("Bool")) {
+                    if (anchor.hasBoolType()) {
                         guards.addLetBinding(new ConstructorBinder("True"), anchor.getVariable());
                         anchor.extendExprGraph(guards, this, outsideAnchors);
                     }
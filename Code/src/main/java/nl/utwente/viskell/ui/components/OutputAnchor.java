@@ -7,7 +7,9 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Shape;
 import nl.utwente.viskell.haskell.expr.*;
 import nl.utwente.viskell.haskell.type.Type;
+import nl.utwente.viskell.haskell.type.TypeCon;
 import nl.utwente.viskell.haskell.type.TypeScope;
+import nl.utwente.viskell.haskell.type.TypeVar;
 import nl.utwente.viskell.ui.BlockContainer;
 
 import java.util.*;
@@ -65,10 +67,22 @@ public class OutputAnchor extends ConnectionAnchor implements ConnectionAnchor.T
     }
 
     /**
-     * @return the string representation of the in- or output type.
+     * @return the string representation of the in- or output type, abbreviated if it is very long.
      */
     public final String getStringType() {
-        return this.getType(Optional.empty()).prettyPrint();
+        return this.getType(Optional.empty()).prettyPrintBounded(MAX_TYPE_LENGTH);
+    }
+
+    /**
+     * @return Whether the type of this anchor is Bool, so that it can be used as a guard.
+     */
+    public final boolean hasBoolType() {
+        Type type = this.getType(Optional.empty());
+        if (type instanceof TypeVar && ((TypeVar) type).hasConcreteInstance()) {
+            type = ((TypeVar) type).getInstantiatedType();
+        }
+
+        return type instanceof TypeCon && "Bool".equals(((TypeCon) type).getName());
     }
 
     /**
@@ -178,7 +192,7 @@ public class OutputAnchor extends ConnectionAnchor implements ConnectionAnchor.T
     protected void extendExprGraph(LetExpression exprGraph, BlockContainer container, Set<OutputAnchor> outsideAnchors) {
         if (block.getContainer().equals(container)) {
             boolean added = false;
-            Expression expr = block.getLocalExpr(outsideAnchors);
+            Expression expr = block.getCachedLocalExpr(outsideAnchors);
             
             if (block instanceof MatchBlock) {
                 added = exprGraph.addLetBinding(((MatchBlock)block).getPrimaryBinder(), expr);
@@ -235,7 +249,7 @@ public class OutputAnchor extends ConnectionAnchor implements ConnectionAnchor.T
         }
     }
     public void invalidateVisualState() {
-        if ("Bool".equals(this.getStringType()) && this.getContainer() instanceof Lane) {
+        if (this.hasBoolType() && this.getContainer() instanceof Lane) {
             this.guardMarker.setVisible(!this.hasConnection());
             this.openWire.setVisible(false);
             
@@ -2,17 +2,15 @@ package nl.utwente.viskell.ui.components;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.FutureCallback;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListenableFuture;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.layout.Pane;
-import nl.utwente.viskell.ghcj.GhciSession;
 import nl.utwente.viskell.haskell.expr.Expression;
 import nl.utwente.viskell.haskell.type.Type;
 import nl.utwente.viskell.haskell.type.TypeScope;
+import nl.utwente.viskell.model.SinkBlockModel;
 import nl.utwente.viskell.ui.ComponentLoader;
 import nl.utwente.viskell.ui.ToplevelPane;
 
@@ -72,13 +70,10 @@ public class SimulateBlock extends Block implements ComponentLoader {
         inputType.setText(inputAnchor.getStringType());
 
         if (this.inValidContext && inputAnchor.hasValidConnection()) {
-            GhciSession ghciSession = getToplevel().getGhciSession();
-            String format = "Data.List.take %d $ simulate (%s) [1..]";
-            String expr = String.format(format, iteration, inputAnchor.getFullExpr().toHaskell());
-            ListenableFuture<String> result = ghciSession.pullRaw(expr);
+            Expression expr = SinkBlockModel.simulateExpr(inputAnchor.getFullExpr(), iteration);
 
             // See DisplayBlock.invalidateVisualState
-            Futures.addCallback(result, new FutureCallback<String>() {
+            getToplevel().evaluateTogether(this, expr, new FutureCallback<String>() {
                 public void onSuccess(String s)    { Platform.runLater(() -> value.setText(s)); }
                 public void onFailure(Throwable t) { Platform.runLater(() -> value.setText("?!?!?!")); }
             });
@@ -2,6 +2,8 @@ package nl.utwente.viskell.ui.serialize;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import nl.utwente.viskell.haskell.env.Environment;
+import nl.utwente.viskell.model.GraphModel;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -26,4 +28,15 @@ public class Importer {
         Type collectionType = new TypeToken<Map<String, Object>>(){}.getType();
         return gson.fromJson(inputStreamReader, collectionType);
     }
+
+    /**
+     * Imports the contents of a file in JSON format into a headless model, without any user interface
+     *
+     * @param is Input stream of JSON description of blocks to read
+     * @param env The environment for looking up the functions used
+     * @return the graph of blocks read from the file
+     */
+    public static GraphModel readGraph(InputStream is, Environment env) {
+        return GraphModel.fromBundle(Importer.readLayers(is), env);
+    }
 }
@@ -0,0 +1,58 @@
+package nl.utwente.viskell.ghcj;
+
+import com.google.common.collect.ImmutableList;
+import nl.utwente.viskell.haskell.env.HaskellCatalog;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BatchRunnerTest {
+    private AtomicInteger started;
+
+    private BatchRunner runner;
+
+    @Before
+    public void setUp() throws HaskellException {
+        Assume.assumeTrue(new File("/bin/sh").canExecute());
+        this.started = new AtomicInteger();
+        Evaluator evaluator = new FakeEvaluator();
+        this.runner = new BatchRunner(new HaskellCatalog(), ImmutableList.of(evaluator), () -> {
+            this.started.incrementAndGet();
+            return new FakeEvaluator();
+        }, BatchRunner.DEFAULT_STEPS, 500);
+    }
+
+    @After
+    public void tearDown() throws HaskellException, InterruptedException {
+        if (this.runner != null) {
+            this.runner.close();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTimeout() throws InterruptedException {
+        Map<String, Object> result = this.runner.run(Paths.get("samples/simple/observe_a_number.viskell"));
+        assertEquals(true, result.get("timedOut"));
+        Map<String, Object> sink = ((List<Map<String, Object>>) result.get("sinks")).get(0);
+        assertFalse(sink.containsKey("value"));
+        assertTrue(((String) sink.get("error")).contains("did not finish"));
+
+        // the stopped evaluator has been replaced, and the next file runs as usual
+        assertEquals(1, this.started.get());
+        result = this.runner.run(Paths.get("samples/simple/hello_world.viskell"));
+        assertEquals(false, result.get("timedOut"));
+        sink = ((List<Map<String, Object>>) result.get("sinks")).get(0);
+        assertEquals("ok", sink.get("value"));
+        assertEquals(1, this.started.get());
+    }
+}
@@ -0,0 +1,72 @@
+package nl.utwente.viskell.ghcj;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import nl.utwente.viskell.haskell.env.CatalogFunction;
+import nl.utwente.viskell.haskell.env.HaskellCatalog;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CatalogGeneratorTest {
+    private static final String BROWSE = String.join("\n",
+            "class Functor (f :: * -> *) where",
+            "  fmap :: (a -> b) -> f a -> f b",
+            "  (<$) :: a -> f b -> f a",
+            "  {-# MINIMAL fmap #-}",
+            "data Maybe a = Nothing | Just a",
+            "GHC.Base.map :: (a -> b) -> [a] -> [b]",
+            "(GHC.Base.++) :: [a] -> [a] -> [a]",
+            "foldr ::",
+            "  Foldable t => (a -> b -> b) -> b -> t a -> b",
+            "type String = [Char]",
+            "lookup :: Eq a => a -> [(a, b)] -> GHC.Base.Maybe b");
+
+    @Test
+    public void parseBrowseTest() {
+        Map<String, String> signatures = CatalogGenerator.parseBrowse(BROWSE);
+
+        assertEquals(ImmutableList.of("fmap", "(<$)", "map", "(++)", "foldr", "lookup"), ImmutableList.copyOf(signatures.keySet()));
+        assertEquals("Functor f => (a -> b) -> f a -> f b", signatures.get("fmap"));
+        assertEquals("Foldable t => (a -> b -> b) -> b -> t a -> b", signatures.get("foldr"));
+        assertEquals("Eq a => a -> [(a, b)] -> Maybe b", signatures.get("lookup"));
+    }
+
+    @Test
+    public void cacheKeyTest() {
+        String key = CatalogGenerator.cacheKey("ghc 7.10", ImmutableList.of("Prelude", "Data.List"));
+        assertEquals(key, CatalogGenerator.cacheKey("ghc 7.10", ImmutableList.of("Prelude", "Data.List")));
+        assertNotEquals(key, CatalogGenerator.cacheKey("ghc 8.0", ImmutableList.of("Prelude", "Data.List")));
+        assertNotEquals(key, CatalogGenerator.cacheKey("ghc 7.10", ImmutableList.of("Prelude")));
+    }
+
+    @Test
+    public void generatedCatalogTest() throws IOException {
+        Path file = Files.createTempFile("generated", ".xml");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            CatalogGenerator.writeCatalog(out, ImmutableMap.of("Data.List", ImmutableMap.of(
+                    "id", "Int -> Int",
+                    "isSubsequenceOf", "Eq a => [a] -> [a] -> Bool")));
+        }
+
+        try {
+            HaskellCatalog base = new HaskellCatalog();
+            HaskellCatalog c = new HaskellCatalog(HaskellCatalog.XML_PATH, ImmutableList.of(), ImmutableList.of(file.toUri().toURL()));
+
+            // generated entries only fill in what the bundled catalog lacks
+            assertEquals(base.size() + 1, c.size());
+            CatalogFunction id = c.getByPrefix("id").iterator().next();
+            assertNotEquals("Data.List", id.getCategory());
+            assertEquals("[Eq a] -> [Eq a] -> Bool", c.getByPrefix("isSubsequenceOf").iterator().next().getFreshSignature().prettyPrint());
+            assertTrue(c.getCategories().contains("Data.List"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package nl.utwente.viskell.ghcj;
+
+import nl.utwente.viskell.haskell.expr.Apply;
+import nl.utwente.viskell.haskell.expr.Expression;
+import nl.utwente.viskell.haskell.expr.Value;
+import nl.utwente.viskell.haskell.type.Type;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class CommandWriterTest {
+    @Test
+    public void testEncoding() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CommandWriter writer = new CommandWriter(bytes, StandardCharsets.UTF_8);
+
+        // multi byte characters and surrogate pairs crossing the buffer boundaries
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append(i % 3 == 0 ? "λ" : i % 3 == 1 ? "x" : "𝑥");
+        }
+
+        writer.append(text).append('\n');
+        long size = writer.finish();
+
+        byte[] expected = (text + "\n").getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected.length, size);
+        assertArrayEquals(expected, bytes.toByteArray());
+
+        // the next command starts counting again
+        writer.append("abc", 1, 3);
+        assertEquals(2, writer.finish());
+        assertEquals(expected.length + 2, bytes.size());
+    }
+
+    @Test
+    public void testAbort() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CommandWriter writer = new CommandWriter(bytes, StandardCharsets.UTF_8);
+
+        // a command that fails while it is still buffered is dropped entirely
+        writer.append("let x = ");
+        assertFalse(writer.abort());
+        assertEquals(0, bytes.size());
+
+        // a command of which a part was written already says so
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.append('x');
+        }
+        writer.append(text);
+        assertTrue(writer.abort());
+        int written = bytes.size();
+        assertTrue(written > 0 && written < text.length());
+
+        // the next command does not contain anything of the aborted one
+        writer.append("1");
+        assertEquals(1, writer.finish());
+        assertEquals(written + 1, bytes.size());
+        assertEquals('1', bytes.toByteArray()[written]);
+    }
+
+    @Test
+    public void testExpression() throws IOException {
+        Expression expr = new Value(Type.con("Int"), "1");
+        for (int i = 0; i < 1000; i++) {
+            expr = new Apply(new Apply(new Value(Type.fun(Type.con("Int"), Type.con("Int"), Type.con("Int")), "(+)"), expr), new Value(Type.con("Int"), "2"));
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CommandWriter writer = new CommandWriter(bytes, StandardCharsets.UTF_8);
+        writer.append("let x = ");
+        expr.toHaskell(writer);
+        long size = writer.finish();
+
+        assertEquals("let x = " + expr.toHaskell(), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(bytes.size(), size);
+    }
+}
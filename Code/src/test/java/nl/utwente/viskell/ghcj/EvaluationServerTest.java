@@ -0,0 +1,57 @@
+package nl.utwente.viskell.ghcj;
+
+import com.google.common.collect.ImmutableList;
+import nl.utwente.viskell.haskell.env.HaskellCatalog;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+
+public class EvaluationServerTest {
+    private EvaluationServer server;
+
+    @Before
+    public void setUp() throws HaskellException, IOException {
+        Assume.assumeTrue(new File("/bin/sh").canExecute());
+        BatchRunner runner = new BatchRunner(new HaskellCatalog(), ImmutableList.of(new FakeEvaluator()), FakeEvaluator::new, BatchRunner.DEFAULT_STEPS, 500);
+        this.server = new EvaluationServer(runner, 0, 1);
+        this.server.start();
+    }
+
+    @After
+    public void tearDown() throws HaskellException, InterruptedException {
+        if (this.server != null) {
+            this.server.stop();
+        }
+    }
+
+    /** @return The status of the reply to posting the sample. */
+    private int post(String sample) throws IOException {
+        URL url = new URL("http://localhost:" + this.server.getPort() + EvaluationServer.EVALUATE_PATH);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(Files.readAllBytes(Paths.get("samples/simple", sample)));
+        }
+
+        return connection.getResponseCode();
+    }
+
+    @Test
+    public void testTimeout() throws IOException {
+        // a program that never finishes gets an error, and does not keep the only evaluator from the next one
+        assertEquals(504, this.post("observe_a_number.viskell"));
+        assertEquals(200, this.post("hello_world.viskell"));
+    }
+}
@@ -0,0 +1,23 @@
+package nl.utwente.viskell.ghcj;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/** Stands in for ghci, answering every line with "ok", except lines with 42 which it never answers. */
+class FakeEvaluator extends Evaluator {
+    FakeEvaluator() throws HaskellException {
+        super();
+    }
+
+    @Override
+    protected List<String> getCommand() {
+        return ImmutableList.of("/bin/sh", "-c",
+                "while IFS= read -r line; do case \"$line\" in *42*) while read -r x; do :; done;; esac; printf 'ok\\000'; done");
+    }
+
+    @Override
+    protected List<String> getModules() {
+        return ImmutableList.of();
+    }
+}
@@ -1,9 +1,22 @@
 package nl.utwente.viskell.haskell.env;
 
 import nl.utwente.viskell.haskell.type.Type;
+import nl.utwente.viskell.haskell.type.TypeArena;
+import nl.utwente.viskell.haskell.type.TypeClass;
 import nl.utwente.viskell.haskell.type.TypeScope;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 public class HaskellCatalogTest {
@@ -33,4 +46,185 @@ public class HaskellCatalogTest {
         assertEquals(c.size(), c.getByType(new TypeScope().getVar("a")).size());
         assertEquals(1, c.getByType(Type.con("Banana")).size());
     }
+
+    @Test
+    public void searchTest() {
+        HaskellCatalog c = new HaskellCatalog();
+
+        assertTrue(c.search("", 10).isEmpty());
+        assertTrue(c.search("nosuchfunction", 10).isEmpty());
+
+        // exact matches come first, then longer names starting with the query
+        List<CatalogFunction> maps = c.search("map", 10);
+        assertEquals("map", maps.get(0).getName());
+        assertTrue(maps.stream().anyMatch(fn -> fn.getName().equals("mapM_")));
+
+        // case insensitive substring and fuzzy matches
+        assertTrue(c.search("MAYBE", 10).stream().anyMatch(fn -> fn.getName().equals("fromMaybe")));
+        assertTrue(c.search("fldr", 10).stream().anyMatch(fn -> fn.getName().equals("foldr")));
+
+        // operators are found on their symbols
+        assertTrue(c.search("+", 10).stream().anyMatch(fn -> fn.getName().equals("(+)")));
+
+        assertEquals(3, c.search("a", 3).size());
+    }
+
+    @Test
+    public void snapshotTest() throws IOException {
+        HaskellCatalog c = new HaskellCatalog(HaskellCatalog.XML_PATH, false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        c.toSnapshot().write(new DataOutputStream(bytes), 1234, 42);
+
+        CatalogSnapshot s = CatalogSnapshot.read(ByteBuffer.wrap(bytes.toByteArray()), 1234, 42, new TypeArena());
+        assertEquals(c.size(), s.functions.size());
+        for (CatalogFunction fn : s.functions) {
+            CatalogFunction orig = c.getByPrefix(fn.getName()).iterator().next();
+            assertEquals(orig.getFreshSignature().prettyPrint(), fn.getFreshSignature().prettyPrint());
+            assertEquals(orig.getCategory(), fn.getCategory());
+        }
+
+        // constraints and type variable sharing survive the round trip
+        Type dropWhile = s.functions.stream().filter(fn -> fn.getName().equals("dropWhile")).findFirst().get().getFreshSignature();
+        assertEquals("(a -> Bool) -> [a] -> [a]", dropWhile.prettyPrint());
+        Type sum = s.functions.stream().filter(fn -> fn.getName().equals("sum")).findFirst().get().getFreshSignature();
+        assertEquals(c.getByPrefix("sum").iterator().next().getFreshSignature().prettyPrint(), sum.prettyPrint());
+        assertEquals(c.getDataType("Maybe").getConstructors().size(), s.datatypes.get("Maybe").getConstructors().size());
+        assertTrue(s.classes.get("Integral").getName().equals("Integral"));
+    }
+
+    @Test(expected = IOException.class)
+    public void staleSnapshotTest() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new HaskellCatalog().toSnapshot().write(new DataOutputStream(bytes), 1234, 42);
+        CatalogSnapshot.read(ByteBuffer.wrap(bytes.toByteArray()), 1234, 43, new TypeArena());
+    }
+
+    @Test
+    public void corruptSnapshotTest() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new HaskellCatalog().toSnapshot().write(new DataOutputStream(bytes), 1234, 42);
+        // the header is followed by the number of classes and the length of the name of the first
+        int classCount = 4 + 4 + 8 + 8;
+        int nameLength = classCount + 4;
+
+        for (int[] corruption : new int[][] {{classCount, Integer.MAX_VALUE}, {nameLength, -5}, {nameLength, Integer.MAX_VALUE}}) {
+            ByteBuffer damaged = ByteBuffer.wrap(bytes.toByteArray());
+            damaged.putInt(corruption[0], corruption[1]);
+            try {
+                CatalogSnapshot.read(damaged, 1234, 42, new TypeArena());
+                fail("A corrupt snapshot should not be read");
+            } catch (IllegalArgumentException e) {
+                // rejected before allocating anything for it
+            }
+        }
+    }
+
+    @Test
+    public void mergeTest() throws IOException {
+        Path extra = Files.createTempFile("catalog", ".xml");
+        Files.write(extra, ("<catalog version=\"0.4\">"
+                + "<classes><class name=\"Pretty\"><superClass name=\"Show\"/><instance name=\"Int\"/></class></classes>"
+                + "<functions><category name=\"Extra\">"
+                + "<function name=\"pretty\" signature=\"Pretty a => a -> String\">\n    Pretty\n    prints.\n  </function>"
+                + "<function name=\"id\" signature=\"a -> a\">Replaced identity.</function>"
+                + "</category></functions></catalog>").getBytes(StandardCharsets.UTF_8));
+
+        try {
+            HaskellCatalog base = new HaskellCatalog();
+            HaskellCatalog c = new HaskellCatalog(HaskellCatalog.XML_PATH, ImmutableList.of(extra.toUri().toURL()));
+
+            assertEquals(base.size() + 1, c.size());
+            assertEquals("Extra", c.getByPrefix("id").stream().filter(fn -> fn.getName().equals("id")).findFirst().get().getCategory());
+            assertEquals("Pretty a -> String", c.getByPrefix("pretty").iterator().next().getFreshSignature().prettyPrint());
+            assertEquals("Pretty prints.", c.getByPrefix("pretty").iterator().next().getDocumentation());
+            assertNotNull(c.asEnvironment().testLookupClass("Pretty"));
+            assertTrue(c.getLoadReport().contains("from 2 catalog files"));
+        } finally {
+            Files.delete(extra);
+        }
+    }
+
+    @Test
+    public void invalidUserCatalogTest() throws IOException {
+        Path extra = Files.createTempFile("catalog", ".xml");
+        // well formed, but the version is missing and functions must be in a category
+        Files.write(extra, ("<catalog><functions>"
+                + "<function name=\"pretty\" signature=\"a -> String\">Pretty prints.</function>"
+                + "</functions></catalog>").getBytes(StandardCharsets.UTF_8));
+
+        try {
+            HaskellCatalog base = new HaskellCatalog();
+            HaskellCatalog c = new HaskellCatalog(HaskellCatalog.XML_PATH, ImmutableList.of(extra.toUri().toURL()));
+
+            assertEquals(base.size(), c.size());
+            assertTrue(c.getByPrefix("pretty").isEmpty());
+        } finally {
+            Files.delete(extra);
+        }
+    }
+
+    @Test
+    public void booleanAttributeTest() throws IOException {
+        Path extra = Files.createTempFile("catalog", ".xml");
+        // xs:boolean also allows 1 and 0, and surrounding whitespace
+        Files.write(extra, ("<catalog version=\"0.4\"><functions><category name=\"Extra\">"
+                + "<function name=\"pretty\" signature=\"a -> String\" isCommon=\" 1 \" isConstructor=\"0\">Pretty prints.</function>"
+                + "</category></functions></catalog>").getBytes(StandardCharsets.UTF_8));
+
+        try {
+            HaskellCatalog c = new HaskellCatalog(HaskellCatalog.XML_PATH, ImmutableList.of(extra.toUri().toURL()));
+
+            CatalogFunction pretty = c.getByPrefix("pretty").iterator().next();
+            assertTrue(pretty.isCommon());
+            assertFalse(pretty.isConstructor());
+        } finally {
+            Files.delete(extra);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidBooleanAttributeTest() throws IOException {
+        Path extra = Files.createTempFile("catalog", ".xml");
+        Files.write(extra, ("<catalog version=\"0.4\"><functions><category name=\"Extra\">"
+                + "<function name=\"ugly\" signature=\"a -> String\" isCommon=\"yes\">Ugly prints.</function>"
+                + "</category></functions></catalog>").getBytes(StandardCharsets.UTF_8));
+
+        try {
+            new CatalogReader(new TypeArena()).read(extra.toUri().toURL());
+        } finally {
+            Files.delete(extra);
+        }
+    }
+
+    @Test
+    public void lazySignatureTest() throws InterruptedException {
+        HaskellCatalog c = new HaskellCatalog(HaskellCatalog.XML_PATH, false);
+        CatalogFunction map = c.getByPrefix("map").iterator().next();
+        assertFalse(map.isSignatureParsed());
+        assertEquals("(a -> b) -> [a] -> [b]", map.getFreshSignature().prettyPrint());
+        assertTrue(map.isSignatureParsed());
+
+        c.preparseSignatures().join();
+        assertTrue(c.getByPredicate(fn -> !fn.isSignatureParsed()).isEmpty());
+    }
+
+    @Test
+    public void environmentOverlayTest() {
+        HaskellCatalog c = new HaskellCatalog();
+        Environment first = c.asEnvironment();
+        Environment second = c.asEnvironment();
+
+        // the catalog entries are shared, not copied
+        assertSame(first.lookupFun("map"), second.lookupFun("map"));
+
+        first.addTestSignature("map", "Int -> Int");
+        first.addTypeClass(new TypeClass("Pretty"));
+        assertEquals("Int -> Int", first.lookupFun("map").getFreshSignature().prettyPrint());
+        assertNotNull(first.testLookupClass("Pretty"));
+
+        // additions stay local to the environment
+        assertEquals("(a -> b) -> [a] -> [b]", second.lookupFun("map").getFreshSignature().prettyPrint());
+        assertNull(second.testLookupClass("Pretty"));
+        assertNull(c.asEnvironment().testLookupClass("Pretty"));
+    }
 }
@@ -11,6 +11,7 @@ import java.util.Arrays;
 import java.util.Collections;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 public class LambdaTest {
     @Test
@@ -40,4 +41,23 @@ public class LambdaTest {
         assertEquals("(\\_ -> pi) ()", emptyLambda.toString());
     }
 
+
+    @Test
+    public void testNestedBinders() {
+        // an inner lambda with a binder of the same name as the outer one, referring to either of them
+        Binder outer1 = new Binder("a_0");
+        Binder inner1 = new Binder("a_0");
+        Lambda useOuter = new Lambda(Arrays.asList(outer1), new Lambda(Arrays.asList(inner1), new LocalVar(outer1)));
+        Binder outer2 = new Binder("a_0");
+        Binder inner2 = new Binder("a_0");
+        Lambda useInner = new Lambda(Arrays.asList(outer2), new Lambda(Arrays.asList(inner2), new LocalVar(inner2)));
+
+        assertNotEquals(outer1.getUniqueName(), inner1.getUniqueName());
+        assertNotEquals(useOuter.fingerprint(), useInner.fingerprint());
+        assertEquals("(\\ " + outer1.getUniqueName() + " -> (\\ " + inner1.getUniqueName() + " -> " + outer1.getUniqueName() + "))", useOuter.toHaskell());
+
+        // the names only depend on the structure
+        assertEquals(outer1.getUniqueName(), outer2.getUniqueName());
+        assertEquals(inner1.getUniqueName(), inner2.getUniqueName());
+    }
 }
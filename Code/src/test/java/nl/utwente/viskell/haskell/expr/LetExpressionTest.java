@@ -0,0 +1,88 @@
+package nl.utwente.viskell.haskell.expr;
+
+import nl.utwente.viskell.haskell.type.Type;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LetExpressionTest {
+    private final Type integer = Type.con("Integer");
+
+    @Test
+    public final void testToHaskell() {
+        Binder x = new Binder("x");
+        Binder y = new Binder("y");
+        LetExpression let = new LetExpression(new LocalVar(y), false);
+        let.addLetBinding(y, new LocalVar(x));
+        let.addLetBinding(x, new Value(this.integer, "1"));
+
+        String xn = x.getUniqueName();
+        String yn = y.getUniqueName();
+        assertEquals("(let {" + xn + " = (1); " + yn + " = " + xn + "; } in " + yn + ")", let.toHaskell());
+
+        LetExpression guard = new LetExpression(new Value(this.integer, "2"), true);
+        guard.addLetBinding(y, new LocalVar(x));
+        guard.addLetBinding(x, new Value(this.integer, "1"));
+        assertEquals(xn + " <- (1), " + yn + " <- " + xn + ", True -> (2)", guard.toHaskell());
+    }
+
+    /** Builds the same let expression as a graph would, with new objects each time. */
+    private LetExpression buildSample(String value) {
+        Binder x = new Binder("res");
+        Binder y = new Binder("res");
+        LetExpression let = new LetExpression(new Apply(new LocalVar(y), new LocalVar(x)), false);
+        let.addLetBinding(y, new LocalVar(x));
+        let.addLetBinding(x, new Value(this.integer, value));
+        return let;
+    }
+
+    @Test
+    public final void testFingerprint() {
+        LetExpression let = this.buildSample("1");
+        assertEquals(let.fingerprint(), this.buildSample("1").fingerprint());
+        assertEquals(let.toHaskell(), this.buildSample("1").toHaskell());
+        assertNotEquals(let.fingerprint(), this.buildSample("2").fingerprint());
+        assertNotEquals(let.toHaskell(), this.buildSample("2").toHaskell());
+
+        // binders with the same name bound to equal expressions are written only once
+        Binder a = new Binder("res");
+        Binder b = new Binder("res");
+        LetExpression dup = new LetExpression(new Apply(new LocalVar(a), new LocalVar(b)), false);
+        dup.addLetBinding(a, new Value(this.integer, "1"));
+        dup.addLetBinding(b, new Value(this.integer, "1"));
+        assertEquals(a.getUniqueName(), b.getUniqueName());
+        assertEquals("(let {" + a.getUniqueName() + " = (1); } in (" + a.getUniqueName() + " " + a.getUniqueName() + "))", dup.toHaskell());
+    }
+
+    @Test
+    public final void testFixedNames() {
+        Binder x = new Binder("x");
+        LetExpression let = new LetExpression(new LocalVar(x), false);
+        let.addLetBinding(x, new Value(this.integer, "1"));
+        String haskell = let.toHaskell();
+
+        // binding the binder elsewhere does not change code of which the fingerprint is known
+        new LetExpression(new LocalVar(x), false).addLetBinding(x, new Value(this.integer, "2"));
+        assertEquals(haskell, let.toHaskell());
+    }
+
+    @Test
+    public final void testManyBindings() {
+        final int count = 5000;
+        Binder previous = new Binder("b");
+        LetExpression let = new LetExpression(new LocalVar(previous), false);
+        let.addLetBinding(previous, new Value(this.integer, "0"));
+        for (int i = 0; i < count; i++) {
+            Binder next = new Binder("b");
+            let.addLetBinding(next, new Apply(new Value(this.integer, "1"), new LocalVar(previous)));
+            previous = next;
+        }
+
+        String haskell = let.toHaskell();
+        // the last added binding comes first
+        assertTrue(haskell.startsWith("(let {" + previous.getUniqueName() + " = ((1) "));
+        assertEquals(count + 1, haskell.split("; ").length - 1);
+    }
+}
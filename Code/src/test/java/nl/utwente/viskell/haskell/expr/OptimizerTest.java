@@ -0,0 +1,172 @@
+package nl.utwente.viskell.haskell.expr;
+
+import com.google.common.collect.ImmutableList;
+import nl.utwente.viskell.haskell.type.Type;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OptimizerTest {
+    private final Type integer = Type.con("Integer");
+
+    private Expression fun(String name) {
+        return new Value(Type.fun(this.integer, this.integer, this.integer), name);
+    }
+
+    private Expression apply(String name, Expression a, Expression b) {
+        return new Apply(new Apply(this.fun(name), a), b);
+    }
+
+    @Test
+    public void testDeadAndSingleUse() {
+        Binder used = new Binder("a");
+        Binder unused = new Binder("b");
+        LetExpression let = new LetExpression(new LocalVar(used), false);
+        let.addLetBinding(used, new Value(this.integer, "1"));
+        let.addLetBinding(unused, new Value(this.integer, "2"));
+
+        String original = let.toHaskell();
+        assertEquals("(1)", Optimizer.optimize(let).toHaskell());
+        // the original expression is left alone
+        assertEquals(original, let.toHaskell());
+    }
+
+    @Test
+    public void testSharedKept() {
+        Binder total = new Binder("total");
+        LetExpression let = new LetExpression(this.apply("(+)", new LocalVar(total), new LocalVar(total)), false);
+        let.addLetBinding(total, new Value(this.integer, "sum [1..1000]"));
+
+        Expression result = Optimizer.optimize(let);
+        String name = ((LetExpression) result).getBoundNames().get(0);
+        assertEquals("(let {" + name + " = (sum [1..1000]); } in ((((+)) " + name + ") " + name + "))", result.toHaskell());
+        assertEquals(let.toHaskell(), result.toHaskell());
+    }
+
+    @Test
+    public void testMergedBindings() {
+        // two equal bindings are written once, and uses of the one merged away refer to the one kept
+        Binder src = new Binder("src");
+        Binder neg1 = new Binder("neg");
+        Binder neg2 = new Binder("neg");
+        LetExpression let = new LetExpression(this.apply("(+)", new LocalVar(neg1), new LocalVar(neg1)), false);
+        let.addLetBinding(src, new Value(this.integer, "sum [1..9]"));
+        let.addLetBinding(neg1, new Apply(this.fun("negate"), new LocalVar(src)));
+        let.addLetBinding(neg2, new Apply(this.fun("negate"), new LocalVar(src)));
+        assertEquals(2, let.getBoundNames().size());
+
+        LetExpression result = (LetExpression) Optimizer.optimize(let);
+        String name = result.getBoundNames().get(0);
+        assertEquals(1, result.getBoundNames().size());
+        assertEquals("(let {" + name + " = ((negate) (sum [1..9])); } in ((((+)) " + name + ") " + name + "))", result.toHaskell());
+    }
+
+    @Test
+    public void testLambda() {
+        // a value used once within a lambda is kept, as it would be evaluated on every application
+        Binder total = new Binder("total");
+        Binder x = new Binder("x");
+        Binder y = new Binder("y");
+        LetExpression body = new LetExpression(this.apply("(+)", new LocalVar(y), new LocalVar(total)), false);
+        // a renaming is inlined even within a lambda
+        body.addLetBinding(y, new LocalVar(x));
+        Lambda lambda = new Lambda(ImmutableList.of(x), body);
+        LetExpression let = new LetExpression(lambda, false);
+        let.addLetBinding(total, new Value(this.integer, "sum [1..1000]"));
+
+        Expression result = Optimizer.optimize(let);
+        LetExpression top = (LetExpression) result;
+        String name = top.getBoundNames().get(0);
+        Lambda newLambda = (Lambda) top.getBody();
+        String arg = ((LocalVar) ((Apply) ((Apply) newLambda.getChildren().get(0)).getChildren().get(0)).getChildren().get(1)).getUniqueName();
+        assertEquals("(let {" + name + " = (sum [1..1000]); } in (\\ " + arg + " -> ((((+)) " + arg + ") " + name + ")))", result.toHaskell());
+    }
+
+    @Test
+    public void testFlatten() {
+        Binder a = new Binder("a");
+        Binder b = new Binder("b");
+        Binder c = new Binder("c");
+        LetExpression inner = new LetExpression(this.apply("(*)", new LocalVar(b), new LocalVar(b)), false);
+        inner.addLetBinding(b, this.apply("(+)", new LocalVar(a), new LocalVar(a)));
+        LetExpression bound = new LetExpression(this.apply("(-)", new LocalVar(c), new LocalVar(c)), false);
+        bound.addLetBinding(c, new Value(this.integer, "3"));
+        LetExpression outer = new LetExpression(inner, false);
+        outer.addLetBinding(a, bound);
+
+        Expression result = Optimizer.optimize(outer);
+        LetExpression let = (LetExpression) result;
+        // the lets in the body and in the binding of a are merged into one
+        assertEquals(3, let.getBoundNames().size());
+        assertTrue(let.getBody() instanceof Apply);
+        for (Expression expr : let.getBoundExprs()) {
+            assertTrue(!(expr instanceof LetExpression));
+        }
+        assertEquals(result.toHaskell().indexOf("let"), result.toHaskell().lastIndexOf("let"));
+    }
+
+    @Test
+    public void testRecursive() {
+        // a binding referring to itself is kept, also when it is only a renaming
+        Binder xs = new Binder("xs");
+        Binder p = new Binder("p");
+        Binder q = new Binder("q");
+        LetExpression let = new LetExpression(this.apply("f", new LocalVar(xs), new LocalVar(p)), false);
+        let.addLetBinding(xs, this.apply("(:)", new Value(this.integer, "1"), new LocalVar(xs)));
+        let.addLetBinding(p, new LocalVar(q));
+        let.addLetBinding(q, new LocalVar(p));
+
+        LetExpression result = (LetExpression) Optimizer.optimize(let);
+        assertEquals(2, result.getBoundNames().size());
+        String code = result.toHaskell();
+        for (String name : result.getBoundNames()) {
+            assertTrue(code.contains(name + " = "));
+        }
+    }
+
+    @Test
+    public void testFreeVariables() {
+        // variables bound outside of the optimized expression keep their names
+        Binder x = new Binder("x");
+        Binder y = new Binder("y");
+        LetExpression let = new LetExpression(this.apply("(+)", new LocalVar(y), new LocalVar(x)), false);
+        let.addLetBinding(y, new Value(this.integer, "2"));
+        new Lambda(ImmutableList.of(x), let);
+
+        String name = x.getUniqueName();
+        assertEquals("((((+)) (2)) " + name + ")", Optimizer.optimize(let).toHaskell());
+    }
+
+    @Test
+    public void testGuards() {
+        Binder x = new Binder("x");
+        Binder y = new Binder("y");
+        LetExpression guards = new LetExpression(new Value(this.integer, "0"), true);
+        guards.addLetBinding(new ConstantBinder("1"), new LocalVar(x));
+        guards.addLetBinding(x, new LocalVar(y));
+        guards.addLetBinding(y, new Value(this.integer, "1"));
+        Case choice = new Case(new Value(Type.tupleOf(), "()"), ImmutableList.of(new Case.Alternative(new ConstructorBinder("()"), guards)));
+
+        // the guards are kept as they are, only with fresh names
+        assertEquals(choice.toHaskell().replaceAll("__[0-9a-f]+", ""), Optimizer.optimize(choice).toHaskell().replaceAll("__[0-9a-f]+", ""));
+    }
+
+    @Test
+    public void testLongChain() {
+        // a long chain of single use bindings is not inlined into one deeply nested expression
+        Binder[] binders = new Binder[1000];
+        for (int i = 0; i < binders.length; i++) {
+            binders[i] = new Binder("v");
+        }
+        LetExpression let = new LetExpression(new LocalVar(binders[binders.length - 1]), false);
+        let.addLetBinding(binders[0], new Value(this.integer, "0"));
+        for (int i = 1; i < binders.length; i++) {
+            let.addLetBinding(binders[i], new Apply(this.fun("succ"), new LocalVar(binders[i - 1])));
+        }
+
+        LetExpression result = (LetExpression) Optimizer.optimize(let);
+        assertTrue(result.getBoundNames().size() < binders.length / 10);
+        assertTrue(result.toHaskell().length() < let.toHaskell().length());
+    }
+}
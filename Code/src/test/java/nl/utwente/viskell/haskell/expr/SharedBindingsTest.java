@@ -0,0 +1,72 @@
+package nl.utwente.viskell.haskell.expr;
+
+import com.google.common.collect.ImmutableList;
+import nl.utwente.viskell.haskell.type.Type;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SharedBindingsTest {
+    private final Type integer = Type.con("Integer");
+
+    /** Builds the expression of a display showing f applied to an expensive shared value, as getFullExpr would. */
+    private Expression buildSink(String f) {
+        Binder total = new Binder("res");
+        Binder result = new Binder("res");
+        LetExpression let = new LetExpression(new LocalVar(result), false);
+        let.addLetBinding(result, new Apply(new Value(Type.fun(this.integer, this.integer), f), new LocalVar(total)));
+        let.addLetBinding(total, new Value(this.integer, "sum [1..1000000]"));
+        return new Apply(new Value(Type.fun(this.integer, this.integer), "id"), let);
+    }
+
+    @Test
+    public void testShared() throws IOException {
+        Expression negate = this.buildSink("negate");
+        Expression abs = this.buildSink("abs");
+        SharedBindings plan = SharedBindings.plan(ImmutableList.of(negate, abs, this.buildSink("negate")));
+
+        assertFalse(plan.isEmpty());
+        StringBuilder bindings = new StringBuilder();
+        plan.bindingsToHaskell(bindings);
+
+        // the expensive value is shared by all, the application of negate by two of them
+        String total = ((LetExpression) negate.getChildren().get(1)).getBoundNames().get(0);
+        String negated = ((LetExpression) negate.getChildren().get(1)).getBoundNames().get(1);
+        assertEquals(2, plan.size());
+        assertTrue(bindings.toString().contains(total + " = (sum [1..1000000]); "));
+        assertTrue(bindings.toString().contains(negated + " = ((negate) " + total + "); "));
+
+        // the shared bindings are gone from the expressions, but the others remain
+        assertEquals("((id) " + negated + ")", plan.getExpressions().get(0).toHaskell());
+        String absolute = ((LetExpression) abs.getChildren().get(1)).getBoundNames().get(1);
+        assertEquals("((id) (let {" + absolute + " = ((abs) " + total + "); } in " + absolute + "))", plan.getExpressions().get(1).toHaskell());
+    }
+
+    @Test
+    public void testNothingShared() {
+        Expression single = this.buildSink("negate");
+        SharedBindings plan = SharedBindings.plan(ImmutableList.of(single));
+        assertTrue(plan.isEmpty());
+        assertEquals(single, plan.getExpressions().get(0));
+    }
+
+    @Test
+    public void testPatternDependency() {
+        // a binding that depends on a variable bound by a pattern stays where it is
+        Expression[] sinks = new Expression[2];
+        for (int i = 0; i < sinks.length; i++) {
+            Binder elem = new Binder("e_0");
+            Binder result = new Binder("res");
+            LetExpression let = new LetExpression(new LocalVar(result), false);
+            let.addLetBinding(result, new Apply(new Value(Type.fun(this.integer, this.integer), "negate"), new LocalVar(elem)));
+            let.addLetBinding(new ConstructorBinder("Just", ImmutableList.of(elem)), new Value(Type.con("Maybe", this.integer), "Just 1"));
+            sinks[i] = let;
+        }
+
+        assertTrue(SharedBindings.plan(ImmutableList.copyOf(sinks)).isEmpty());
+    }
+}
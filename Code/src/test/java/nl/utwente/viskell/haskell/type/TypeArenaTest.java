@@ -0,0 +1,56 @@
+package nl.utwente.viskell.haskell.type;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TypeArenaTest {
+    @Test
+    public final void roundTripTest() {
+        TypeClass num = new TypeClass("Num", Type.con("Int"));
+        TypeScope scope = new TypeScope();
+        TypeVar a = scope.getVarTC("a", num);
+        TypeVar b = scope.getVar("b");
+        Type t = Type.fun(Type.fun(a, b), Type.listOf(a), Type.tupleOf(b, Type.con("Maybe", a)));
+
+        TypeArena arena = new TypeArena();
+        int handle = arena.intern(t);
+        Type copy = arena.instantiate(handle);
+
+        assertEquals(t.prettyPrint(), copy.prettyPrint());
+        assertNotSame(copy, arena.instantiate(handle));
+
+        // the copy has its own type variables, shared within the copy
+        FunType fun = (FunType) copy;
+        TypeVar ca = (TypeVar) ((FunType) fun.getArgument()).getArgument();
+        TypeVar cb = (TypeVar) ((FunType) fun.getArgument()).getResult();
+        assertNotEquals(a, ca);
+        assertEquals(ca, ((TypeApp) ((FunType) fun.getResult()).getArgument()).getTypeArg());
+        assertEquals(1, ca.getConstraints().count());
+        assertEquals(0, cb.getConstraints().count());
+    }
+
+    @Test
+    public final void instantiatedVarTest() throws HaskellTypeError {
+        TypeVar a = new TypeScope().getVar("a");
+        Type t = Type.listOf(a);
+        TypeChecker.unify("test", a, Type.con("Int"));
+
+        TypeArena arena = new TypeArena();
+        assertEquals("[Int]", arena.instantiate(arena.intern(t)).prettyPrint());
+    }
+
+    @Test
+    public final void sharingTest() {
+        TypeArena arena = new TypeArena();
+        TypeScope scope = new TypeScope();
+        int first = arena.intern(Type.fun(Type.listOf(Type.con("Int")), scope.getVar("a")));
+        int size = arena.size();
+
+        // equal types and parts of types are only stored once
+        assertEquals(first, arena.intern(Type.fun(Type.listOf(Type.con("Int")), new TypeScope().getVar("a"))));
+        assertEquals(size, arena.size());
+        arena.intern(Type.fun(Type.listOf(Type.con("Int")), Type.con("Int")));
+        assertEquals(size + 1, arena.size());
+    }
+}
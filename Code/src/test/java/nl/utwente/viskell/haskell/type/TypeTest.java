@@ -2,8 +2,12 @@ package nl.utwente.viskell.haskell.type;
 
 import org.junit.Test;
 
+import java.util.Optional;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class TypeTest {
     @Test
@@ -55,4 +59,92 @@ public class TypeTest {
         TypeChecker.unify("test", t2, t3);
         assertEquals("([Int], [Int])", t2.prettyPrint());
     }
+
+    @Test
+    public final void cachedPrettyPrintTest() throws HaskellTypeError {
+        TypeScope scope = new TypeScope();
+        final TypeVar a = scope.getVar("a");
+        final Type t = Type.fun(Type.listOf(a), a);
+
+        final String printed = t.prettyPrint();
+        assertEquals("[a] -> a", printed);
+        assertSame(printed, t.prettyPrint());
+
+        // modifying an unrelated type keeps the cached text
+        TypeChecker.unify("test", scope.getVar("b"), Type.con("Bool"));
+        assertSame(printed, t.prettyPrint());
+        assertSame(printed, t.prettyPrintBounded(8));
+
+        TypeClass eq = new TypeClass("Eq");
+        eq.addInstance(Type.con("Int"), 0);
+        a.introduceConstraint(eq);
+        assertEquals("[Eq a] -> Eq a", t.prettyPrint());
+
+        TypeChecker.unify("test", a, Type.con("Int"));
+        assertEquals("[Int] -> Int", t.prettyPrint());
+
+        // unifying two variables changes the name one of them prints as
+        final TypeVar c = scope.getVar("c");
+        final TypeVar d = scope.getVar("d");
+        final Type u = Type.tupleOf(c, d);
+        assertEquals("(c, d)", u.prettyPrint());
+        TypeChecker.unify("test", c, d);
+        assertEquals(u.prettyPrint(0), u.prettyPrint());
+    }
+
+    @Test
+    public final void boundedPrettyPrintTest() {
+        assertEquals("Int", Type.con("Int").prettyPrintBounded(3));
+        assertEquals("(Int, Bool) -> Int", Type.fun(Type.tupleOf(Type.con("Int"), Type.con("Bool")), Type.con("Int")).prettyPrintBounded(18));
+        assertEquals("(Int, Bool) -> I\u2026", Type.fun(Type.tupleOf(Type.con("Int"), Type.con("Bool")), Type.con("Int")).prettyPrintBounded(17));
+
+        Type t = Type.con("Int");
+        for (int i = 0; i < 1000; i++) {
+            t = Type.fun(Type.tupleOf(Type.con("Int"), Type.con("Bool")), t);
+        }
+
+        String bounded = t.prettyPrintBounded(40);
+        assertEquals(40, bounded.length());
+        assertTrue(bounded.endsWith("\u2026"));
+        assertEquals(t.prettyPrint().substring(0, 39), bounded.substring(0, 39));
+        // once printed completely the cached text is abbreviated instead
+        assertEquals(bounded, t.prettyPrintBounded(40));
+
+        // with the sharing of subterms the complete text would be exponentially long
+        Type s = Type.con("Int");
+        for (int i = 0; i < 1000; i++) {
+            s = Type.fun(Type.tupleOf(s, Type.con("Bool")), s);
+        }
+
+        String label = s.prettyPrintBounded(40);
+        assertEquals(40, label.length());
+        assertSame(label, s.prettyPrintBounded(40));
+    }
+
+    @Test
+    public final void defaultedConcreteTypeTest() throws HaskellTypeError {
+        TypeClass num = new TypeClass("Num", Type.con("Int"), Type.con("Double"));
+        num.setDefaultType(Type.con("Int"));
+        TypeScope scope = new TypeScope();
+        final TypeVar a = scope.getVarTC("a", num);
+        final Type t = Type.fun(a, scope.getVar("b"));
+
+        final Optional<Type> defaulted = t.defaultedConcreteType(Type.con("Bool"));
+        assertEquals("Int -> Bool", defaulted.get().prettyPrint());
+        assertSame(defaulted, t.defaultedConcreteType(Type.con("Bool")));
+
+        // modifying an unrelated type keeps the result
+        TypeChecker.unify("test", new TypeScope().getVar("c"), Type.con("Int"));
+        assertSame(defaulted, t.defaultedConcreteType(Type.con("Bool")));
+        assertEquals("Int -> ()", t.defaultedConcreteType(Type.con("()")).get().prettyPrint());
+
+        // changing a type class invalidates the results
+        num.setDefaultType(Type.con("Double"));
+        assertEquals("Double -> Bool", t.defaultedConcreteType(Type.con("Bool")).get().prettyPrint());
+
+        TypeChecker.unify("test", a, Type.con("Int"));
+        assertEquals("Int -> Bool", t.defaultedConcreteType(Type.con("Bool")).get().prettyPrint());
+        // only copies were defaulted
+        assertEquals("Int -> b", t.prettyPrint());
+    }
 }
@@ -10,6 +10,8 @@ import nl.utwente.viskell.haskell.expr.Value;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class UnificationTest {
 
@@ -119,4 +121,57 @@ public class UnificationTest {
         TypeChecker.unify("dummy", b, Type.con("Int"));
         assertEquals("Int", y.prettyPrint());
     }
+
+    @Test
+    public void testUnifyDeep() throws HaskellTypeError {
+        // far deeper than a recursive unifier could handle with a default stack
+        final int depth = 200000;
+        Type[] vars = new Type[depth];
+        Type[] ints = new Type[depth];
+        TypeScope scope = new TypeScope();
+        for (int i = 0; i < depth; i++) {
+            vars[i] = scope.getVar("a" + (i % 2));
+            ints[i] = Type.con("Int");
+        }
+
+        TypeChecker.unify("deep", Type.fun(vars), Type.fun(ints));
+        assertEquals("Int", ((TypeVar) vars[depth - 1]).getInstantiatedType().prettyPrint());
+    }
+
+    @Test
+    public void testLazyContext() {
+        int[] calls = {0};
+        try {
+            TypeChecker.unify(() -> "context " + ++calls[0], Type.con("Int"), Type.con("Int"));
+            TypeChecker.unify(() -> "context " + ++calls[0], Type.con("Int"), Type.con("Bool"));
+        } catch (HaskellTypeError e) {
+            assertEquals("Int ⊥ Bool in context of context 1", e.getMessage());
+        }
+
+        // only the failing unification needed its context
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    public void testOccursShared() throws HaskellTypeError {
+        TypeScope scope = new TypeScope();
+        TypeVar b = scope.getVar("b");
+        // every level doubles the size of the type as a tree, but not as a graph
+        Type t = b;
+        for (int i = 0; i < 64; i++) {
+            TypeVar v = scope.getVar("v" + i);
+            TypeChecker.unify("shared", v, Type.tupleOf(t, t));
+            t = v;
+        }
+
+        // searching every shared part once, the occurs check is linear in the size of the graph
+        TypeChecker.unify("shared", scope.getVar("c"), Type.listOf(t));
+
+        try {
+            TypeChecker.unify("cycle", b, Type.listOf(scope.getVar("v0")));
+            fail("b occurs in the instance of v0");
+        } catch (HaskellTypeError e) {
+            assertTrue(e.getMessage().endsWith("in context of cycle"));
+        }
+    }
 }
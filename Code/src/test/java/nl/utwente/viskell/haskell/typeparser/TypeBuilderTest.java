@@ -1,7 +1,9 @@
 package nl.utwente.viskell.haskell.typeparser;
 
 import nl.utwente.viskell.haskell.env.Environment;
+import nl.utwente.viskell.haskell.type.HaskellTypeError;
 import nl.utwente.viskell.haskell.type.Type;
+import nl.utwente.viskell.haskell.type.TypeChecker;
 import nl.utwente.viskell.haskell.type.TypeClass;
 import org.junit.Assert;
 import org.junit.Test;
@@ -53,4 +55,18 @@ public class TypeBuilderTest {
         Assert.assertEquals("Num a -> Eq b", env.buildType("(Num a, Eq b) => a -> b").prettyPrint());
         Assert.assertEquals("(a -> b) -> (Functor f) a -> (Functor f) b", env.buildType("Functor f => (a -> b) -> f a -> f b").prettyPrint());
     }
+
+    @Test public void testCachedBuild() throws HaskellTypeError {
+        Environment env = new Environment();
+        Assert.assertEquals("a", env.buildType("Num a => a").prettyPrint());
+        env.addTypeClass(new TypeClass("Num", Type.con("Int"), Type.con("Float"), Type.con("Double")));
+        Assert.assertEquals("Num a", env.buildType("Num a => a").prettyPrint());
+
+        // every build gives a separate instance, so unifying one leaves the others alone
+        Type first = env.buildType("Num a => a");
+        Type second = env.buildType("Num a => a");
+        TypeChecker.unify("cached", first, Type.con("Int"));
+        Assert.assertEquals("Int", first.prettyPrint());
+        Assert.assertEquals("Num a", second.prettyPrint());
+    }
 }
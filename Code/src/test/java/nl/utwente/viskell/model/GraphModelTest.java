@@ -0,0 +1,131 @@
+package nl.utwente.viskell.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import nl.utwente.viskell.haskell.env.Environment;
+import nl.utwente.viskell.haskell.env.HaskellCatalog;
+import nl.utwente.viskell.ui.serialize.Importer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GraphModelTest {
+    private Environment env;
+
+    @Before
+    public void setUp() {
+        this.env = new HaskellCatalog().asEnvironment();
+    }
+
+    @Test
+    public void testReadSample() throws IOException {
+        GraphModel graph;
+        try (InputStream in = new FileInputStream("samples/simple/observe_a_number.viskell")) {
+            graph = Importer.readGraph(in, this.env);
+        }
+
+        assertTrue(graph.getErrors().isEmpty());
+        assertEquals(2, graph.getBlocks().size());
+        assertEquals(1, graph.getConnections().size());
+
+        List<BlockModel> sinks = graph.getBottomMost();
+        assertEquals(1, sinks.size());
+        assertEquals("DisplayBlock", sinks.get(0).getKind());
+        assertTrue(sinks.get(0).getFullExpr().toHaskell().contains("42"));
+        assertTrue(graph.typecheck().isEmpty());
+    }
+
+    @Test
+    public void testBundle() {
+        Map<String, Object> layers = ImmutableMap.of(
+                GraphModel.BLOCKS_LABEL, ImmutableList.of(
+                        this.block("SliderBlock", 1, ImmutableMap.of("isIntegral", true, "value", "3")),
+                        this.block("BinOpApplyBlock", 2, ImmutableMap.of("funInfo", ImmutableMap.of("name", "(+)"), "curriedArgs", ImmutableList.of(false, false))),
+                        this.block("DisplayBlock", 3, ImmutableMap.of()),
+                        this.block("UnknownBlock", 4, ImmutableMap.of())),
+                GraphModel.CONNECTIONS_LABEL, ImmutableList.of(
+                        this.connection(1, 2, 0),
+                        this.connection(1, 2, 1),
+                        this.connection(2, 3, 0),
+                        this.connection(3, 4, 0)));
+
+        GraphModel graph = GraphModel.fromBundle(layers, this.env);
+        // the display has no output to connect from
+        assertEquals(1, graph.getErrors().size());
+        assertEquals(3, graph.getConnections().size());
+        assertFalse(graph.getBlock(4).get().isSupported());
+
+        BlockModel display = graph.getBlock(3).get();
+        assertTrue(display.isBottomMost());
+        String code = display.getFullExpr().toHaskell();
+        assertTrue(code.contains("(+)"));
+        assertTrue(code.contains("3"));
+
+        assertTrue(graph.typecheck().isEmpty());
+        assertTrue(graph.getBlock(2).get().getOutput().get().getType().get().prettyPrint().contains("Num"));
+
+        // the bundle of the graph describes the same graph
+        GraphModel copy = GraphModel.fromBundle(graph.toBundle(), this.env);
+        assertEquals(graph.getBlocks().size(), copy.getBlocks().size());
+        assertEquals(3, copy.getConnections().size());
+    }
+
+    @Test
+    public void testResultExpr() {
+        Map<String, Object> layers = ImmutableMap.of(
+                GraphModel.BLOCKS_LABEL, ImmutableList.of(
+                        this.block("ConstantBlock", 1, ImmutableMap.of("value", "[1..]")),
+                        this.block("DisplayBlock", 2, ImmutableMap.of()),
+                        this.block("SimulateBlock", 3, ImmutableMap.of())),
+                GraphModel.CONNECTIONS_LABEL, ImmutableList.of(
+                        this.connection(1, 2, 0),
+                        this.connection(1, 3, 0)));
+
+        GraphModel graph = GraphModel.fromBundle(layers, this.env);
+        graph.typecheck();
+        assertFalse(graph.getBlock(1).get().getResultExpr(5).isPresent());
+        assertTrue(graph.getBlock(3).get().getResultExpr(5).get().toHaskell().contains("Data.List.take 5 (simulate f [1..])"));
+        // the type of a constant is not known until ghci is asked, so the display shows it as it is
+        assertFalse(graph.getBlock(2).get().getResultExpr(5).get().toHaskell().contains("take"));
+    }
+
+    @Test
+    public void testUnknownFunction() {
+        Map<String, Object> layers = ImmutableMap.of(
+                GraphModel.BLOCKS_LABEL, ImmutableList.of(
+                        this.block("ConstantBlock", 1, ImmutableMap.of("value", "1")),
+                        this.block("BinOpApplyBlock", 2, ImmutableMap.of("funInfo", ImmutableMap.of("name", "nosuchfunction"), "curriedArgs", ImmutableList.of(false, false))),
+                        this.block("DisplayBlock", 3, ImmutableMap.of())),
+                GraphModel.CONNECTIONS_LABEL, ImmutableList.of(
+                        this.connection(1, 2, 1),
+                        this.connection(2, 3, 0)));
+
+        // the block is reported, but kept with its connections so that it is not lost from the program
+        GraphModel graph = GraphModel.fromBundle(layers, this.env);
+        assertEquals(1, graph.getErrors().size());
+        assertTrue(graph.getErrors().get(0).contains("nosuchfunction"));
+        assertEquals(3, graph.getBlocks().size());
+        assertEquals(2, graph.getConnections().size());
+        assertFalse(graph.getBlock(2).get().isSupported());
+        assertEquals("BinOpApplyBlock", graph.getBlock(2).get().getKind());
+    }
+
+    private Map<String, Object> block(String kind, int id, Map<String, Object> properties) {
+        return ImmutableMap.of("kind", kind, "id", (double) id, "x", 0.0, "y", 0.0, "properties", properties);
+    }
+
+    private Map<String, Object> connection(int from, int to, int anchor) {
+        return ImmutableMap.of(
+                ConnectionModel.SOURCE_LABEL, ImmutableMap.of(ConnectionModel.BLOCK_LABEL, (double) from),
+                ConnectionModel.SINK_LABEL, ImmutableMap.of(ConnectionModel.BLOCK_LABEL, (double) to, ConnectionModel.ANCHOR_LABEL, (double) anchor));
+    }
+}
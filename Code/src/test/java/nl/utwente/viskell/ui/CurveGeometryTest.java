@@ -0,0 +1,55 @@
+package nl.utwente.viskell.ui;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CurveGeometryTest {
+    /** @return The distance between the point and the curve, by sampling it densely. */
+    private static double sampledDistance(double[] c, double px, double py) {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i <= 20000; i++) {
+            double t = i / 20000.0;
+            double u = 1 - t;
+            double x = u*u*u*c[0] + 3*u*u*t*c[2] + 3*u*t*t*c[4] + t*t*t*c[6];
+            double y = u*u*u*c[1] + 3*u*u*t*c[3] + 3*u*t*t*c[5] + t*t*t*c[7];
+            best = Math.min(best, Math.hypot(x - px, y - py));
+        }
+
+        return best;
+    }
+
+    @Test
+    public void testWire() {
+        // a wire going down from (0,0) to (200,300), shaped like a connection
+        double[] wire = {0, 0, 0, 150, 200, 150, 200, 300};
+        assertTrue(CurveGeometry.cubicNearPoint(wire, 100, 150, 1));
+        assertTrue(CurveGeometry.cubicNearPoint(wire, 0, -30, 40));
+        assertFalse(CurveGeometry.cubicNearPoint(wire, 0, -50, 40));
+        // near a control point, but not near the curve itself
+        assertFalse(CurveGeometry.cubicNearPoint(wire, 200, 150, 40));
+    }
+
+    @Test
+    public void testAgainstSampling() {
+        Random random = new Random(7);
+        for (int n = 0; n < 500; n++) {
+            double[] curve = new double[8];
+            for (int i = 0; i < curve.length; i++) {
+                curve[i] = random.nextDouble() * 1000;
+            }
+            double px = random.nextDouble() * 1000;
+            double py = random.nextDouble() * 1000;
+            double distance = 40;
+
+            double actual = CurveGeometryTest.sampledDistance(curve, px, py);
+            if (Math.abs(actual - distance) > 0.5) {
+                assertEquals(actual <= distance, CurveGeometry.cubicNearPoint(curve, px, py, distance));
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package nl.utwente.viskell.ui;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SpatialIndexTest {
+    @Test
+    public void testUpdateAndRemove() {
+        SpatialIndex<String> index = new SpatialIndex<>(100);
+        index.update("a", 10, 10, 50, 50);
+        index.update("b", 90, 90, 250, 120);
+        assertEquals(2, index.size());
+        assertEquals(1, index.query(0, 0, 20, 20).size());
+        assertEquals(2, index.query(40, 40, 95, 95).size());
+
+        // moving an item to other cells
+        index.update("a", 510, 510, 550, 550);
+        assertTrue(index.query(0, 0, 60, 60).isEmpty());
+        assertEquals("a", index.query(500, 500, 520, 520).get(0));
+
+        index.remove("b");
+        assertEquals(1, index.size());
+        assertTrue(index.query(200, 100, 210, 110).isEmpty());
+    }
+
+    @Test
+    public void testAgainstAll() {
+        Random random = new Random(42);
+        SpatialIndex<Integer> index = new SpatialIndex<>(64);
+        double[][] boxes = new double[3000][];
+        for (int i = 0; i < boxes.length; i++) {
+            double x = random.nextDouble() * 5000 - 1000;
+            double y = random.nextDouble() * 5000 - 1000;
+            boxes[i] = new double[] {x, y, x + random.nextDouble() * 200, y + random.nextDouble() * 100};
+            index.update(i, boxes[i][0], boxes[i][1], boxes[i][2], boxes[i][3]);
+        }
+
+        // move some of them, within and across cells
+        for (int i = 0; i < boxes.length; i += 3) {
+            double dx = random.nextDouble() * 300 - 150;
+            boxes[i] = new double[] {boxes[i][0] + dx, boxes[i][1], boxes[i][2] + dx, boxes[i][3] + 5};
+            index.update(i, boxes[i][0], boxes[i][1], boxes[i][2], boxes[i][3]);
+        }
+
+        for (int q = 0; q < 200; q++) {
+            double x = random.nextDouble() * 5000 - 1000;
+            double y = random.nextDouble() * 5000 - 1000;
+            double size = q % 10 == 0 ? 4000 : 200;
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < boxes.length; i++) {
+                if (boxes[i][0] <= x + size && x <= boxes[i][2] && boxes[i][1] <= y + size && y <= boxes[i][3]) {
+                    expected.add(i);
+                }
+            }
+
+            List<Integer> found = index.query(x, y, x + size, y + size);
+            assertEquals(expected.size(), found.size());
+            assertEquals(new HashSet<>(expected), new HashSet<>(found));
+        }
+    }
+}